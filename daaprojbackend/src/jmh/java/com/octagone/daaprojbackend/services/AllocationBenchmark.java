@@ -0,0 +1,135 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.Connection;
+import com.octagone.daaprojbackend.models.Source;
+import com.octagone.daaprojbackend.models.Zone;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation engines over generated networks, outside of Spring so that the
+ * numbers contain neither context startup nor JIT warm-up.
+ *
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec}; the profile adds
+ * the GC profiler, so every result also reports bytes allocated per operation.
+ * Narrow the matrix with JMH options, e.g.
+ * {@code -Djmh.args="AllocationBenchmark -p engine=array,parallel -p zones=10000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class AllocationBenchmark {
+
+    @Param({"greedy", "array", "flow", "parallel"})
+    private String engine;
+
+    @Param({"100", "1000"})
+    private int sources;
+
+    @Param({"1000", "10000"})
+    private int zones;
+
+    // Connections per zone
+    @Param({"2", "8"})
+    private int density;
+
+    @Param({"UNIFORM", "SKEWED"})
+    private PriorityMix priorityMix;
+
+    private CompiledNetwork network;
+    private List<Source> sourceEntities;
+    private List<Zone> zoneEntities;
+    private List<Connection> connectionEntities;
+
+    private WaterAllocationServiceImpl greedy;
+    private ArrayAllocationEngine array;
+    private MinCostFlowEngine flow;
+    private ParallelAllocationStrategy parallel;
+
+    public enum PriorityMix {
+        // Priorities 1 to 3 with equal probability
+        UNIFORM(1, 1, 1),
+        // Mostly priority 1 with a few critical zones at 3
+        SKEWED(0.8, 0.15, 0.05);
+
+        private final double[] weights;
+
+        PriorityMix(double... weights) {
+            this.weights = weights;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Slightly more demand than capacity, so the engines have to make real trade-offs
+        network = new NetworkGenerator(new NetworkGeneratorConfig()
+                .setSources(sources)
+                .setZones(zones)
+                .setConnectionsPerZone(density)
+                .setClusters(16)
+                .setPriorityWeights(priorityMix.weights)
+                .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED)
+                .setOversubscription(1.1))
+                .generateNetwork();
+
+        sourceEntities = new ArrayList<>(network.getSourceCount());
+        zoneEntities = new ArrayList<>(network.getZoneCount());
+        connectionEntities = new ArrayList<>(network.getConnectionCount());
+        for (int s = 0; s < network.getSourceCount(); s++) {
+            sourceEntities.add(new Source(network.getSourceIds()[s], network.getCapacity()[s]));
+        }
+        for (int z = 0; z < network.getZoneCount(); z++) {
+            zoneEntities.add(new Zone(network.getZoneIds()[z], network.getDemand()[z], network.getPriority()[z]));
+        }
+        for (int c = 0; c < network.getConnectionCount(); c++) {
+            connectionEntities.add(new Connection(network.getConnectionIds()[c],
+                    sourceEntities.get(network.getConnSrc()[c]), zoneEntities.get(network.getConnZone()[c]),
+                    network.getCost()[c]));
+        }
+
+        greedy = new WaterAllocationServiceImpl();
+        array = new ArrayAllocationEngine();
+        flow = new MinCostFlowEngine();
+        parallel = new ParallelAllocationStrategy(array, 0, 0);
+        parallel.startPool();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parallel.stopPool();
+    }
+
+    @Benchmark
+    public AllocationResponse allocate() {
+        return switch (engine) {
+            case "greedy" -> greedy.allocateWater(sourceEntities, zoneEntities, connectionEntities,
+                    network.getGreedyOrder());
+            case "array" -> array.allocate(network);
+            case "flow" -> flow.allocate(network);
+            case "parallel" -> parallel.allocate(network);
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package com.octagone.daaprojbackend.codec;
+
+import com.octagone.daaprojbackend.models.CompactAllocation;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the binary allocation format written by {@link AllocationBinaryWriter}.
+ *
+ * Consumers call {@link #read(InputStream)} on the body of a
+ * {@code GET /allocate-water} sent with {@code Accept: application/x-allocation-binary}
+ * and use the columns directly, or {@link CompactAllocation#toResponse()} for
+ * the same objects the JSON response maps to.
+ */
+public final class AllocationBinaryReader {
+
+    private final byte[] data;
+    private int position;
+
+    private AllocationBinaryReader(byte[] data) {
+        this.data = data;
+    }
+
+    public static CompactAllocation read(InputStream in) throws IOException {
+        return read(in.readAllBytes());
+    }
+
+    public static CompactAllocation read(byte[] data) {
+        return new AllocationBinaryReader(data).readAllocation();
+    }
+
+    private CompactAllocation readAllocation() {
+        if (data.length < 6 || readFixed(4) != AllocationBinaryWriter.MAGIC) {
+            throw new IllegalArgumentException("Not a binary allocation payload");
+        }
+        int version = readByte();
+        if (version != AllocationBinaryWriter.VERSION) {
+            throw new IllegalArgumentException("Unsupported binary allocation version: " + version);
+        }
+        boolean deltaIds = (readByte() & AllocationBinaryWriter.FLAG_DELTA_IDS) != 0;
+        int zoneCount = readCount();
+        int connectionCount = readCount();
+
+        long[] zoneIds = readIds(zoneCount, deltaIds);
+        int[] zoneOffsets = new int[zoneCount + 1];
+        for (int z = 0; z < zoneCount; z++) {
+            zoneOffsets[z + 1] = zoneOffsets[z] + readCount();
+        }
+        long[] connectionIds = readIds(connectionCount, deltaIds);
+        double[] amounts = new double[connectionCount];
+        for (int i = 0; i < connectionCount; i++) {
+            amounts[i] = Double.longBitsToDouble(readFixed(8));
+        }
+        return new CompactAllocation(zoneIds, zoneOffsets, connectionIds, amounts);
+    }
+
+    private long[] readIds(int count, boolean deltaIds) {
+        long[] ids = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            if (deltaIds) {
+                long zigzag = readVarLong();
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                ids[i] = previous;
+            } else {
+                ids[i] = readFixed(8);
+            }
+        }
+        return ids;
+    }
+
+    private int readCount() {
+        long count = readVarLong();
+        if (count < 0 || count > data.length) {
+            throw new IllegalArgumentException("Corrupt binary allocation payload");
+        }
+        return (int) count;
+    }
+
+    private int readByte() {
+        if (position >= data.length) {
+            throw new IllegalArgumentException("Truncated binary allocation payload");
+        }
+        return data[position++] & 0xFF;
+    }
+
+    private long readFixed(int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt binary allocation payload");
+    }
+}
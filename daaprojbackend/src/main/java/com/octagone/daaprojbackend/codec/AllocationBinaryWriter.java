@@ -0,0 +1,132 @@
+package com.octagone.daaprojbackend.codec;
+
+import com.octagone.daaprojbackend.models.CompactAllocation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Encodes a {@link CompactAllocation} in the binary allocation format.
+ *
+ * Layout, all multi-byte fixed width values big-endian:
+ * <pre>
+ * int     magic "WALC"
+ * byte    format version
+ * byte    flags (bit 0: ids are delta encoded)
+ * varint  zone count, varint connection count
+ * zone ids            zigzag varint delta to the previous zone id, or raw longs
+ * connections per zone varint
+ * connection ids      zigzag varint delta to the previous connection id, or raw longs
+ * amounts             raw IEEE 754 doubles
+ * </pre>
+ * Zone totals are not stored; {@link AllocationBinaryReader} derives them from
+ * the connection amounts.
+ */
+public final class AllocationBinaryWriter {
+
+    public static final String MEDIA_TYPE = "application/x-allocation-binary";
+
+    static final int MAGIC = 0x57414C43;
+    static final int VERSION = 1;
+    static final int FLAG_DELTA_IDS = 1;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position;
+
+    private AllocationBinaryWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public static byte[] encode(CompactAllocation allocation, boolean deltaIds) {
+        // Delta encoded ids mostly fit in one or two bytes
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + allocation.getZoneCount() * 4
+                + allocation.getConnectionCount() * (deltaIds ? 11 : 16));
+        try {
+            write(allocation, out, deltaIds);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static void write(CompactAllocation allocation, OutputStream out, boolean deltaIds) throws IOException {
+        AllocationBinaryWriter writer = new AllocationBinaryWriter(out);
+        writer.writeAllocation(allocation, deltaIds);
+        writer.flush();
+    }
+
+    private void writeAllocation(CompactAllocation allocation, boolean deltaIds) throws IOException {
+        int zoneCount = allocation.getZoneCount();
+        int connectionCount = allocation.getConnectionCount();
+        writeFixed(MAGIC, 4);
+        writeByte(VERSION);
+        writeByte(deltaIds ? FLAG_DELTA_IDS : 0);
+        writeVarLong(zoneCount);
+        writeVarLong(connectionCount);
+
+        writeIds(allocation.getZoneIds(), zoneCount, deltaIds);
+        int[] zoneOffsets = allocation.getZoneOffsets();
+        for (int z = 0; z < zoneCount; z++) {
+            writeVarLong(zoneOffsets[z + 1] - zoneOffsets[z]);
+        }
+        writeIds(allocation.getConnectionIds(), connectionCount, deltaIds);
+        double[] amounts = allocation.getAmounts();
+        for (int i = 0; i < connectionCount; i++) {
+            writeFixed(Double.doubleToRawLongBits(amounts[i]), 8);
+        }
+    }
+
+    private void writeIds(long[] ids, int count, boolean deltaIds) throws IOException {
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            if (deltaIds) {
+                long delta = ids[i] - previous;
+                writeVarLong((delta << 1) ^ (delta >> 63));
+                previous = ids[i];
+            } else {
+                writeFixed(ids[i], 8);
+            }
+        }
+    }
+
+    private void writeByte(int value) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeFixed(long value, int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            flushBuffer();
+        }
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    // Unsigned LEB128
+    private void writeVarLong(long value) throws IOException {
+        if (position + 10 > buffer.length) {
+            flushBuffer();
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+}
@@ -0,0 +1,236 @@
+package com.octagone.daaprojbackend.codec;
+
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A compiled network and optionally an allocation of it, stored as a file of
+ * raw little-endian arrays that are copied in and out through memory-mapped
+ * windows of a {@link FileChannel}.
+ *
+ * Layout: a 64 byte header (magic "WNET", format version, network version and
+ * the array lengths), then the arrays of {@link CompiledNetwork} in compiled
+ * form and, if present, the columns of the {@link CompactAllocation}. Every
+ * array starts on an 8 byte boundary. Reading needs no parsing and no id
+ * resolution, so even large networks load in about the time it takes to
+ * copy the file into memory.
+ */
+public final class NetworkArchive {
+
+    private static final int MAGIC = 0x574E4554;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    // Largest region mapped at once, well below the 2 GB limit of a MappedByteBuffer
+    private static final int WINDOW = 1 << 30;
+
+    private final CompiledNetwork network;
+    private final CompactAllocation allocation;
+
+    public NetworkArchive(CompiledNetwork network, CompactAllocation allocation) {
+        this.network = network;
+        this.allocation = allocation;
+    }
+
+    public CompiledNetwork getNetwork() {
+        return network;
+    }
+
+    // Null if the archive holds only the network
+    public CompactAllocation getAllocation() {
+        return allocation;
+    }
+
+    /**
+     * Writes the archive to a temporary file next to {@code file} and moves it
+     * into place, so readers never see a partially written archive.
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Sections out = new Sections(channel, FileChannel.MapMode.READ_WRITE);
+                writeHeader(out);
+                out.putLongs(network.getSourceIds());
+                out.putDoubles(network.getCapacity());
+                out.putLongs(network.getZoneIds());
+                out.putDoubles(network.getDemand());
+                out.putInts(network.getPriority());
+                out.putLongs(network.getConnectionIds());
+                out.putInts(network.getConnSrc());
+                out.putInts(network.getConnZone());
+                out.putDoubles(network.getCost());
+                if (allocation != null) {
+                    out.putLongs(allocation.getZoneIds());
+                    out.putInts(allocation.getZoneOffsets());
+                    out.putLongs(allocation.getConnectionIds());
+                    out.putDoubles(allocation.getAmounts());
+                }
+                channel.force(false);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static NetworkArchive read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IllegalArgumentException("Not a network archive: " + file);
+            }
+            Sections in = new Sections(channel, FileChannel.MapMode.READ_ONLY);
+            ByteBuffer header = in.map(HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a network archive: " + file);
+            }
+            int formatVersion = header.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported network archive version: " + formatVersion);
+            }
+            long networkVersion = header.getLong();
+            int sourceCount = header.getInt();
+            int zoneCount = header.getInt();
+            int connectionCount = header.getInt();
+            int allocationZones = header.getInt();
+            int allocationConnections = header.getInt();
+            if (sourceCount < 0 || zoneCount < 0 || connectionCount < 0 || allocationZones < -1
+                    || allocationConnections < 0
+                    || in.size(sourceCount, zoneCount, connectionCount, allocationZones, allocationConnections)
+                    != channel.size()) {
+                throw new IllegalArgumentException("Corrupt network archive: " + file);
+            }
+
+            CompiledNetwork network = CompiledNetwork.fromArrays(networkVersion,
+                    in.getLongs(sourceCount), in.getDoubles(sourceCount),
+                    in.getLongs(zoneCount), in.getDoubles(zoneCount), in.getInts(zoneCount),
+                    in.getLongs(connectionCount), in.getInts(connectionCount), in.getInts(connectionCount),
+                    in.getDoubles(connectionCount));
+            CompactAllocation allocation = null;
+            if (allocationZones >= 0) {
+                allocation = new CompactAllocation(in.getLongs(allocationZones), in.getInts(allocationZones + 1),
+                        in.getLongs(allocationConnections), in.getDoubles(allocationConnections));
+            }
+            return new NetworkArchive(network, allocation);
+        }
+    }
+
+    private void writeHeader(Sections out) throws IOException {
+        int allocationZones = allocation == null ? -1 : allocation.getZoneCount();
+        int allocationConnections = allocation == null ? 0 : allocation.getConnectionCount();
+        // Sizing the file up front lets every section be mapped in place
+        long size = out.size(network.getSourceCount(), network.getZoneCount(), network.getConnectionCount(),
+                allocationZones, allocationConnections);
+        out.channel.write(ByteBuffer.allocate(1), size - 1);
+        ByteBuffer header = out.map(HEADER_SIZE);
+        header.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(network.getVersion())
+                .putInt(network.getSourceCount())
+                .putInt(network.getZoneCount())
+                .putInt(network.getConnectionCount())
+                .putInt(allocationZones)
+                .putInt(allocationConnections);
+    }
+
+    /**
+     * Sequential access to the file's sections through mapped windows.
+     */
+    private static final class Sections {
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private long position;
+
+        Sections(FileChannel channel, FileChannel.MapMode mode) {
+            this.channel = channel;
+            this.mode = mode;
+        }
+
+        // Total file size for the given array lengths; allocationZones is -1 without an allocation
+        long size(int sources, int zones, int connections, int allocationZones, int allocationConnections) {
+            long size = HEADER_SIZE + 16L * sources + 16L * zones + align(4L * zones) + 16L * connections
+                    + 2 * align(4L * connections) + 8L * connections;
+            if (allocationZones >= 0) {
+                size += 8L * allocationZones + align(4L * (allocationZones + 1)) + 16L * allocationConnections;
+            }
+            return size;
+        }
+
+        ByteBuffer map(long bytes) throws IOException {
+            ByteBuffer buffer = channel.map(mode, position, bytes).order(ByteOrder.LITTLE_ENDIAN);
+            position += bytes;
+            return buffer;
+        }
+
+        void putLongs(long[] values) throws IOException {
+            for (int from = 0; from < values.length; ) {
+                int count = Math.min(values.length - from, WINDOW / Long.BYTES);
+                map((long) count * Long.BYTES).asLongBuffer().put(values, from, count);
+                from += count;
+            }
+        }
+
+        void putDoubles(double[] values) throws IOException {
+            for (int from = 0; from < values.length; ) {
+                int count = Math.min(values.length - from, WINDOW / Double.BYTES);
+                map((long) count * Double.BYTES).asDoubleBuffer().put(values, from, count);
+                from += count;
+            }
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int from = 0; from < values.length; ) {
+                int count = Math.min(values.length - from, WINDOW / Integer.BYTES);
+                map((long) count * Integer.BYTES).asIntBuffer().put(values, from, count);
+                from += count;
+            }
+            position = align(position);
+        }
+
+        long[] getLongs(int length) throws IOException {
+            long[] values = new long[length];
+            for (int from = 0; from < length; ) {
+                int count = Math.min(length - from, WINDOW / Long.BYTES);
+                map((long) count * Long.BYTES).asLongBuffer().get(values, from, count);
+                from += count;
+            }
+            return values;
+        }
+
+        double[] getDoubles(int length) throws IOException {
+            double[] values = new double[length];
+            for (int from = 0; from < length; ) {
+                int count = Math.min(length - from, WINDOW / Double.BYTES);
+                map((long) count * Double.BYTES).asDoubleBuffer().get(values, from, count);
+                from += count;
+            }
+            return values;
+        }
+
+        int[] getInts(int length) throws IOException {
+            int[] values = new int[length];
+            for (int from = 0; from < length; ) {
+                int count = Math.min(length - from, WINDOW / Integer.BYTES);
+                map((long) count * Integer.BYTES).asIntBuffer().get(values, from, count);
+                from += count;
+            }
+            position = align(position);
+            return values;
+        }
+
+        private static long align(long offset) {
+            return (offset + 7) & ~7L;
+        }
+    }
+}
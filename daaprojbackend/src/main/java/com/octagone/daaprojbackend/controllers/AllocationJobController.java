@@ -0,0 +1,91 @@
+package com.octagone.daaprojbackend.controllers;
+
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+import com.octagone.daaprojbackend.services.AllocationJob;
+import com.octagone.daaprojbackend.services.AllocationJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+// Asynchronous allocations: submit a job, poll its status and partial results, or cancel it
+@RestController
+public class AllocationJobController {
+
+    @Autowired
+    private AllocationJobService allocationJobService;
+
+    @PostMapping("/allocation-jobs")
+    public ResponseEntity<AllocationJob> submitJob(
+            @RequestParam(name = "strategy", required = false) String strategy) {
+        try {
+            AllocationJob job = allocationJobService.submit(strategy);
+            return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/allocation-jobs/" + job.getId())
+                    .body(job);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (RejectedExecutionException e) {
+            // Back-pressure: the job queue is full, the client should retry later
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Allocation job queue is full", e);
+        }
+    }
+
+    @GetMapping("/allocation-jobs")
+    public ResponseEntity<Map<String, Object>> getJobs() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("running", allocationJobService.getRunningCount());
+        body.put("queued", allocationJobService.getQueuedCount());
+        body.put("jobs", allocationJobService.getJobs());
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    @GetMapping("/allocation-jobs/{id}")
+    public ResponseEntity<AllocationJob> getJob(@PathVariable("id") String id) {
+        return new ResponseEntity<>(findJob(id), HttpStatus.OK);
+    }
+
+    // Zones allocated so far; poll with an increasing offset while the job runs
+    @GetMapping("/allocation-jobs/{id}/allocations")
+    public ResponseEntity<List<ZoneAllocation>> getJobAllocations(
+            @PathVariable("id") String id,
+            @RequestParam(name = "offset", defaultValue = "0") int offset,
+            @RequestParam(name = "limit", defaultValue = "10000") int limit) {
+        return new ResponseEntity<>(findJob(id).allocations(offset, limit), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/allocation-jobs/{id}")
+    public ResponseEntity<AllocationJob> cancelJob(@PathVariable("id") String id) {
+        AllocationJob job = allocationJobService.cancel(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown allocation job: " + id);
+        }
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
+
+    private AllocationJob findJob(String id) {
+        AllocationJob job = allocationJobService.getJob(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown allocation job: " + id);
+        }
+        return job;
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException e) {
+        return new ResponseEntity<>(e.getReason(), e.getStatusCode());
+    }
+}
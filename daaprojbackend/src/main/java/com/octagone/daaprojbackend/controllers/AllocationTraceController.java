@@ -0,0 +1,66 @@
+package com.octagone.daaprojbackend.controllers;
+
+import com.octagone.daaprojbackend.metrics.AllocationTracer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+// Traces of allocation decisions: the ring buffer of the last run, and JFR recordings of the allocation events
+@RestController
+public class AllocationTraceController {
+
+    @Autowired
+    private AllocationTracer allocationTracer;
+
+    @GetMapping("/allocation-trace")
+    public ResponseEntity<AllocationTracer.Snapshot> getTrace(
+            @RequestParam(name = "limit", defaultValue = "1000") int limit) {
+        try {
+            return new ResponseEntity<>(allocationTracer.snapshot(limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/allocation-trace/recording")
+    public ResponseEntity<String> startRecording() {
+        try {
+            allocationTracer.startRecording();
+            return new ResponseEntity<>("Allocation recording started", HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    // Stops the recording and downloads it, for JDK Mission Control or the jfr tool
+    @DeleteMapping("/allocation-trace/recording")
+    public ResponseEntity<byte[]> stopRecording() throws IOException {
+        try {
+            byte[] recording = allocationTracer.stopRecording();
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"allocation-trace.jfr\"")
+                    .body(recording);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException e) {
+        return new ResponseEntity<>(e.getReason(), e.getStatusCode());
+    }
+}
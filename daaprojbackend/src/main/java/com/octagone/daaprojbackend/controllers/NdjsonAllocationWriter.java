@@ -0,0 +1,59 @@
+package com.octagone.daaprojbackend.controllers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.octagone.daaprojbackend.services.AllocationSink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes each zone as one line of newline delimited JSON, in the same shape
+ * as a {@code ZoneAllocation} in the regular response.
+ */
+class NdjsonAllocationWriter implements AllocationSink, Closeable {
+
+    // Zones per flush, so clients see rows early without a flush per line
+    private static final int FLUSH_EVERY = 256;
+
+    private final JsonGenerator generator;
+    private int unflushed;
+
+    NdjsonAllocationWriter(JsonFactory factory, OutputStream out) throws IOException {
+        generator = factory.createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void zone(long zoneId, double amount, long[] connectionIds, double[] amounts, int count) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("zoneId", zoneId);
+            generator.writeNumberField("amount", amount);
+            generator.writeArrayFieldStart("connectionAllocations");
+            for (int i = 0; i < count; i++) {
+                generator.writeStartObject();
+                generator.writeNumberField("connectionId", connectionIds[i]);
+                generator.writeNumberField("amount", amounts[i]);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            if (++unflushed == FLUSH_EVERY) {
+                generator.flush();
+                unflushed = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
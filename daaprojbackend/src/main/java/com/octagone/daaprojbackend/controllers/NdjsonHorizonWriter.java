@@ -0,0 +1,49 @@
+package com.octagone.daaprojbackend.controllers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.octagone.daaprojbackend.models.HorizonResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes each period of a horizon as one line of newline delimited JSON, in
+ * the same shape as a period of the regular horizon response.
+ */
+class NdjsonHorizonWriter implements Consumer<HorizonResponse.Period>, Closeable {
+
+    // Periods per flush, a day of hourly periods
+    private static final int FLUSH_EVERY = 24;
+
+    private final JsonGenerator generator;
+    private int unflushed;
+
+    NdjsonHorizonWriter(JsonFactory factory, OutputStream out) throws IOException {
+        generator = factory.createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void accept(HorizonResponse.Period period) {
+        try {
+            generator.writeObject(period);
+            generator.writeRaw('\n');
+            if (++unflushed == FLUSH_EVERY) {
+                generator.flush();
+                unflushed = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,71 @@
+package com.octagone.daaprojbackend.controllers;
+
+import com.octagone.daaprojbackend.codec.NetworkArchive;
+import com.octagone.daaprojbackend.services.NetworkArchiveService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Network archives on the server: export the current network and allocation, or serve an archived network
+@RestController
+public class NetworkArchiveController {
+
+    @Autowired
+    private NetworkArchiveService networkArchiveService;
+
+    @GetMapping("/network/archives")
+    public ResponseEntity<List<String>> listArchives() throws IOException {
+        return new ResponseEntity<>(networkArchiveService.list(), HttpStatus.OK);
+    }
+
+    @PostMapping("/network/archives/{name}")
+    public ResponseEntity<Map<String, Object>> exportArchive(
+            @PathVariable("name") String name,
+            @RequestParam(name = "strategy", required = false) String strategy) throws IOException {
+        try {
+            return new ResponseEntity<>(summary(name, networkArchiveService.export(name, strategy)), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/network/archives/{name}/load")
+    public ResponseEntity<Map<String, Object>> loadArchive(@PathVariable("name") String name) throws IOException {
+        try {
+            return new ResponseEntity<>(summary(name, networkArchiveService.load(name)), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (NoSuchFileException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown archive: " + name, e);
+        }
+    }
+
+    private static Map<String, Object> summary(String name, NetworkArchive archive) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("name", name);
+        body.put("version", archive.getNetwork().getVersion());
+        body.put("sources", archive.getNetwork().getSourceCount());
+        body.put("zones", archive.getNetwork().getZoneCount());
+        body.put("connections", archive.getNetwork().getConnectionCount());
+        body.put("allocatedZones", archive.getAllocation() == null ? 0 : archive.getAllocation().getZoneCount());
+        return body;
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException e) {
+        return new ResponseEntity<>(e.getReason(), e.getStatusCode());
+    }
+}
@@ -0,0 +1,65 @@
+package com.octagone.daaprojbackend.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.octagone.daaprojbackend.services.NetworkImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+// Whole network uploads, read straight from the request body instead of one REST call per entity
+@RestController
+public class NetworkImportController {
+
+    // Spring has no constant for it
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    @Autowired
+    private NetworkImportService networkImportService;
+
+    @PostMapping(value = "/network/import", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<NetworkImportService.Result> importCsv(
+            InputStream body,
+            @RequestParam(name = "replace", defaultValue = "false") boolean replace) throws IOException {
+        try {
+            return new ResponseEntity<>(networkImportService.importCsv(
+                    new InputStreamReader(body, StandardCharsets.UTF_8), replace), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping(value = "/network/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<NetworkImportService.Result> importNdjson(
+            InputStream body,
+            @RequestParam(name = "replace", defaultValue = "false") boolean replace) throws IOException {
+        try {
+            return new ResponseEntity<>(networkImportService.importNdjson(body, replace), HttpStatus.OK);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // E.g. a connection between a source and zone that are already connected
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<String> handleDataIntegrityViolation(DataIntegrityViolationException e) {
+        return new ResponseEntity<>("Import rejected by the database: " + e.getMostSpecificCause().getMessage(),
+                HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException e) {
+        return new ResponseEntity<>(e.getReason(), e.getStatusCode());
+    }
+}
@@ -1,14 +1,35 @@
 package com.octagone.daaprojbackend.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.octagone.daaprojbackend.codec.AllocationBinaryWriter;
 import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.HorizonRequest;
+import com.octagone.daaprojbackend.models.HorizonResponse;
+import com.octagone.daaprojbackend.models.ScenarioRequest;
+import com.octagone.daaprojbackend.models.ScenarioResponse;
+import com.octagone.daaprojbackend.services.AllocationResultCache;
+import com.octagone.daaprojbackend.services.AllocationStrategy;
+import com.octagone.daaprojbackend.services.HorizonAllocationService;
+import com.octagone.daaprojbackend.services.IncrementalAllocationService;
+import com.octagone.daaprojbackend.services.ScenarioAnalysisService;
 import com.octagone.daaprojbackend.services.WaterAllocationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @RestController
 public class WaterManagementController {
@@ -16,11 +37,54 @@ public class WaterManagementController {
     @Autowired
     private WaterAllocationService waterAllocationService;
 
+    @Autowired
+    private IncrementalAllocationService incrementalAllocationService;
+
+    @Autowired
+    private HorizonAllocationService horizonAllocationService;
+
+    @Autowired
+    private ScenarioAnalysisService scenarioAnalysisService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/allocate-water")
-    public ResponseEntity<AllocationResponse> allocateWater() {
+    public ResponseEntity<byte[]> allocateWater(
+            @RequestParam(name = "strategy", required = false) String strategy,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cachedAllocation(strategy, WaterAllocationService.FORMAT_JSON, MediaType.APPLICATION_JSON, ifNoneMatch);
+    }
+
+    // Same allocation in the columnar binary format, selected with Accept: application/x-allocation-binary
+    @GetMapping(value = "/allocate-water", produces = AllocationBinaryWriter.MEDIA_TYPE)
+    public ResponseEntity<byte[]> allocateWaterBinary(
+            @RequestParam(name = "strategy", required = false) String strategy,
+            @RequestParam(name = "deltaIds", defaultValue = "true") boolean deltaIds,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String format = deltaIds ? WaterAllocationService.FORMAT_BINARY : WaterAllocationService.FORMAT_BINARY_RAW;
+        return cachedAllocation(strategy, format, MediaType.parseMediaType(AllocationBinaryWriter.MEDIA_TYPE), ifNoneMatch);
+    }
+
+    // Serialized result from the result cache; a matching If-None-Match gets a 304 without allocating
+    private ResponseEntity<byte[]> cachedAllocation(String strategy, String format, MediaType contentType,
+                                                    String ifNoneMatch) {
         try {
-            AllocationResponse allocationResponse = waterAllocationService.allocateWater();
-            return new ResponseEntity<>(allocationResponse, HttpStatus.OK);
+            if (ifNoneMatch != null) {
+                String eTag = waterAllocationService.resultETag(strategy, format);
+                if (eTagMatches(ifNoneMatch, eTag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                            .eTag(eTag)
+                            .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                            .build();
+                }
+            }
+            AllocationResultCache.Entry result = waterAllocationService.allocateSerialized(strategy, format);
+            return ResponseEntity.ok()
+                    .contentType(contentType)
+                    .eTag(result.getETag())
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                    .body(result.getBody());
         } catch (IllegalArgumentException e) {
             // Handle specific error like missing or invalid data
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
@@ -30,6 +94,104 @@ public class WaterManagementController {
         }
     }
 
+    // If-None-Match holds "*" or a comma separated list of, possibly weak, ETags
+    private static boolean eTagMatches(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Same allocation as newline delimited JSON, one zone per line, written as zones are finalized
+    @GetMapping(value = "/allocate-water/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllocation(
+            @RequestParam(name = "strategy", required = false) String strategy) {
+        AllocationStrategy selected;
+        try {
+            selected = waterAllocationService.resolveStrategy(strategy);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        // Errors after the first line can only end the stream early, the status is already sent
+        StreamingResponseBody body = out -> {
+            try (NdjsonAllocationWriter writer = new NdjsonAllocationWriter(objectMapper.getFactory(), out)) {
+                waterAllocationService.allocateWater(selected, writer);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Allocation plan for consecutive periods with per-period capacity and demand profiles, totals unless details are requested
+    @PostMapping("/allocate-water/horizon")
+    public ResponseEntity<HorizonResponse> allocateHorizon(@RequestBody HorizonRequest request) {
+        try {
+            return new ResponseEntity<>(horizonAllocationService.allocate(request), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // Same plan as newline delimited JSON, one period with its zone allocations per line, for horizons too large for one body
+    @PostMapping(value = "/allocate-water/horizon/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamHorizon(@RequestBody HorizonRequest request) {
+        HorizonAllocationService.Horizon horizon;
+        try {
+            horizon = horizonAllocationService.prepare(request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        StreamingResponseBody body = out -> {
+            try (NdjsonHorizonWriter writer = new NdjsonHorizonWriter(objectMapper.getFactory(), out)) {
+                horizonAllocationService.allocate(horizon, writer);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Distributions over a batch of perturbed scenarios, e.g. demand variation and source outages
+    @PostMapping("/allocate-water/scenarios")
+    public ResponseEntity<ScenarioResponse> evaluateScenarios(@RequestBody ScenarioRequest request) {
+        try {
+            return new ResponseEntity<>(scenarioAnalysisService.evaluate(request), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    // Allocation kept up to date by incremental repairs after each edit
+    @GetMapping("/allocate-water/incremental")
+    public ResponseEntity<AllocationResponse> getIncrementalAllocation() {
+        return new ResponseEntity<>(incrementalAllocationService.current(), HttpStatus.OK);
+    }
+
+    // Zones changed by the most recent edit
+    @GetMapping("/allocate-water/delta")
+    public ResponseEntity<AllocationResponse> getAllocationDelta() {
+        return new ResponseEntity<>(incrementalAllocationService.getLastDelta(), HttpStatus.OK);
+    }
+
+    // Registered strategies, their latency per network size and the metrics of their last allocation
+    @GetMapping("/allocate-water/strategies")
+    public ResponseEntity<Map<String, Object>> getStrategies() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("strategies", waterAllocationService.getStrategyNames());
+        body.put("latency", waterAllocationService.getLatencyStats());
+        body.put("metrics", waterAllocationService.getLastMetrics());
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    // Keep the status of errors raised by the handlers above, e.g. 400 for an unknown strategy
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusException(ResponseStatusException e) {
+        return new ResponseEntity<>(e.getReason(), e.getStatusCode());
+    }
+
     // Global exception handler for unexpected errors
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleException(Exception e) {
@@ -0,0 +1,39 @@
+package com.octagone.daaprojbackend.generator;
+
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+
+/**
+ * Feeds rows straight into a {@link CompiledNetwork.Builder}, so a generated
+ * network never exists as entity objects.
+ */
+public class CompiledNetworkSink implements NetworkSink {
+
+    private final CompiledNetwork.Builder builder;
+
+    public CompiledNetworkSink() {
+        this(new CompiledNetwork.Builder());
+    }
+
+    public CompiledNetworkSink(CompiledNetwork.Builder builder) {
+        this.builder = builder;
+    }
+
+    @Override
+    public void source(long id, double capacity) {
+        builder.addSource(id, capacity);
+    }
+
+    @Override
+    public void zone(long id, double demand, int priority) {
+        builder.addZone(id, demand, priority);
+    }
+
+    @Override
+    public void connection(long id, long sourceId, long zoneId, double costPerUnit) {
+        builder.addConnection(id, sourceId, zoneId, costPerUnit);
+    }
+
+    public CompiledNetwork build(long version) {
+        return builder.build(version);
+    }
+}
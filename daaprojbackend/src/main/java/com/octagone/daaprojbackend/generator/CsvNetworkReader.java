@@ -0,0 +1,76 @@
+package com.octagone.daaprojbackend.generator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the CSV written by {@link CsvNetworkWriter} into a {@link NetworkSink}.
+ * Blank lines and lines starting with {@code #} are skipped. Ids are the
+ * file's own keys; connections refer to sources and zones by these keys.
+ */
+public final class CsvNetworkReader {
+
+    private CsvNetworkReader() {
+    }
+
+    public static void read(Reader reader, NetworkSink sink) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+        String[] fields = new String[5];
+        String line;
+        long lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            int count = split(line, fields);
+            try {
+                switch (fields[0]) {
+                    case "S" -> {
+                        expect(count, 3);
+                        sink.source(Long.parseLong(fields[1]), Double.parseDouble(fields[2]));
+                    }
+                    case "Z" -> {
+                        expect(count, 4);
+                        sink.zone(Long.parseLong(fields[1]), Double.parseDouble(fields[2]), Integer.parseInt(fields[3]));
+                    }
+                    case "C" -> {
+                        expect(count, 5);
+                        sink.connection(Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                                Double.parseDouble(fields[4]));
+                    }
+                    default -> throw new IllegalArgumentException("unknown row type '" + fields[0] + "'");
+                }
+            } catch (IllegalArgumentException e) {
+                // Also covers NumberFormatException
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // Splits on commas without allocating an array per line; returns the field count
+    private static int split(String line, String[] fields) {
+        int count = 0;
+        int start = 0;
+        while (true) {
+            int comma = line.indexOf(',', start);
+            String field = (comma < 0 ? line.substring(start) : line.substring(start, comma)).trim();
+            if (count < fields.length) {
+                fields[count] = field;
+            }
+            count++;
+            if (comma < 0) {
+                return count;
+            }
+            start = comma + 1;
+        }
+    }
+
+    private static void expect(int count, int expected) {
+        if (count != expected) {
+            throw new IllegalArgumentException("expected " + expected + " fields but found " + count);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.octagone.daaprojbackend.generator;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes a network as CSV, one row per line:
+ * <pre>
+ * S,&lt;id&gt;,&lt;capacity&gt;
+ * Z,&lt;id&gt;,&lt;demand&gt;,&lt;priority&gt;
+ * C,&lt;id&gt;,&lt;sourceId&gt;,&lt;zoneId&gt;,&lt;costPerUnit&gt;
+ * </pre>
+ */
+public class CsvNetworkWriter implements NetworkSink, Closeable {
+
+    private final Writer writer;
+
+    public CsvNetworkWriter(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, 1 << 16);
+    }
+
+    @Override
+    public void source(long id, double capacity) {
+        write("S," + id + ',' + capacity + '\n');
+    }
+
+    @Override
+    public void zone(long id, double demand, int priority) {
+        write("Z," + id + ',' + demand + ',' + priority + '\n');
+    }
+
+    @Override
+    public void connection(long id, long sourceId, long zoneId, double costPerUnit) {
+        write("C," + id + ',' + sourceId + ',' + zoneId + ',' + costPerUnit + '\n');
+    }
+
+    private void write(String line) {
+        try {
+            writer.write(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,59 @@
+package com.octagone.daaprojbackend.generator;
+
+import com.octagone.daaprojbackend.models.Connection;
+import com.octagone.daaprojbackend.models.Source;
+import com.octagone.daaprojbackend.models.Zone;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects a generated network as entities, for the object based engine and
+ * for persisting through the repositories. Meant for small and medium networks.
+ */
+public class EntityNetworkSink implements NetworkSink {
+
+    private final List<Source> sources = new ArrayList<>();
+    private final List<Zone> zones = new ArrayList<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private final Map<Long, Source> sourcesById = new HashMap<>();
+    private final Map<Long, Zone> zonesById = new HashMap<>();
+
+    @Override
+    public void source(long id, double capacity) {
+        Source source = new Source(id, capacity);
+        sources.add(source);
+        sourcesById.put(id, source);
+    }
+
+    @Override
+    public void zone(long id, double demand, int priority) {
+        Zone zone = new Zone(id, demand, priority);
+        zones.add(zone);
+        zonesById.put(id, zone);
+    }
+
+    @Override
+    public void connection(long id, long sourceId, long zoneId, double costPerUnit) {
+        Source source = sourcesById.get(sourceId);
+        Zone zone = zonesById.get(zoneId);
+        if (source == null || zone == null) {
+            throw new IllegalArgumentException("Connection references unknown id");
+        }
+        connections.add(new Connection(id, source, zone, costPerUnit));
+    }
+
+    public List<Source> getSources() {
+        return sources;
+    }
+
+    public List<Zone> getZones() {
+        return zones;
+    }
+
+    public List<Connection> getConnections() {
+        return connections;
+    }
+}
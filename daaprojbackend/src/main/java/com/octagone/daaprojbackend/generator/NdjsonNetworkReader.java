@@ -0,0 +1,89 @@
+package com.octagone.daaprojbackend.generator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a network from newline delimited JSON into a {@link NetworkSink}, one
+ * object per line, using the field names of the REST resources:
+ * <pre>
+ * {"type":"source","id":1,"capacity":500.0}
+ * {"type":"zone","id":1,"demand":40.0,"priority":3}
+ * {"type":"connection","id":1,"sourceId":1,"zoneId":1,"costPerUnit":2.5}
+ * </pre>
+ * Objects are read token by token, so no tree or object is built per line.
+ */
+public final class NdjsonNetworkReader {
+
+    private NdjsonNetworkReader() {
+    }
+
+    public static void read(JsonFactory factory, InputStream in, NetworkSink sink) throws IOException {
+        try (JsonParser parser = factory.createParser(in)) {
+            long record = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                record++;
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("Record " + record + ": expected a JSON object");
+                }
+                try {
+                    readRecord(parser, sink);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Record " + record + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static void readRecord(JsonParser parser, NetworkSink sink) throws IOException {
+        String type = null;
+        Long id = null;
+        Long sourceId = null;
+        Long zoneId = null;
+        double amount = Double.NaN;
+        Integer priority = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "type" -> type = parser.getText();
+                case "id" -> id = parser.getLongValue();
+                case "sourceId" -> sourceId = parser.getLongValue();
+                case "zoneId" -> zoneId = parser.getLongValue();
+                case "capacity", "demand", "costPerUnit" -> amount = parser.getDoubleValue();
+                case "priority" -> priority = parser.getIntValue();
+                default -> {
+                    // Unknown fields, e.g. links of an exported resource, are ignored
+                    if (value.isStructStart()) {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        if (type == null || id == null || Double.isNaN(amount)) {
+            throw new IllegalArgumentException("type, id and an amount are required");
+        }
+        switch (type) {
+            case "source" -> sink.source(id, amount);
+            case "zone" -> {
+                // A missing priority must not silently become a zone nothing is ever allocated to
+                if (priority == null) {
+                    throw new IllegalArgumentException("zone " + id + " needs a priority");
+                }
+                sink.zone(id, amount, priority);
+            }
+            case "connection" -> {
+                if (sourceId == null || zoneId == null) {
+                    throw new IllegalArgumentException("connection " + id + " needs sourceId and zoneId");
+                }
+                sink.connection(id, sourceId, zoneId, amount);
+            }
+            default -> throw new IllegalArgumentException("unknown type '" + type + "'");
+        }
+    }
+}
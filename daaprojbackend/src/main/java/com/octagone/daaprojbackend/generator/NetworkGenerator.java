@@ -0,0 +1,303 @@
+package com.octagone.daaprojbackend.generator;
+
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+
+import java.util.Random;
+
+/**
+ * Seeded generator of synthetic water networks with a geographic layout.
+ *
+ * Sources and zones are scattered around cluster centres on a unit square.
+ * Every zone is connected to its nearest sources, found through a k-d tree
+ * over the source positions, at a cost that grows with distance. Zones
+ * are never held in memory: they are drawn from their own random stream twice,
+ * once to size the source capacities and once to emit them, so memory stays
+ * proportional to the number of sources even for networks with millions of
+ * connections. The same configuration always produces the same network.
+ */
+public class NetworkGenerator {
+
+    private static final long ZONE_STREAM = 0x5DEECE66DL;
+    private static final long COST_STREAM = 0x9E3779B97F4A7C15L;
+
+    private final NetworkGeneratorConfig config;
+
+    public NetworkGenerator(NetworkGeneratorConfig config) {
+        config.validate();
+        this.config = config;
+    }
+
+    /**
+     * Generates the network straight into a {@link CompiledNetwork} with version 0.
+     */
+    public CompiledNetwork generateNetwork() {
+        long connections = config.expectedConnections();
+        if (connections > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Network too large: " + connections + " connections");
+        }
+        CompiledNetworkSink sink = new CompiledNetworkSink(
+                new CompiledNetwork.Builder(config.getSources(), config.getZones(), (int) connections));
+        generate(sink);
+        return sink.build(0);
+    }
+
+    public void generate(NetworkSink sink) {
+        int sourceCount = config.getSources();
+        int zoneCount = config.getZones();
+        int clusters = config.getClusters();
+        Random layout = new Random(config.getSeed());
+
+        double[] centreX = new double[clusters];
+        double[] centreY = new double[clusters];
+        for (int k = 0; k < clusters; k++) {
+            centreX[k] = 0.1 + 0.8 * layout.nextDouble();
+            centreY[k] = 0.1 + 0.8 * layout.nextDouble();
+        }
+
+        // Sources are spread evenly over the clusters so every cluster has at least one when possible
+        double[] sourceX = new double[sourceCount];
+        double[] sourceY = new double[sourceCount];
+        for (int s = 0; s < sourceCount; s++) {
+            int k = s % clusters;
+            sourceX[s] = scatter(centreX[k], layout);
+            sourceY[s] = scatter(centreY[k], layout);
+        }
+        SourceIndex index = new SourceIndex(sourceX, sourceY);
+
+        // First pass over the zones: demand served by each source as the zone's nearest source
+        double[] homeDemand = new double[sourceCount];
+        double totalDemand = 0;
+        ZoneStream zones = new ZoneStream(centreX, centreY);
+        int[] nearest = new int[1];
+        double[] nearestDistance = new double[1];
+        for (int z = 0; z < zoneCount; z++) {
+            zones.next();
+            index.nearest(zones.x, zones.y, 1, nearest, nearestDistance);
+            homeDemand[nearest[0]] += zones.demand;
+            totalDemand += zones.demand;
+        }
+
+        double meanDemand = totalDemand / zoneCount;
+        double[] capacity = new double[sourceCount];
+        if (config.getMode() == NetworkGeneratorConfig.Mode.FEASIBLE) {
+            // Each source covers its own zones, so routing every zone to its nearest source is a solution
+            for (int s = 0; s < sourceCount; s++) {
+                capacity[s] = homeDemand[s] * (1 + config.getSlack())
+                        + meanDemand * config.getSlack() * layout.nextDouble();
+            }
+        } else {
+            double totalCapacity = totalDemand / config.getOversubscription();
+            double totalWeight = 0;
+            for (int s = 0; s < sourceCount; s++) {
+                capacity[s] = (homeDemand[s] + meanDemand) * (0.75 + 0.5 * layout.nextDouble());
+                totalWeight += capacity[s];
+            }
+            for (int s = 0; s < sourceCount; s++) {
+                capacity[s] *= totalCapacity / totalWeight;
+            }
+        }
+        for (int s = 0; s < sourceCount; s++) {
+            sink.source(s + 1, capacity[s]);
+        }
+
+        // Second pass: emit every zone followed by its connections to the nearest sources
+        int perZone = Math.min(config.getConnectionsPerZone(), sourceCount);
+        int[] candidates = new int[perZone];
+        double[] distances = new double[perZone];
+        Random costs = new Random(config.getSeed() ^ COST_STREAM);
+        zones = new ZoneStream(centreX, centreY);
+        long connectionId = 1;
+        for (int z = 0; z < zoneCount; z++) {
+            zones.next();
+            long zoneId = z + 1;
+            sink.zone(zoneId, zones.demand, zones.priority);
+            int found = index.nearest(zones.x, zones.y, perZone, candidates, distances);
+            for (int i = 0; i < found; i++) {
+                double cost = (config.getBaseCost() + config.getCostPerDistance() * distances[i])
+                        * (0.9 + 0.2 * costs.nextDouble());
+                sink.connection(connectionId++, candidates[i] + 1, zoneId, cost);
+            }
+        }
+    }
+
+    private double scatter(double centre, Random random) {
+        return Math.min(1, Math.max(0, centre + random.nextGaussian() * config.getClusterSpread()));
+    }
+
+    /**
+     * Replays the zone attributes from a dedicated random stream.
+     */
+    private final class ZoneStream {
+        private final double[] centreX;
+        private final double[] centreY;
+        private final double[] cumulativeWeights;
+        private final Random random = new Random(config.getSeed() ^ ZONE_STREAM);
+
+        double x;
+        double y;
+        double demand;
+        int priority;
+
+        ZoneStream(double[] centreX, double[] centreY) {
+            this.centreX = centreX;
+            this.centreY = centreY;
+            double[] weights = config.getPriorityWeights();
+            cumulativeWeights = new double[weights.length];
+            double total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        void next() {
+            int k = random.nextInt(centreX.length);
+            x = scatter(centreX[k], random);
+            y = scatter(centreY[k], random);
+            demand = config.getMinDemand() + random.nextDouble() * (config.getMaxDemand() - config.getMinDemand());
+
+            double roll = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+            priority = 1;
+            while (priority < cumulativeWeights.length && roll >= cumulativeWeights[priority - 1]) {
+                priority++;
+            }
+        }
+    }
+
+    /**
+     * Implicit k-d tree over the source positions: {@code order} is arranged so
+     * that the median of every range splits it on alternating axes. Unlike a
+     * uniform grid it stays balanced when sources are tightly clustered.
+     */
+    private static final class SourceIndex {
+        private static final int LEAF_SIZE = 8;
+
+        private final double[] sourceX;
+        private final double[] sourceY;
+        private final int[] order;
+
+        // Query state, reused across calls
+        private double queryX;
+        private double queryY;
+        private int limit;
+        private int found;
+        private int[] result;
+        private double[] distance;
+
+        SourceIndex(double[] sourceX, double[] sourceY) {
+            this.sourceX = sourceX;
+            this.sourceY = sourceY;
+            order = new int[sourceX.length];
+            for (int s = 0; s < order.length; s++) {
+                order[s] = s;
+            }
+            build(0, order.length, 0);
+        }
+
+        private void build(int from, int to, int depth) {
+            if (to - from <= LEAF_SIZE) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            select(from, to - 1, mid, depth & 1);
+            build(from, mid, depth + 1);
+            build(mid + 1, to, depth + 1);
+        }
+
+        private double coordinate(int s, int axis) {
+            return axis == 0 ? sourceX[s] : sourceY[s];
+        }
+
+        // Quickselect: afterwards order[k] holds the k-th smallest coordinate of [left, right]
+        private void select(int left, int right, int k, int axis) {
+            while (left < right) {
+                double pivot = coordinate(order[(left + right) >>> 1], axis);
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (coordinate(order[i], axis) < pivot) {
+                        i++;
+                    }
+                    while (coordinate(order[j], axis) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int tmp = order[i];
+                        order[i] = order[j];
+                        order[j] = tmp;
+                        i++;
+                        j--;
+                    }
+                }
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Finds the {@code k} sources closest to (x, y), nearest first.
+         */
+        int nearest(double x, double y, int k, int[] result, double[] distance) {
+            queryX = x;
+            queryY = y;
+            limit = k;
+            found = 0;
+            this.result = result;
+            this.distance = distance;
+            search(0, order.length, 0);
+            // Squared distances were compared during the search
+            for (int i = 0; i < found; i++) {
+                distance[i] = Math.sqrt(distance[i]);
+            }
+            return found;
+        }
+
+        private void search(int from, int to, int depth) {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    offer(order[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            int s = order[mid];
+            int axis = depth & 1;
+            double diff = (axis == 0 ? queryX : queryY) - coordinate(s, axis);
+            offer(s);
+            if (diff < 0) {
+                search(from, mid, depth + 1);
+                if (found < limit || diff * diff < distance[found - 1]) {
+                    search(mid + 1, to, depth + 1);
+                }
+            } else {
+                search(mid + 1, to, depth + 1);
+                if (found < limit || diff * diff < distance[found - 1]) {
+                    search(from, mid, depth + 1);
+                }
+            }
+        }
+
+        // Insertion into the sorted top-k arrays
+        private void offer(int s) {
+            double dx = sourceX[s] - queryX;
+            double dy = sourceY[s] - queryY;
+            double d = dx * dx + dy * dy;
+            if (found == limit && d >= distance[limit - 1]) {
+                return;
+            }
+            int i = found == limit ? limit - 1 : found++;
+            while (i > 0 && distance[i - 1] > d) {
+                distance[i] = distance[i - 1];
+                result[i] = result[i - 1];
+                i--;
+            }
+            distance[i] = d;
+            result[i] = s;
+        }
+    }
+}
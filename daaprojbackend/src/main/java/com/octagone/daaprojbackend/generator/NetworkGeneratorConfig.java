@@ -0,0 +1,174 @@
+package com.octagone.daaprojbackend.generator;
+
+/**
+ * Parameters of a generated network. Setters are chainable; anything not set
+ * keeps the default of a small, feasible, single cluster network.
+ */
+public class NetworkGeneratorConfig {
+
+    public enum Mode {
+        // Every zone can be fully served by its nearest source
+        FEASIBLE,
+        // Total demand exceeds total capacity by the oversubscription factor
+        OVERSUBSCRIBED
+    }
+
+    private long seed = 42;
+    private int sources = 10;
+    private int zones = 100;
+    private int connectionsPerZone = 3;
+    private int clusters = 1;
+    // Spread of sources and zones around their cluster centre, in units of the map size
+    private double clusterSpread = 0.05;
+    private double[] priorityWeights = {0.6, 0.25, 0.15};
+    private double minDemand = 20.0;
+    private double maxDemand = 50.0;
+    private double baseCost = 1.0;
+    private double costPerDistance = 10.0;
+    private Mode mode = Mode.FEASIBLE;
+    // FEASIBLE: spare capacity on top of the zones served; OVERSUBSCRIBED: demand divided by capacity
+    private double slack = 0.1;
+    private double oversubscription = 1.5;
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public NetworkGeneratorConfig setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public int getSources() {
+        return sources;
+    }
+
+    public NetworkGeneratorConfig setSources(int sources) {
+        this.sources = sources;
+        return this;
+    }
+
+    public int getZones() {
+        return zones;
+    }
+
+    public NetworkGeneratorConfig setZones(int zones) {
+        this.zones = zones;
+        return this;
+    }
+
+    public int getConnectionsPerZone() {
+        return connectionsPerZone;
+    }
+
+    public NetworkGeneratorConfig setConnectionsPerZone(int connectionsPerZone) {
+        this.connectionsPerZone = connectionsPerZone;
+        return this;
+    }
+
+    public int getClusters() {
+        return clusters;
+    }
+
+    public NetworkGeneratorConfig setClusters(int clusters) {
+        this.clusters = clusters;
+        return this;
+    }
+
+    public double getClusterSpread() {
+        return clusterSpread;
+    }
+
+    public NetworkGeneratorConfig setClusterSpread(double clusterSpread) {
+        this.clusterSpread = clusterSpread;
+        return this;
+    }
+
+    public double[] getPriorityWeights() {
+        return priorityWeights;
+    }
+
+    /**
+     * Relative weight of each priority: {@code weights[0]} for priority 1, {@code weights[1]} for priority 2, ...
+     */
+    public NetworkGeneratorConfig setPriorityWeights(double... priorityWeights) {
+        this.priorityWeights = priorityWeights;
+        return this;
+    }
+
+    public double getMinDemand() {
+        return minDemand;
+    }
+
+    public double getMaxDemand() {
+        return maxDemand;
+    }
+
+    public NetworkGeneratorConfig setDemandRange(double minDemand, double maxDemand) {
+        this.minDemand = minDemand;
+        this.maxDemand = maxDemand;
+        return this;
+    }
+
+    public double getBaseCost() {
+        return baseCost;
+    }
+
+    public NetworkGeneratorConfig setBaseCost(double baseCost) {
+        this.baseCost = baseCost;
+        return this;
+    }
+
+    public double getCostPerDistance() {
+        return costPerDistance;
+    }
+
+    public NetworkGeneratorConfig setCostPerDistance(double costPerDistance) {
+        this.costPerDistance = costPerDistance;
+        return this;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public NetworkGeneratorConfig setMode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public double getSlack() {
+        return slack;
+    }
+
+    public NetworkGeneratorConfig setSlack(double slack) {
+        this.slack = slack;
+        return this;
+    }
+
+    public double getOversubscription() {
+        return oversubscription;
+    }
+
+    public NetworkGeneratorConfig setOversubscription(double oversubscription) {
+        this.oversubscription = oversubscription;
+        return this;
+    }
+
+    public long expectedConnections() {
+        return (long) zones * Math.min(connectionsPerZone, sources);
+    }
+
+    void validate() {
+        if (sources <= 0 || zones <= 0 || connectionsPerZone <= 0 || clusters <= 0 || clusterSpread <= 0
+                || minDemand < 0 || maxDemand < minDemand || baseCost < 0 || costPerDistance < 0 || slack < 0
+                || oversubscription < 1 || priorityWeights == null || priorityWeights.length == 0) {
+            throw new IllegalArgumentException("Invalid generator configuration");
+        }
+        for (double weight : priorityWeights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Invalid generator configuration");
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.octagone.daaprojbackend.generator;
+
+/**
+ * Receives a network one row at a time. The generator emits all sources
+ * first, then every zone directly followed by its connections.
+ */
+public interface NetworkSink {
+
+    void source(long id, double capacity);
+
+    void zone(long id, double demand, int priority);
+
+    void connection(long id, long sourceId, long zoneId, double costPerUnit);
+}
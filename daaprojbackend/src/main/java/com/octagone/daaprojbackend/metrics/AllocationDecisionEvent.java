@@ -0,0 +1,40 @@
+package com.octagone.daaprojbackend.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a single allocation through a connection. There
+ * is one per allocation step, so it is disabled unless a recording asks for it.
+ */
+@Name("com.octagone.daaproj.AllocationDecision")
+@Label("Allocation Decision")
+@Category("Water Allocation")
+@Description("Water allocated through one connection")
+@Enabled(false)
+@StackTrace(false)
+class AllocationDecisionEvent extends Event {
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Connection Id")
+    long connectionId;
+
+    @Label("Source Id")
+    long sourceId;
+
+    @Label("Zone Id")
+    long zoneId;
+
+    @Label("Amount")
+    double amount;
+}
@@ -1,8 +1,9 @@
 package com.octagone.daaprojbackend.metrics;
 
 import com.octagone.daaprojbackend.models.*;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import com.octagone.daaprojbackend.util.LongIntHashMap;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class AllocationMetrics {
     private String scenarioName;
@@ -23,6 +24,11 @@ public class AllocationMetrics {
         this.priorityMetrics = new HashMap<>();
     }
 
+    /**
+     * Computes all metrics in one pass over the zones, the connections and the
+     * allocations. Zones and connections are indexed once in primitive hash maps,
+     * so the cost is linear in the size of the network and the response.
+     */
     public void calculateMetrics(List<Source> sources, List<Zone> zones,
             List<Connection> connections, AllocationResponse response, long executionTime) {
 
@@ -31,71 +37,144 @@ public class AllocationMetrics {
         this.numConnections = connections.size();
         this.executionTimeMs = executionTime / 1_000_000.0;
 
-        // Calculate total original demand (demand + filledCapacity gives us original
-        // demand)
-        this.totalDemand = zones.stream()
-                .mapToDouble(z -> z.getDemand() + z.getFilledCapacity())
-                .sum();
-
-        // Calculate total allocated from filled capacities
-        this.totalAllocated = zones.stream()
-                .mapToDouble(Zone::getFilledCapacity)
-                .sum();
-
-        // Calculate resource utilization using original capacity
-        this.resourceUtilization = (totalAllocated / totalSourceCapacity) * 100;
+        Aggregator aggregator = new Aggregator(zones.size());
+        LongIntHashMap zoneIndex = new LongIntHashMap(zones.size());
+        for (int z = 0; z < zones.size(); z++) {
+            Zone zone = zones.get(z);
+            zoneIndex.put(zone.getId(), z, -1);
+            aggregator.addZone(z, zone.getDemand(), zone.getPriority());
+        }
 
-        // Calculate satisfaction rate correctly
-        this.satisfactionRate = totalDemand > 0 ? Math.min((totalAllocated / totalDemand) * 100, 100) : 0;
+        LongIntHashMap connectionIndex = new LongIntHashMap(connections.size());
+        double[] cost = new double[connections.size()];
+        for (int c = 0; c < connections.size(); c++) {
+            Connection connection = connections.get(c);
+            connectionIndex.put(connection.getId(), c, -1);
+            cost[c] = connection.getCostPerUnit();
+        }
 
-        calculatePriorityMetrics(zones, response);
-        calculateCostEfficiency(connections, response);
+        // Allocation engines leave the zones untouched, so the allocated amounts come from the response
+        for (ZoneAllocation allocation : response.getAllocations()) {
+            aggregator.allocate(zoneIndex.get(allocation.getZoneId(), -1), allocation.getAmount());
+            for (int i = 0; i < allocation.connectionCount(); i++) {
+                int c = connectionIndex.get(allocation.connectionId(i), -1);
+                if (c >= 0) {
+                    aggregator.addCost(cost[c] * allocation.connectionAmount(i));
+                }
+            }
+        }
+        aggregator.finish();
     }
 
-    private void calculatePriorityMetrics(List<Zone> zones, AllocationResponse response) {
-        Map<Integer, List<Zone>> priorityGroups = zones.stream()
-                .collect(Collectors.groupingBy(Zone::getPriority));
-
-        priorityGroups.forEach((priority, priorityZones) -> {
-            // Calculate original demand for this priority group
-            double priorityDemand = priorityZones.stream()
-                    .mapToDouble(z -> z.getDemand() + z.getFilledCapacity())
-                    .sum();
+    /**
+     * Same metrics for an allocation of a compiled network, whose ids are already
+     * indexed. The total source capacity is taken from the network.
+     */
+    public void calculateMetrics(CompiledNetwork network, AllocationResponse response, long executionTime) {
+        this.numSources = network.getSourceCount();
+        this.numZones = network.getZoneCount();
+        this.numConnections = network.getConnectionCount();
+        this.executionTimeMs = executionTime / 1_000_000.0;
 
-            // Calculate what was actually allocated
-            double priorityAllocated = priorityZones.stream()
-                    .mapToDouble(Zone::getFilledCapacity)
-                    .sum();
+        double capacity = 0;
+        for (double sourceCapacity : network.getCapacity()) {
+            capacity += sourceCapacity;
+        }
+        this.totalSourceCapacity = capacity;
 
-            // Cap satisfaction rate at 100%
-            double satisfactionRate = priorityDemand > 0 ? Math.min((priorityAllocated / priorityDemand) * 100, 100)
-                    : 0;
+        Aggregator aggregator = new Aggregator(network.getZoneCount());
+        double[] demand = network.getDemand();
+        int[] priority = network.getPriority();
+        for (int z = 0; z < demand.length; z++) {
+            aggregator.addZone(z, demand[z], priority[z]);
+        }
 
-            priorityMetrics.put(priority, new PriorityMetrics(
-                    priorityDemand,
-                    priorityAllocated,
-                    priorityZones.size(),
-                    satisfactionRate));
-        });
+        double[] cost = network.getCost();
+        for (ZoneAllocation allocation : response.getAllocations()) {
+            aggregator.allocate(network.zoneIndexOf(allocation.getZoneId()), allocation.getAmount());
+            for (int i = 0; i < allocation.connectionCount(); i++) {
+                int c = network.connectionIndexOf(allocation.connectionId(i));
+                if (c >= 0) {
+                    aggregator.addCost(cost[c] * allocation.connectionAmount(i));
+                }
+            }
+        }
+        aggregator.finish();
     }
 
-    private void calculateCostEfficiency(List<Connection> connections, AllocationResponse response) {
-        double totalCost = 0.0;
-
-        for (ZoneAllocation allocation : response.getAllocations()) {
-            for (ConnectionAllocation connAlloc : allocation.getConnectionAllocations()) {
-                Optional<Connection> connection = connections.stream()
-                        .filter(c -> c.getId().equals(connAlloc.getConnectionId()))
-                        .findFirst();
+    /**
+     * Running totals per priority, kept in dense arrays indexed by a priority slot.
+     */
+    private final class Aggregator {
+        private final LongIntHashMap slotOfPriority = new LongIntHashMap();
+        private final int[] zoneSlot;
+        private int[] priorities = new int[4];
+        private double[] demand = new double[4];
+        private double[] allocated = new double[4];
+        private int[] zoneCount = new int[4];
+        private int slots;
+        private double totalCost;
+
+        Aggregator(int zones) {
+            zoneSlot = new int[zones];
+            totalDemand = 0;
+            totalAllocated = 0;
+        }
 
-                if (connection.isPresent()) {
-                    totalCost += connection.get().getCostPerUnit() * connAlloc.getAmount();
+        void addZone(int z, double zoneDemand, int priority) {
+            int slot = slotOfPriority.get(priority, -1);
+            if (slot < 0) {
+                slot = slots++;
+                slotOfPriority.put(priority, slot, -1);
+                if (slot == priorities.length) {
+                    priorities = Arrays.copyOf(priorities, slot * 2);
+                    demand = Arrays.copyOf(demand, slot * 2);
+                    allocated = Arrays.copyOf(allocated, slot * 2);
+                    zoneCount = Arrays.copyOf(zoneCount, slot * 2);
                 }
+                priorities[slot] = priority;
+            }
+            zoneSlot[z] = slot;
+            demand[slot] += zoneDemand;
+            zoneCount[slot]++;
+            totalDemand += zoneDemand;
+        }
+
+        // Allocations to zones outside the network are ignored
+        void allocate(int z, double amount) {
+            if (z >= 0) {
+                allocated[zoneSlot[z]] += amount;
+                totalAllocated += amount;
             }
         }
 
-        // Cost efficiency is total allocation per unit cost
-        this.costEfficiency = totalCost > 0 ? totalAllocated / totalCost : 0.0;
+        void addCost(double cost) {
+            totalCost += cost;
+        }
+
+        void finish() {
+            // Calculate resource utilization using original capacity
+            resourceUtilization = (totalAllocated / totalSourceCapacity) * 100;
+
+            // Calculate satisfaction rate correctly
+            satisfactionRate = totalDemand > 0 ? Math.min((totalAllocated / totalDemand) * 100, 100) : 0;
+
+            priorityMetrics.clear();
+            for (int slot = 0; slot < slots; slot++) {
+                // Cap satisfaction rate at 100%
+                double prioritySatisfaction = demand[slot] > 0
+                        ? Math.min((allocated[slot] / demand[slot]) * 100, 100)
+                        : 0;
+                priorityMetrics.put(priorities[slot], new PriorityMetrics(
+                        demand[slot],
+                        allocated[slot],
+                        zoneCount[slot],
+                        prioritySatisfaction));
+            }
+
+            // Cost efficiency is total allocation per unit cost
+            costEfficiency = totalCost > 0 ? totalAllocated / totalCost : 0.0;
+        }
     }
 
     // Getters
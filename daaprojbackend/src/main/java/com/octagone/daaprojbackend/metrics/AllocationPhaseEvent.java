@@ -0,0 +1,25 @@
+package com.octagone.daaprojbackend.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one phase of an allocation run.
+ */
+@Name("com.octagone.daaproj.AllocationPhase")
+@Label("Allocation Phase")
+@Category("Water Allocation")
+@Description("One phase of an allocation run")
+@StackTrace(false)
+class AllocationPhaseEvent extends Event {
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Phase")
+    String phase;
+}
@@ -0,0 +1,59 @@
+package com.octagone.daaprojbackend.metrics;
+
+import java.util.Locale;
+
+/**
+ * Runtime measurements of the allocation pipeline. Engines record their
+ * phases and greedy stage statistics, the services record network size and
+ * outcome. {@link #NOOP} is used wherever no implementation is injected, e.g.
+ * engines created directly in tests and benchmarks.
+ */
+public interface AllocationTelemetry {
+
+    enum Phase {
+        LOAD, VALIDATION, QUEUE_BUILD, GREEDY, BACKTRACKING, SERIALIZATION;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    AllocationTelemetry NOOP = new AllocationTelemetry() {
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public void recordPhase(String engine, Phase phase, long startNanos) {
+        }
+
+        @Override
+        public void recordGreedyStage(String engine, long polled, long used) {
+        }
+
+        @Override
+        public void recordNetwork(int sources, int zones, int connections) {
+        }
+
+        @Override
+        public void recordOutcome(String engine, double unmetDemand, double satisfactionRate) {
+        }
+    };
+
+    /**
+     * Start time of a phase, to be passed to {@link #recordPhase}.
+     */
+    default long start() {
+        return System.nanoTime();
+    }
+
+    void recordPhase(String engine, Phase phase, long startNanos);
+
+    // Connections taken from the greedy queue and the ones that actually carried water
+    void recordGreedyStage(String engine, long polled, long used);
+
+    void recordNetwork(int sources, int zones, int connections);
+
+    void recordOutcome(String engine, double unmetDemand, double satisfactionRate);
+}
@@ -0,0 +1,83 @@
+package com.octagone.daaprojbackend.metrics;
+
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry.Phase;
+
+/**
+ * Trace of one allocation run, obtained from {@link AllocationTracer#begin}.
+ * Engines mark each phase and, when {@link #isActive()}, report every
+ * allocation step; {@link #end()} must be called once the run is over, also
+ * when it fails. Not thread safe: a trace belongs to the thread running the
+ * allocation.
+ */
+public final class AllocationTrace {
+
+    // Records nothing, e.g. for batches of runs that are not worth tracing one by one
+    public static final AllocationTrace NONE = new AllocationTrace(null, null, null, false, false);
+
+    private final AllocationTracer tracer;
+    private final String engine;
+    private final AllocationTracer.DecisionBuffer buffer;
+    private final boolean phaseEvents;
+    private final boolean decisionEvents;
+    private final boolean active;
+    private AllocationPhaseEvent phaseEvent;
+
+    AllocationTrace(AllocationTracer tracer, String engine, AllocationTracer.DecisionBuffer buffer,
+            boolean phaseEvents, boolean decisionEvents) {
+        this.tracer = tracer;
+        this.engine = engine;
+        this.buffer = buffer;
+        this.phaseEvents = phaseEvents;
+        this.decisionEvents = decisionEvents;
+        this.active = buffer != null || decisionEvents;
+    }
+
+    /**
+     * Whether allocation steps are recorded; engines check this before
+     * gathering the arguments of {@link #decision}.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    // Ends the current phase, if any, and starts the next one
+    public void phase(Phase phase) {
+        endPhase();
+        if (phaseEvents) {
+            phaseEvent = new AllocationPhaseEvent();
+            phaseEvent.engine = engine;
+            phaseEvent.phase = phase.tag();
+            phaseEvent.begin();
+        }
+    }
+
+    public void decision(Phase stage, long connectionId, long sourceId, long zoneId, double amount) {
+        if (buffer != null) {
+            buffer.add(connectionId, amount, stage);
+        }
+        if (decisionEvents) {
+            AllocationDecisionEvent event = new AllocationDecisionEvent();
+            event.engine = engine;
+            event.stage = stage.tag();
+            event.connectionId = connectionId;
+            event.sourceId = sourceId;
+            event.zoneId = zoneId;
+            event.amount = amount;
+            event.commit();
+        }
+    }
+
+    public void end() {
+        endPhase();
+        if (buffer != null) {
+            tracer.publish(buffer);
+        }
+    }
+
+    private void endPhase() {
+        if (phaseEvent != null) {
+            phaseEvent.commit();
+            phaseEvent = null;
+        }
+    }
+}
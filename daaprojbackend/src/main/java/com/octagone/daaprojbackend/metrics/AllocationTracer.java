@@ -0,0 +1,252 @@
+package com.octagone.daaprojbackend.metrics;
+
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry.Phase;
+import jakarta.annotation.PostConstruct;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Low overhead tracing of allocation decisions, in two independent forms:
+ * <ul>
+ * <li>Flight Recorder events for every phase ({@link AllocationPhaseEvent}) and
+ * allocation step ({@link AllocationDecisionEvent}), active only while a
+ * recording enables them, e.g. one started through {@link #startRecording()}</li>
+ * <li>a ring buffer of the last {@code allocation.trace.capacity} steps
+ * (connection id, amount, stage) of the most recent traced run</li>
+ * </ul>
+ * The ring buffer is two preallocated sets of primitive arrays: a run fills
+ * the spare one and swaps it with the published one when it ends, so tracing
+ * allocates nothing per step and readers never see a run in progress. Only
+ * one run at a time fills the buffer; runs that start meanwhile, e.g. the
+ * other tasks of a parallel allocation, are only traced through JFR.
+ */
+@Component
+public class AllocationTracer {
+
+    private static final long RECORDING_MAX_SIZE = 64L << 20;
+
+    // Steps kept by the ring buffer, 0 disables it
+    @Value("${allocation.trace.capacity:0}")
+    private int capacity;
+
+    private final AtomicReference<DecisionBuffer> spare = new AtomicReference<>();
+    private DecisionBuffer latest;
+    private Recording recording;
+
+    public AllocationTracer() {
+    }
+
+    // Outside of Spring, e.g. engines created directly
+    public AllocationTracer(int capacity) {
+        this.capacity = capacity;
+        allocateBuffers();
+    }
+
+    @PostConstruct
+    void allocateBuffers() {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("allocation.trace.capacity must not be negative");
+        }
+        if (capacity > 0) {
+            latest = new DecisionBuffer(capacity);
+            spare.set(new DecisionBuffer(capacity));
+        }
+    }
+
+    /**
+     * Starts the trace of one run; returns a trace that records nothing when
+     * neither the ring buffer nor the JFR events are in use.
+     */
+    public AllocationTrace begin(String engine) {
+        boolean phaseEvents = new AllocationPhaseEvent().isEnabled();
+        boolean decisionEvents = new AllocationDecisionEvent().isEnabled();
+        DecisionBuffer buffer = capacity > 0 ? spare.getAndSet(null) : null;
+        if (buffer == null && !phaseEvents && !decisionEvents) {
+            return AllocationTrace.NONE;
+        }
+        if (buffer != null) {
+            buffer.reset(engine);
+        }
+        return new AllocationTrace(this, engine, buffer, phaseEvents, decisionEvents);
+    }
+
+    synchronized void publish(DecisionBuffer buffer) {
+        buffer.finishedAt = Instant.now();
+        DecisionBuffer previous = latest;
+        latest = buffer;
+        spare.set(previous);
+    }
+
+    /**
+     * The last {@code limit} steps of the most recent traced run, oldest first.
+     */
+    public synchronized Snapshot snapshot(int limit) {
+        if (capacity == 0) {
+            throw new IllegalStateException("Decision tracing is disabled, set allocation.trace.capacity");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        return latest.snapshot(limit);
+    }
+
+    /**
+     * Starts a Flight Recorder recording of the allocation events, including
+     * the per step events that are off by default.
+     */
+    public synchronized void startRecording() {
+        if (recording != null) {
+            throw new IllegalStateException("An allocation recording is already running");
+        }
+        Recording started = new Recording();
+        started.setName("allocation-trace");
+        started.enable(AllocationPhaseEvent.class);
+        started.enable(AllocationDecisionEvent.class);
+        started.setToDisk(true);
+        started.setMaxSize(RECORDING_MAX_SIZE);
+        started.start();
+        recording = started;
+    }
+
+    /**
+     * Stops the running recording and returns its content as a {@code .jfr} file.
+     */
+    public synchronized byte[] stopRecording() throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("No allocation recording is running");
+        }
+        Recording stopped = recording;
+        recording = null;
+        Path file = Files.createTempFile("allocation-trace", ".jfr");
+        try {
+            stopped.stop();
+            stopped.dump(file);
+            return Files.readAllBytes(file);
+        } finally {
+            stopped.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Fixed size ring of allocation steps, written by a single run.
+     */
+    static final class DecisionBuffer {
+        private final long[] connectionIds;
+        private final double[] amounts;
+        private final byte[] stages;
+        private int next;
+        private long count;
+        private String engine;
+        private Instant finishedAt;
+
+        DecisionBuffer(int capacity) {
+            connectionIds = new long[capacity];
+            amounts = new double[capacity];
+            stages = new byte[capacity];
+        }
+
+        void reset(String runEngine) {
+            engine = runEngine;
+            next = 0;
+            count = 0;
+            finishedAt = null;
+        }
+
+        void add(long connectionId, double amount, Phase stage) {
+            connectionIds[next] = connectionId;
+            amounts[next] = amount;
+            stages[next] = (byte) stage.ordinal();
+            if (++next == connectionIds.length) {
+                next = 0;
+            }
+            count++;
+        }
+
+        Snapshot snapshot(int limit) {
+            int kept = (int) Math.min(Math.min(count, connectionIds.length), limit);
+            // Oldest of the kept steps first
+            int index = Math.floorMod(next - kept, connectionIds.length);
+            Phase[] phases = Phase.values();
+            List<Decision> decisions = new ArrayList<>(kept);
+            for (int i = 0; i < kept; i++) {
+                decisions.add(new Decision(connectionIds[index], amounts[index], phases[stages[index]].tag()));
+                if (++index == connectionIds.length) {
+                    index = 0;
+                }
+            }
+            return new Snapshot(engine, finishedAt, count, connectionIds.length, decisions);
+        }
+    }
+
+    public static class Snapshot {
+        private final String engine;
+        private final Instant finishedAt;
+        private final long totalDecisions;
+        private final int capacity;
+        private final List<Decision> decisions;
+
+        Snapshot(String engine, Instant finishedAt, long totalDecisions, int capacity, List<Decision> decisions) {
+            this.engine = engine;
+            this.finishedAt = finishedAt;
+            this.totalDecisions = totalDecisions;
+            this.capacity = capacity;
+            this.decisions = decisions;
+        }
+
+        // Null until a traced run has finished
+        public String getEngine() {
+            return engine;
+        }
+
+        public Instant getFinishedAt() {
+            return finishedAt;
+        }
+
+        // Steps of the run, including the ones the ring has overwritten
+        public long getTotalDecisions() {
+            return totalDecisions;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public List<Decision> getDecisions() {
+            return decisions;
+        }
+    }
+
+    public static class Decision {
+        private final long connectionId;
+        private final double amount;
+        private final String stage;
+
+        Decision(long connectionId, double amount, String stage) {
+            this.connectionId = connectionId;
+            this.amount = amount;
+            this.stage = stage;
+        }
+
+        public long getConnectionId() {
+            return connectionId;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+    }
+}
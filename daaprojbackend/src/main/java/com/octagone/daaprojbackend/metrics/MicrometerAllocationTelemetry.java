@@ -0,0 +1,111 @@
+package com.octagone.daaprojbackend.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes {@link AllocationTelemetry} to Micrometer, and through Actuator
+ * at {@code /actuator/metrics}:
+ * <ul>
+ * <li>{@code allocation.phase} timer per engine and phase, with p50/p95/p99 and a histogram</li>
+ * <li>{@code allocation.connections.polled} and {@code allocation.connections.used} counters per engine</li>
+ * <li>{@code allocation.network.sources}, {@code .zones} and {@code .connections} gauges of the last loaded network</li>
+ * <li>{@code allocation.unmet.demand} and {@code allocation.satisfaction.rate} gauges of the last run per engine</li>
+ * </ul>
+ * Meters are created once per tag combination and reused, so recording is a
+ * map lookup plus the meter update.
+ */
+@Component
+public class MicrometerAllocationTelemetry implements AllocationTelemetry {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final Map<String, Timer> phaseTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter[]> greedyCounters = new ConcurrentHashMap<>();
+    private final Map<String, Outcome> outcomes = new ConcurrentHashMap<>();
+    private final AtomicInteger sources = new AtomicInteger();
+    private final AtomicInteger zones = new AtomicInteger();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder("allocation.network.sources", sources, AtomicInteger::get)
+                .description("Sources in the last loaded network")
+                .register(registry);
+        Gauge.builder("allocation.network.zones", zones, AtomicInteger::get)
+                .description("Zones in the last loaded network")
+                .register(registry);
+        Gauge.builder("allocation.network.connections", connections, AtomicInteger::get)
+                .description("Connections in the last loaded network")
+                .register(registry);
+    }
+
+    @Override
+    public void recordPhase(String engine, Phase phase, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        phaseTimers.computeIfAbsent(engine + '/' + phase.tag(), key -> Timer.builder("allocation.phase")
+                        .tag("engine", engine)
+                        .tag("phase", phase.tag())
+                        .description("Time spent in one phase of an allocation")
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordGreedyStage(String engine, long polled, long used) {
+        Counter[] counters = greedyCounters.computeIfAbsent(engine, key -> new Counter[]{
+                Counter.builder("allocation.connections.polled")
+                        .tag("engine", engine)
+                        .description("Connections taken from the greedy queue")
+                        .register(registry),
+                Counter.builder("allocation.connections.used")
+                        .tag("engine", engine)
+                        .description("Greedy queue connections that carried water")
+                        .register(registry)});
+        counters[0].increment(polled);
+        counters[1].increment(used);
+    }
+
+    @Override
+    public void recordNetwork(int sourceCount, int zoneCount, int connectionCount) {
+        sources.set(sourceCount);
+        zones.set(zoneCount);
+        connections.set(connectionCount);
+    }
+
+    @Override
+    public void recordOutcome(String engine, double unmetDemand, double satisfactionRate) {
+        Outcome outcome = outcomes.computeIfAbsent(engine, key -> {
+            Outcome created = new Outcome();
+            Gauge.builder("allocation.unmet.demand", created, o -> o.unmetDemand)
+                    .tag("engine", engine)
+                    .description("Demand left unmet by the last allocation")
+                    .register(registry);
+            Gauge.builder("allocation.satisfaction.rate", created, o -> o.satisfactionRate)
+                    .tag("engine", engine)
+                    .description("Share of demand met by the last allocation, in percent")
+                    .register(registry);
+            return created;
+        });
+        outcome.unmetDemand = unmetDemand;
+        outcome.satisfactionRate = satisfactionRate;
+    }
+
+    private static final class Outcome {
+        volatile double unmetDemand;
+        volatile double satisfactionRate;
+    }
+}
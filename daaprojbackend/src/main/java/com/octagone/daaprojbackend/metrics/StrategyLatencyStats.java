@@ -0,0 +1,116 @@
+package com.octagone.daaprojbackend.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running latency statistics per allocation strategy and network size.
+ *
+ * Networks are grouped by the order of magnitude of their connection count
+ * (1-9, 10-99, 100-999, ...) so engines can be compared for each network size.
+ */
+public class StrategyLatencyStats {
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public void record(String strategy, int connectionCount, long elapsedNanos) {
+        int sizeBucket = sizeBucket(connectionCount);
+        buckets.computeIfAbsent(strategy + "#" + sizeBucket, key -> new Bucket(strategy, sizeBucket))
+                .record(elapsedNanos);
+    }
+
+    public List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>();
+        for (Bucket bucket : buckets.values()) {
+            entries.add(bucket.toEntry());
+        }
+        entries.sort(Comparator.comparingLong(Entry::getMinConnections).thenComparing(Entry::getStrategy));
+        return entries;
+    }
+
+    // Largest power of ten not above the connection count
+    private static int sizeBucket(int connectionCount) {
+        int bucket = 0;
+        while (connectionCount >= 10) {
+            connectionCount /= 10;
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static class Bucket {
+        private final String strategy;
+        private final int sizeBucket;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong lastNanos = new AtomicLong();
+
+        Bucket(String strategy, int sizeBucket) {
+            this.strategy = strategy;
+            this.sizeBucket = sizeBucket;
+        }
+
+        void record(long elapsedNanos) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            lastNanos.set(elapsedNanos);
+        }
+
+        Entry toEntry() {
+            long calls = count.sum();
+            double meanMs = calls > 0 ? totalNanos.sum() / (double) calls / 1_000_000.0 : 0;
+            return new Entry(strategy, (long) Math.pow(10, sizeBucket), calls, meanMs,
+                    maxNanos.get() / 1_000_000.0, lastNanos.get() / 1_000_000.0);
+        }
+    }
+
+    // Latency figures for one strategy and network size
+    public static class Entry {
+        private final String strategy;
+        private final long minConnections;
+        private final long count;
+        private final double meanMs;
+        private final double maxMs;
+        private final double lastMs;
+
+        public Entry(String strategy, long minConnections, long count, double meanMs, double maxMs, double lastMs) {
+            this.strategy = strategy;
+            this.minConnections = minConnections;
+            this.count = count;
+            this.meanMs = meanMs;
+            this.maxMs = maxMs;
+            this.lastMs = lastMs;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public long getMinConnections() {
+            return minConnections;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMs() {
+            return meanMs;
+        }
+
+        public double getMaxMs() {
+            return maxMs;
+        }
+
+        public double getLastMs() {
+            return lastMs;
+        }
+    }
+}
@@ -1,16 +1,80 @@
 package com.octagone.daaprojbackend.models;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
+/**
+ * Allocated water per zone. Engines that produce a {@link CompactAllocation}
+ * return it wrapped as is: the zones are then views over its columns,
+ * created when they are first accessed, so a response costs little more than
+ * its primitive arrays. A zone keeps its identity once accessed, so
+ * modifications stick and show up in {@link #toCompact()}.
+ */
 public class AllocationResponse {
     private List<ZoneAllocation> allocations;
+    private final CompactAllocation compact;
 
     public AllocationResponse(List<ZoneAllocation> allocations) {
         this.allocations = allocations;
+        this.compact = null;
+    }
+
+    public AllocationResponse(CompactAllocation compact) {
+        this.allocations = new ZoneView(compact);
+        this.compact = compact;
     }
 
     // Getters
     public List<ZoneAllocation> getAllocations() {
         return allocations;
     }
+
+    /**
+     * The allocation in columnar form, without copying when the response
+     * already wraps one and none of its zones were modified.
+     */
+    public CompactAllocation toCompact() {
+        return compact != null && !((ZoneView) allocations).isModified() ? compact : CompactAllocation.of(this);
+    }
+
+    private static final class ZoneView extends AbstractList<ZoneAllocation> implements RandomAccess {
+        private final CompactAllocation compact;
+        // Zones handed out so far, so repeated reads return the same, possibly modified, instance
+        private ZoneAllocation[] zones;
+
+        ZoneView(CompactAllocation compact) {
+            this.compact = compact;
+        }
+
+        @Override
+        public ZoneAllocation get(int z) {
+            if (z < 0 || z >= compact.getZoneCount()) {
+                throw new IndexOutOfBoundsException("Index " + z + " out of bounds for length " + size());
+            }
+            if (zones == null) {
+                zones = new ZoneAllocation[compact.getZoneCount()];
+            }
+            if (zones[z] == null) {
+                zones[z] = new ZoneAllocation(compact, z);
+            }
+            return zones[z];
+        }
+
+        boolean isModified() {
+            if (zones != null) {
+                for (ZoneAllocation zone : zones) {
+                    if (zone != null && !zone.isShared()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return compact.getZoneCount();
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package com.octagone.daaprojbackend.models;
+
+import java.util.Arrays;
+
+/**
+ * Columnar form of an {@link AllocationResponse}: the connection allocations of
+ * zone {@code z} are {@code connectionIds/amounts[zoneOffsets[z] .. zoneOffsets[z + 1])}.
+ * Holds only primitive arrays, so it can be built and encoded without creating
+ * a {@link ZoneAllocation} per zone. A connection appears at most once per zone.
+ */
+public class CompactAllocation {
+
+    private final long[] zoneIds;
+    private final int[] zoneOffsets;
+    private final long[] connectionIds;
+    private final double[] amounts;
+
+    public CompactAllocation(long[] zoneIds, int[] zoneOffsets, long[] connectionIds, double[] amounts) {
+        if (zoneOffsets.length != zoneIds.length + 1 || connectionIds.length != amounts.length
+                || zoneOffsets[0] != 0 || zoneOffsets[zoneIds.length] != connectionIds.length) {
+            throw new IllegalArgumentException("Inconsistent compact allocation");
+        }
+        // Offsets that never decrease keep every zone's range within the connections
+        for (int z = 0; z < zoneIds.length; z++) {
+            if (zoneOffsets[z + 1] < zoneOffsets[z]) {
+                throw new IllegalArgumentException("Inconsistent compact allocation");
+            }
+        }
+        this.zoneIds = zoneIds;
+        this.zoneOffsets = zoneOffsets;
+        this.connectionIds = connectionIds;
+        this.amounts = amounts;
+    }
+
+    public static CompactAllocation of(AllocationResponse response) {
+        Builder builder = new Builder();
+        for (ZoneAllocation allocation : response.getAllocations()) {
+            for (int i = 0; i < allocation.connectionCount(); i++) {
+                builder.addConnection(allocation.connectionId(i), allocation.connectionAmount(i));
+            }
+            builder.endZone(allocation.getZoneId());
+        }
+        return builder.build();
+    }
+
+    public int getZoneCount() {
+        return zoneIds.length;
+    }
+
+    public int getConnectionCount() {
+        return connectionIds.length;
+    }
+
+    public long[] getZoneIds() {
+        return zoneIds;
+    }
+
+    public int[] getZoneOffsets() {
+        return zoneOffsets;
+    }
+
+    public long[] getConnectionIds() {
+        return connectionIds;
+    }
+
+    public double[] getAmounts() {
+        return amounts;
+    }
+
+    public double zoneAmount(int z) {
+        double total = 0;
+        for (int i = zoneOffsets[z]; i < zoneOffsets[z + 1]; i++) {
+            total += amounts[i];
+        }
+        return total;
+    }
+
+    // Heap taken by the columns
+    public long sizeInBytes() {
+        return 12L * zoneIds.length + 4 + 16L * connectionIds.length;
+    }
+
+    // Zones of the response are views over these columns, nothing is copied
+    public AllocationResponse toResponse() {
+        return new AllocationResponse(this);
+    }
+
+    /**
+     * Appends zones one at a time: add the zone's connections, then close the
+     * zone. The connections of a zone must be distinct.
+     */
+    public static class Builder {
+        private long[] zoneIds;
+        private int[] zoneOffsets;
+        private int zoneCount;
+        private long[] connectionIds;
+        private double[] amounts;
+        private int connectionCount;
+
+        public Builder() {
+            this(16, 16);
+        }
+
+        // Expected sizes, e.g. the zone and connection counts of the network
+        public Builder(int expectedZones, int expectedConnections) {
+            zoneIds = new long[Math.max(1, expectedZones)];
+            zoneOffsets = new int[zoneIds.length + 1];
+            connectionIds = new long[Math.max(1, expectedConnections)];
+            amounts = new double[connectionIds.length];
+        }
+
+        public Builder addConnection(long connectionId, double amount) {
+            if (connectionCount == connectionIds.length) {
+                int newLength = connectionCount + (connectionCount >> 1) + 1;
+                connectionIds = Arrays.copyOf(connectionIds, newLength);
+                amounts = Arrays.copyOf(amounts, newLength);
+            }
+            connectionIds[connectionCount] = connectionId;
+            amounts[connectionCount] = amount;
+            connectionCount++;
+            return this;
+        }
+
+        public Builder endZone(long zoneId) {
+            if (zoneCount == zoneIds.length) {
+                int newLength = zoneCount + (zoneCount >> 1) + 1;
+                zoneIds = Arrays.copyOf(zoneIds, newLength);
+                zoneOffsets = Arrays.copyOf(zoneOffsets, newLength + 1);
+            }
+            zoneIds[zoneCount++] = zoneId;
+            zoneOffsets[zoneCount] = connectionCount;
+            return this;
+        }
+
+        /**
+         * Adds a whole zone from scratch buffers, e.g. as an allocation sink.
+         */
+        public void addZone(long zoneId, double amount, long[] ids, double[] zoneAmounts, int count) {
+            for (int i = 0; i < count; i++) {
+                addConnection(ids[i], zoneAmounts[i]);
+            }
+            endZone(zoneId);
+        }
+
+        public int getZoneCount() {
+            return zoneCount;
+        }
+
+        // Copy of an added zone, it does not change when the builder grows
+        public ZoneAllocation zone(int z) {
+            ZoneAllocation allocation = new ZoneAllocation(zoneIds[z]);
+            for (int i = zoneOffsets[z]; i < zoneOffsets[z + 1]; i++) {
+                allocation.addConnectionAllocation(connectionIds[i], amounts[i]);
+            }
+            return allocation;
+        }
+
+        // Arrays that are already full are handed over without a copy
+        public CompactAllocation build() {
+            return new CompactAllocation(trim(zoneIds, zoneCount), trim(zoneOffsets, zoneCount + 1),
+                    trim(connectionIds, connectionCount), trim(amounts, connectionCount));
+        }
+
+        private static long[] trim(long[] array, int length) {
+            return array.length == length ? array : Arrays.copyOf(array, length);
+        }
+
+        private static int[] trim(int[] array, int length) {
+            return array.length == length ? array : Arrays.copyOf(array, length);
+        }
+
+        private static double[] trim(double[] array, int length) {
+            return array.length == length ? array : Arrays.copyOf(array, length);
+        }
+    }
+}
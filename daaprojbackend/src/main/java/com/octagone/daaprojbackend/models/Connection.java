@@ -8,7 +8,8 @@ import jakarta.persistence.*;
 })
 public class Connection {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "connections_seq")
+    @SequenceGenerator(name = "connections_seq", sequenceName = "connections_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -0,0 +1,124 @@
+package com.octagone.daaprojbackend.models;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Capacity and demand profiles of a multi-period allocation. The value of a
+ * source or zone in period {@code p} is its own profile entry if it has one,
+ * otherwise its stored capacity or demand times the factor of period
+ * {@code p}, or unchanged when no factors are given.
+ *
+ * By default each period is warm-started from the residual state of the
+ * previous one, which is much cheaper when few values change between periods
+ * but may differ from a fresh allocation; {@code warmStart=false} allocates
+ * every period from scratch. Responses carry per-period totals only unless
+ * {@code details} is set.
+ */
+public class HorizonRequest {
+
+    // A year of hourly periods
+    public static final int MAX_PERIODS = 8760;
+
+    private int periods = 24;
+    private double[] capacityFactors;
+    private double[] demandFactors;
+    private Map<Long, double[]> sourceCapacity = new LinkedHashMap<>();
+    private Map<Long, double[]> zoneDemand = new LinkedHashMap<>();
+    private boolean warmStart = true;
+    private boolean details;
+
+    public int getPeriods() {
+        return periods;
+    }
+
+    public HorizonRequest setPeriods(int periods) {
+        this.periods = periods;
+        return this;
+    }
+
+    public double[] getCapacityFactors() {
+        return capacityFactors;
+    }
+
+    public HorizonRequest setCapacityFactors(double[] capacityFactors) {
+        this.capacityFactors = capacityFactors;
+        return this;
+    }
+
+    public double[] getDemandFactors() {
+        return demandFactors;
+    }
+
+    public HorizonRequest setDemandFactors(double[] demandFactors) {
+        this.demandFactors = demandFactors;
+        return this;
+    }
+
+    // Capacity per period, by source id
+    public Map<Long, double[]> getSourceCapacity() {
+        return sourceCapacity;
+    }
+
+    public HorizonRequest setSourceCapacity(Map<Long, double[]> sourceCapacity) {
+        this.sourceCapacity = sourceCapacity;
+        return this;
+    }
+
+    // Demand per period, by zone id
+    public Map<Long, double[]> getZoneDemand() {
+        return zoneDemand;
+    }
+
+    public HorizonRequest setZoneDemand(Map<Long, double[]> zoneDemand) {
+        this.zoneDemand = zoneDemand;
+        return this;
+    }
+
+    public boolean isWarmStart() {
+        return warmStart;
+    }
+
+    public HorizonRequest setWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+        return this;
+    }
+
+    // Zone allocations of every period, not only the totals
+    public boolean isDetails() {
+        return details;
+    }
+
+    public HorizonRequest setDetails(boolean details) {
+        this.details = details;
+        return this;
+    }
+
+    public void validate() {
+        if (periods <= 0 || periods > MAX_PERIODS) {
+            throw new IllegalArgumentException("periods must be between 1 and " + MAX_PERIODS);
+        }
+        validateProfile("capacityFactors", capacityFactors);
+        validateProfile("demandFactors", demandFactors);
+        if (sourceCapacity != null) {
+            sourceCapacity.forEach((id, profile) -> validateProfile("Capacity profile of source " + id, profile));
+        }
+        if (zoneDemand != null) {
+            zoneDemand.forEach((id, profile) -> validateProfile("Demand profile of zone " + id, profile));
+        }
+    }
+
+    private void validateProfile(String name, double[] profile) {
+        if (profile == null) {
+            return;
+        }
+        if (profile.length != periods) {
+            throw new IllegalArgumentException(name + " must have one value per period");
+        }
+        for (double value : profile) {
+            if (!(value >= 0) || Double.isInfinite(value)) {
+                throw new IllegalArgumentException(name + " must not contain negative or non-finite values");
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.octagone.daaprojbackend.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Allocation of every period of a horizon, in period order. Periods only
+ * carry their zone allocations when the request asked for details.
+ */
+public class HorizonResponse {
+    private final List<Period> periods;
+
+    public HorizonResponse(List<Period> periods) {
+        this.periods = periods;
+    }
+
+    public List<Period> getPeriods() {
+        return periods;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Period {
+        private final int period;
+        private final double totalDemand;
+        private final double totalAllocated;
+        private final AllocationResponse allocation;
+
+        public Period(int period, double totalDemand, double totalAllocated, AllocationResponse allocation) {
+            this.period = period;
+            this.totalDemand = totalDemand;
+            this.totalAllocated = totalAllocated;
+            this.allocation = allocation;
+        }
+
+        public int getPeriod() {
+            return period;
+        }
+
+        public double getTotalDemand() {
+            return totalDemand;
+        }
+
+        public double getTotalAllocated() {
+            return totalAllocated;
+        }
+
+        // Null for totals only
+        public List<ZoneAllocation> getAllocations() {
+            return allocation == null ? null : allocation.getAllocations();
+        }
+    }
+}
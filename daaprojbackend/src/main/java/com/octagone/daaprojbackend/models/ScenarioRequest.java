@@ -0,0 +1,158 @@
+package com.octagone.daaprojbackend.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of what-if scenarios over the current network. Scenarios are either
+ * listed as explicit perturbations or, when none are listed, drawn at random:
+ * every zone's demand is scaled by a factor uniform in {@code [1 - demandSigma,
+ * 1 + demandSigma]} and every source is offline with probability
+ * {@code sourceOutageProbability}. Random scenarios are reproducible from the seed.
+ */
+public class ScenarioRequest {
+
+    public static final int MAX_SCENARIOS = 100_000;
+
+    private int scenarios = 1000;
+    private long seed = 42;
+    private double demandSigma = 0.1;
+    private double sourceOutageProbability = 0.0;
+    private List<Perturbation> perturbations = new ArrayList<>();
+    // Zones listed in the response, those most likely to fall short first
+    private int maxZones = 100;
+
+    public int getScenarios() {
+        return scenarios;
+    }
+
+    public ScenarioRequest setScenarios(int scenarios) {
+        this.scenarios = scenarios;
+        return this;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public ScenarioRequest setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public double getDemandSigma() {
+        return demandSigma;
+    }
+
+    public ScenarioRequest setDemandSigma(double demandSigma) {
+        this.demandSigma = demandSigma;
+        return this;
+    }
+
+    public double getSourceOutageProbability() {
+        return sourceOutageProbability;
+    }
+
+    public ScenarioRequest setSourceOutageProbability(double sourceOutageProbability) {
+        this.sourceOutageProbability = sourceOutageProbability;
+        return this;
+    }
+
+    public List<Perturbation> getPerturbations() {
+        return perturbations;
+    }
+
+    public ScenarioRequest setPerturbations(List<Perturbation> perturbations) {
+        this.perturbations = perturbations;
+        return this;
+    }
+
+    public int getMaxZones() {
+        return maxZones;
+    }
+
+    public ScenarioRequest setMaxZones(int maxZones) {
+        this.maxZones = maxZones;
+        return this;
+    }
+
+    public boolean hasPerturbations() {
+        return perturbations != null && !perturbations.isEmpty();
+    }
+
+    // Number of scenarios the batch evaluates
+    public int scenarioCount() {
+        return hasPerturbations() ? perturbations.size() : scenarios;
+    }
+
+    public void validate() {
+        if (scenarioCount() <= 0 || scenarioCount() > MAX_SCENARIOS) {
+            throw new IllegalArgumentException("The number of scenarios must be between 1 and " + MAX_SCENARIOS);
+        }
+        if (!(demandSigma >= 0 && demandSigma <= 1)) {
+            throw new IllegalArgumentException("demandSigma must be between 0 and 1");
+        }
+        if (!(sourceOutageProbability >= 0 && sourceOutageProbability <= 1)) {
+            throw new IllegalArgumentException("sourceOutageProbability must be between 0 and 1");
+        }
+        if (maxZones < 0) {
+            throw new IllegalArgumentException("maxZones must not be negative");
+        }
+        if (hasPerturbations()) {
+            for (Perturbation perturbation : perturbations) {
+                perturbation.validate();
+            }
+        }
+    }
+
+    /**
+     * One explicit scenario: demand factors for all zones and for single zones,
+     * which take precedence, and the sources that are offline.
+     */
+    public static class Perturbation {
+        private double demandFactor = 1.0;
+        private Map<Long, Double> zoneDemandFactors = new LinkedHashMap<>();
+        private List<Long> offlineSources = new ArrayList<>();
+
+        public double getDemandFactor() {
+            return demandFactor;
+        }
+
+        public Perturbation setDemandFactor(double demandFactor) {
+            this.demandFactor = demandFactor;
+            return this;
+        }
+
+        public Map<Long, Double> getZoneDemandFactors() {
+            return zoneDemandFactors;
+        }
+
+        public Perturbation setZoneDemandFactors(Map<Long, Double> zoneDemandFactors) {
+            this.zoneDemandFactors = zoneDemandFactors;
+            return this;
+        }
+
+        public List<Long> getOfflineSources() {
+            return offlineSources;
+        }
+
+        public Perturbation setOfflineSources(List<Long> offlineSources) {
+            this.offlineSources = offlineSources;
+            return this;
+        }
+
+        void validate() {
+            boolean invalid = !(demandFactor >= 0) || Double.isInfinite(demandFactor);
+            if (zoneDemandFactors != null) {
+                for (Double factor : zoneDemandFactors.values()) {
+                    invalid |= factor == null || !(factor >= 0) || Double.isInfinite(factor);
+                }
+            }
+            if (invalid) {
+                throw new IllegalArgumentException("Demand factors must be finite and not negative");
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.octagone.daaprojbackend.models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated outcome of a scenario batch: the distribution of the satisfaction
+ * rate and, per zone, how often and by how much its demand was not met. Its
+ * size depends on the number of zones listed, not on the number of scenarios.
+ */
+public class ScenarioResponse {
+    private final int scenarios;
+    private final long networkVersion;
+    private final double meanSatisfactionRate;
+    private final double minSatisfactionRate;
+    private final double maxSatisfactionRate;
+    private final Map<String, Double> satisfactionPercentiles;
+    private final int zonesWithShortfall;
+    private final List<ZoneShortfall> zones;
+
+    public ScenarioResponse(int scenarios, long networkVersion, double meanSatisfactionRate,
+            double minSatisfactionRate, double maxSatisfactionRate, Map<String, Double> satisfactionPercentiles,
+            int zonesWithShortfall, List<ZoneShortfall> zones) {
+        this.scenarios = scenarios;
+        this.networkVersion = networkVersion;
+        this.meanSatisfactionRate = meanSatisfactionRate;
+        this.minSatisfactionRate = minSatisfactionRate;
+        this.maxSatisfactionRate = maxSatisfactionRate;
+        this.satisfactionPercentiles = satisfactionPercentiles;
+        this.zonesWithShortfall = zonesWithShortfall;
+        this.zones = zones;
+    }
+
+    public int getScenarios() {
+        return scenarios;
+    }
+
+    public long getNetworkVersion() {
+        return networkVersion;
+    }
+
+    public double getMeanSatisfactionRate() {
+        return meanSatisfactionRate;
+    }
+
+    public double getMinSatisfactionRate() {
+        return minSatisfactionRate;
+    }
+
+    public double getMaxSatisfactionRate() {
+        return maxSatisfactionRate;
+    }
+
+    // Satisfaction rate in percent by percentile, e.g. "p5"
+    public Map<String, Double> getSatisfactionPercentiles() {
+        return satisfactionPercentiles;
+    }
+
+    // Zones that fell short in at least one scenario
+    public int getZonesWithShortfall() {
+        return zonesWithShortfall;
+    }
+
+    public List<ZoneShortfall> getZones() {
+        return zones;
+    }
+
+    public static class ZoneShortfall {
+        private final long zoneId;
+        private final double shortfallProbability;
+        private final double meanShortfall;
+
+        public ZoneShortfall(long zoneId, double shortfallProbability, double meanShortfall) {
+            this.zoneId = zoneId;
+            this.shortfallProbability = shortfallProbability;
+            this.meanShortfall = meanShortfall;
+        }
+
+        public long getZoneId() {
+            return zoneId;
+        }
+
+        // Share of the scenarios in which the zone's demand was not fully met
+        public double getShortfallProbability() {
+            return shortfallProbability;
+        }
+
+        // Unmet demand averaged over all scenarios
+        public double getMeanShortfall() {
+            return meanShortfall;
+        }
+    }
+}
@@ -6,7 +6,8 @@ import jakarta.persistence.*;
 @Table(name = "sources")
 public class Source {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sources_seq")
+    @SequenceGenerator(name = "sources_seq", sequenceName = "sources_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "capacity", nullable = false)
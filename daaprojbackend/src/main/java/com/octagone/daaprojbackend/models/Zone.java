@@ -6,7 +6,8 @@ import jakarta.persistence.*;
 @Table(name = "zones")
 public class Zone {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "zones_seq")
+    @SequenceGenerator(name = "zones_seq", sequenceName = "zones_seq", allocationSize = 50)
     private Long id;
 
     private double demand;
@@ -1,18 +1,52 @@
 package com.octagone.daaprojbackend.models;
 
-import java.util.ArrayList;
+import com.octagone.daaprojbackend.util.LongIntHashMap;
+
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
+/**
+ * Water allocated to one zone, per connection. Entries are kept in parallel
+ * primitive arrays and allocations through a connection that is already
+ * listed are merged into its entry. A zone of a {@link CompactAllocation}
+ * is a view over the shared columns until it is modified.
+ */
 public class ZoneAllocation {
+
+    private static final long[] NO_IDS = new long[0];
+    private static final double[] NO_AMOUNTS = new double[0];
+    // Zones with more connections look entries up through a hash index instead of a scan
+    private static final int INDEX_THRESHOLD = 8;
+
     private Long zoneId;
     private double amount;
-    private List<ConnectionAllocation> connectionAllocations;
+    // Connection allocations are the entries [from, to) of these arrays
+    private long[] connectionIds;
+    private double[] amounts;
+    private int from;
+    private int to;
+    private boolean shared;
+    private LongIntHashMap index;
 
     // Constructor
     public ZoneAllocation(Long zoneId) {
         this.zoneId = zoneId;
         this.amount = 0;
-        this.connectionAllocations = new ArrayList<>();
+        this.connectionIds = NO_IDS;
+        this.amounts = NO_AMOUNTS;
+    }
+
+    // View of zone z of a compact allocation
+    ZoneAllocation(CompactAllocation compact, int z) {
+        this.zoneId = compact.getZoneIds()[z];
+        this.amount = compact.zoneAmount(z);
+        this.connectionIds = compact.getConnectionIds();
+        this.amounts = compact.getAmounts();
+        this.from = compact.getZoneOffsets()[z];
+        this.to = compact.getZoneOffsets()[z + 1];
+        this.shared = true;
     }
 
     // Getters
@@ -24,21 +58,119 @@ public class ZoneAllocation {
         return amount;
     }
 
+    /**
+     * Read-only view of the entries; the elements are created on access.
+     */
     public List<ConnectionAllocation> getConnectionAllocations() {
-        return connectionAllocations;
+        return new ConnectionAllocationList();
+    }
+
+    // Primitive access to the entries, without creating ConnectionAllocation objects
+    public int connectionCount() {
+        return to - from;
+    }
+
+    public long connectionId(int i) {
+        return connectionIds[from + i];
+    }
+
+    public double connectionAmount(int i) {
+        return amounts[from + i];
     }
 
     // Setters
     public void setZoneId(Long zoneId) {
+        if (shared) {
+            unshare();
+        }
         this.zoneId = zoneId;
     }
 
     public void setAmount(double amount) {
+        if (shared) {
+            unshare();
+        }
         this.amount = amount;
     }
 
+    // Still an unmodified view over the columns of a compact allocation
+    boolean isShared() {
+        return shared;
+    }
+
     public void addConnectionAllocation(Long connectionId, double amount) {
-        this.connectionAllocations.add(new ConnectionAllocation(connectionId, amount));
+        if (shared) {
+            unshare();
+        }
+        int existing = find(connectionId);
+        if (existing >= 0) {
+            amounts[existing] += amount;
+        } else {
+            append(connectionId, amount);
+        }
         this.amount += amount;
     }
+
+    private int find(long connectionId) {
+        if (index != null) {
+            return index.get(connectionId, -1);
+        }
+        for (int i = 0; i < to; i++) {
+            if (connectionIds[i] == connectionId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void append(long connectionId, double amount) {
+        if (to == connectionIds.length) {
+            int newLength = Math.max(4, to + (to >> 1));
+            connectionIds = Arrays.copyOf(connectionIds, newLength);
+            amounts = Arrays.copyOf(amounts, newLength);
+        }
+        connectionIds[to] = connectionId;
+        amounts[to] = amount;
+        if (index != null) {
+            index.put(connectionId, to, -1);
+        }
+        to++;
+        if (index == null && to > INDEX_THRESHOLD) {
+            buildIndex();
+        }
+    }
+
+    // Copies the entries out of the compact columns before the first modification
+    private void unshare() {
+        connectionIds = Arrays.copyOfRange(connectionIds, from, to);
+        amounts = Arrays.copyOfRange(amounts, from, to);
+        to -= from;
+        from = 0;
+        shared = false;
+        if (to > INDEX_THRESHOLD) {
+            buildIndex();
+        }
+    }
+
+    private void buildIndex() {
+        index = new LongIntHashMap(to);
+        for (int i = 0; i < to; i++) {
+            index.put(connectionIds[i], i, -1);
+        }
+    }
+
+    private final class ConnectionAllocationList extends AbstractList<ConnectionAllocation> implements RandomAccess {
+        @Override
+        public ConnectionAllocation get(int i) {
+            if (i < 0 || i >= size()) {
+                throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size());
+            }
+            return new ConnectionAllocation(connectionId(i), connectionAmount(i));
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
 }
@@ -0,0 +1,318 @@
+package com.octagone.daaprojbackend.network;
+
+import com.octagone.daaprojbackend.util.IndexSort;
+
+/**
+ * Repairs an {@link AllocationState} in place when capacities, demands,
+ * priorities or costs change, instead of allocating again from scratch.
+ *
+ * A change only releases and re-greedies the connections of the touched zone
+ * or source, and of the sources whose capacity it frees, so it costs time
+ * proportional to their connections rather than to the whole network. The
+ * connections of every zone and every source are kept sorted by weighted
+ * cost; a cost or priority change only moves the connections it re-prices
+ * within their rows. Changes are grouped into repairs: {@link #begin()}, any
+ * number of changes, then {@link #finish()}, which hands the capacity freed
+ * along the way to zones that still have unmet demand.
+ *
+ * The result is a valid allocation, but not necessarily the one a fresh run
+ * with the new values would produce. Not thread safe.
+ */
+public final class AllocationRepair {
+
+    private static final double EPSILON = 1e-9;
+
+    private final CompiledNetwork network;
+    private final AllocationState state;
+
+    // Current attribute values, updated in place as changes arrive
+    private final double[] capacity;
+    private final double[] demand;
+    private final int[] priority;
+    private final double[] cost;
+    private final double[] weightedCost;
+
+    // CSR rows of the network, each kept sorted by current weighted cost
+    private final int[] zoneRows;
+    private final int[] sourceRows;
+
+    // Zones and sources of the current repair
+    private final boolean[] touchedZone;
+    private final int[] touchedZones;
+    private int touchedCount;
+    private final boolean[] freedSource;
+    private final int[] freedSources;
+    private int freedCount;
+
+    /**
+     * Takes over a state allocated for the given capacities and demands; the
+     * priorities and costs are those of the state's network. The arrays are
+     * used, and updated, in place.
+     */
+    public AllocationRepair(AllocationState state, double[] capacity, double[] demand) {
+        this.network = state.getNetwork();
+        this.state = state;
+        this.capacity = capacity;
+        this.demand = demand;
+        this.priority = network.getPriority().clone();
+        this.cost = network.getCost().clone();
+        this.weightedCost = network.getWeightedCost().clone();
+        this.zoneRows = sortedRows(network.getZoneOffsets(), network.getZoneConnections());
+        this.sourceRows = sortedRows(network.getSourceOffsets(), network.getSourceConnections());
+        this.touchedZone = new boolean[network.getZoneCount()];
+        this.touchedZones = new int[network.getZoneCount()];
+        this.freedSource = new boolean[network.getSourceCount()];
+        this.freedSources = new int[network.getSourceCount()];
+    }
+
+    public AllocationState getState() {
+        return state;
+    }
+
+    public double[] getCapacity() {
+        return capacity;
+    }
+
+    public double[] getDemand() {
+        return demand;
+    }
+
+    public int[] getPriority() {
+        return priority;
+    }
+
+    public void begin() {
+        touchedCount = 0;
+        freedCount = 0;
+    }
+
+    /**
+     * Ends the repair and returns the number of zones it touched, which are
+     * the first entries of {@link #getTouchedZones()} until the next repair.
+     */
+    public int finish() {
+        // Capacity released during the repair goes to zones that still have unmet demand
+        for (int i = 0; i < freedCount; i++) {
+            int s = freedSources[i];
+            freedSource[s] = false;
+            refillFromSource(s);
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            touchedZone[touchedZones[i]] = false;
+        }
+        return touchedCount;
+    }
+
+    public int[] getTouchedZones() {
+        return touchedZones;
+    }
+
+    public void setZoneDemand(int z, double newDemand) {
+        setZone(z, newDemand, priority[z]);
+    }
+
+    public void setZone(int z, double newDemand, int newPriority) {
+        double[] remaining = state.getRemainingDemand();
+        double allocated = demand[z] - remaining[z];
+
+        if (newPriority != priority[z]) {
+            // A new priority reorders every connection of the zone, so hand all of its water back first
+            priority[z] = newPriority;
+            // One connection at a time, so every row has at most one entry out of place
+            for (int i = network.getZoneOffsets()[z]; i < network.getZoneOffsets()[z + 1]; i++) {
+                int c = network.getZoneConnections()[i];
+                weightedCost[c] = cost[c] / priority[z];
+                reorder(c);
+            }
+            releaseFromZone(z, allocated);
+            allocated = 0;
+        }
+
+        demand[z] = newDemand;
+        if (demand[z] < allocated - EPSILON) {
+            releaseFromZone(z, allocated - demand[z]);
+        } else {
+            remaining[z] = demand[z] - allocated;
+            touch(z);
+            refillZone(z);
+        }
+    }
+
+    public void setSourceCapacity(int s, double newCapacity) {
+        double[] residual = state.getResidualCapacity();
+        double used = capacity[s] - residual[s];
+        capacity[s] = newCapacity;
+        if (capacity[s] < used - EPSILON) {
+            residual[s] = 0;
+            releaseFromSource(s, used - capacity[s]);
+        } else {
+            residual[s] = capacity[s] - used;
+            refillFromSource(s);
+        }
+    }
+
+    public void setConnectionCost(int c, double newCost) {
+        int s = network.getConnSrc()[c];
+        int z = network.getConnZone()[c];
+        double[] flow = state.getFlow();
+        cost[c] = newCost;
+        weightedCost[c] = cost[c] / priority[z];
+        reorder(c);
+
+        // Release the connection entirely and let the zone pick its cheapest connections again
+        double released = flow[c];
+        flow[c] = 0;
+        state.getResidualCapacity()[s] += released;
+        state.getRemainingDemand()[z] += released;
+        touch(z);
+        refillZone(z);
+        refillFromSource(s);
+    }
+
+    private void touch(int z) {
+        if (!touchedZone[z]) {
+            touchedZone[z] = true;
+            touchedZones[touchedCount++] = z;
+        }
+    }
+
+    // Takes water away from a zone, most expensive connections first; the freed capacity is redistributed later
+    private void releaseFromZone(int z, double amount) {
+        int from = network.getZoneOffsets()[z];
+        double[] flow = state.getFlow();
+        double[] residual = state.getResidualCapacity();
+        touch(z);
+
+        for (int i = network.getZoneOffsets()[z + 1] - 1; i >= from && amount > EPSILON; i--) {
+            int c = zoneRows[i];
+            double released = Math.min(flow[c], amount);
+            if (released > EPSILON) {
+                int s = network.getConnSrc()[c];
+                flow[c] -= released;
+                residual[s] += released;
+                amount -= released;
+                if (!freedSource[s]) {
+                    freedSource[s] = true;
+                    freedSources[freedCount++] = s;
+                }
+            }
+        }
+        double[] remaining = state.getRemainingDemand();
+        remaining[z] = Math.max(0, demand[z] - allocatedTo(z));
+    }
+
+    // Takes water away from a source's zones, most expensive connections first, and lets them refill elsewhere
+    private void releaseFromSource(int s, double amount) {
+        int from = network.getSourceOffsets()[s];
+        int to = network.getSourceOffsets()[s + 1];
+        double[] flow = state.getFlow();
+        double[] remaining = state.getRemainingDemand();
+
+        int affectedZones = 0;
+        int[] affected = new int[to - from];
+        for (int i = to - 1; i >= from && amount > EPSILON; i--) {
+            int c = sourceRows[i];
+            double released = Math.min(flow[c], amount);
+            if (released > EPSILON) {
+                int z = network.getConnZone()[c];
+                flow[c] -= released;
+                remaining[z] += released;
+                amount -= released;
+                affected[affectedZones++] = z;
+                touch(z);
+            }
+        }
+        for (int i = 0; i < affectedZones; i++) {
+            refillZone(affected[i]);
+        }
+    }
+
+    // Greedily fills a zone's remaining demand from its cheapest connections
+    private void refillZone(int z) {
+        double[] remaining = state.getRemainingDemand();
+        if (remaining[z] <= EPSILON) {
+            return;
+        }
+        double[] flow = state.getFlow();
+        double[] residual = state.getResidualCapacity();
+        for (int i = network.getZoneOffsets()[z]; i < network.getZoneOffsets()[z + 1] && remaining[z] > EPSILON; i++) {
+            int c = zoneRows[i];
+            int s = network.getConnSrc()[c];
+            double allocation = Math.min(remaining[z], residual[s]);
+            if (allocation > EPSILON) {
+                flow[c] += allocation;
+                residual[s] -= allocation;
+                remaining[z] -= allocation;
+                touch(z);
+            }
+        }
+    }
+
+    // Offers a source's spare capacity to its zones with unmet demand, cheapest connections first
+    private void refillFromSource(int s) {
+        double[] residual = state.getResidualCapacity();
+        if (residual[s] <= EPSILON) {
+            return;
+        }
+        double[] flow = state.getFlow();
+        double[] remaining = state.getRemainingDemand();
+        for (int i = network.getSourceOffsets()[s]; i < network.getSourceOffsets()[s + 1] && residual[s] > EPSILON; i++) {
+            int c = sourceRows[i];
+            int z = network.getConnZone()[c];
+            double allocation = Math.min(remaining[z], residual[s]);
+            if (allocation > EPSILON) {
+                flow[c] += allocation;
+                residual[s] -= allocation;
+                remaining[z] -= allocation;
+                touch(z);
+            }
+        }
+    }
+
+    private double allocatedTo(int z) {
+        double total = 0;
+        for (int i = network.getZoneOffsets()[z]; i < network.getZoneOffsets()[z + 1]; i++) {
+            total += state.getFlow()[network.getZoneConnections()[i]];
+        }
+        return total;
+    }
+
+    // Copies the CSR rows of a network, each sorted by weighted cost
+    private int[] sortedRows(int[] offsets, int[] grouped) {
+        int[] rows = grouped.clone();
+        for (int g = 0; g + 1 < offsets.length; g++) {
+            IndexSort.sortByKey(rows, offsets[g], offsets[g + 1], weightedCost);
+        }
+        return rows;
+    }
+
+    // Moves a re-priced connection to its place in its zone row and its source row
+    private void reorder(int c) {
+        int z = network.getConnZone()[c];
+        int s = network.getConnSrc()[c];
+        reposition(zoneRows, network.getZoneOffsets()[z], network.getZoneOffsets()[z + 1], c);
+        reposition(sourceRows, network.getSourceOffsets()[s], network.getSourceOffsets()[s + 1], c);
+    }
+
+    // One insertion step: the rest of the row is still sorted, so c only has to move past its new neighbours
+    private void reposition(int[] rows, int from, int to, int c) {
+        int p = from;
+        while (rows[p] != c) {
+            p++;
+        }
+        while (p > from && before(c, rows[p - 1])) {
+            rows[p] = rows[p - 1];
+            p--;
+        }
+        while (p + 1 < to && before(rows[p + 1], c)) {
+            rows[p] = rows[p + 1];
+            p++;
+        }
+        rows[p] = c;
+    }
+
+    // Same order as IndexSort.sortByKey
+    private boolean before(int a, int b) {
+        return weightedCost[a] < weightedCost[b] || (weightedCost[a] == weightedCost[b] && a < b);
+    }
+}
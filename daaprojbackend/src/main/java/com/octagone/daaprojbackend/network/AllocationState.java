@@ -0,0 +1,94 @@
+package com.octagone.daaprojbackend.network;
+
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+
+/**
+ * Mutable residual state of one allocation over a {@link CompiledNetwork}.
+ *
+ * Holds the remaining capacity of every source, the remaining demand of every
+ * zone and the flow on every connection, all keyed by network index. The
+ * network itself is never modified, so any number of states can share it.
+ */
+public final class AllocationState {
+
+    private static final double EPSILON = 1e-9;
+
+    private final CompiledNetwork network;
+    private final double[] residualCapacity;
+    private final double[] remainingDemand;
+    private final double[] flow;
+
+    public AllocationState(CompiledNetwork network, double[] residualCapacity, double[] remainingDemand,
+            double[] flow) {
+        this.network = network;
+        this.residualCapacity = residualCapacity;
+        this.remainingDemand = remainingDemand;
+        this.flow = flow;
+    }
+
+    public CompiledNetwork getNetwork() {
+        return network;
+    }
+
+    public double[] getResidualCapacity() {
+        return residualCapacity;
+    }
+
+    public double[] getRemainingDemand() {
+        return remainingDemand;
+    }
+
+    public double[] getFlow() {
+        return flow;
+    }
+
+    /**
+     * Current allocation of one zone, {@code null} if nothing flows into it.
+     */
+    public ZoneAllocation zoneAllocation(int zone) {
+        int[] zoneOffsets = network.getZoneOffsets();
+        int[] zoneConnections = network.getZoneConnections();
+        long[] connectionIds = network.getConnectionIds();
+        ZoneAllocation allocation = null;
+        for (int i = zoneOffsets[zone]; i < zoneOffsets[zone + 1]; i++) {
+            int c = zoneConnections[i];
+            if (flow[c] > EPSILON) {
+                if (allocation == null) {
+                    allocation = new ZoneAllocation(network.getZoneIds()[zone]);
+                }
+                allocation.addConnectionAllocation(connectionIds[c], flow[c]);
+            }
+        }
+        return allocation;
+    }
+
+    public AllocationResponse toResponse() {
+        return new AllocationResponse(toCompact());
+    }
+
+    /**
+     * Snapshot of the current flows; later changes to the state do not affect it.
+     */
+    public CompactAllocation toCompact() {
+        int[] zoneOffsets = network.getZoneOffsets();
+        int[] zoneConnections = network.getZoneConnections();
+        long[] connectionIds = network.getConnectionIds();
+        CompactAllocation.Builder builder = new CompactAllocation.Builder(network.getZoneCount(), network.getZoneCount());
+        for (int z = 0; z < network.getZoneCount(); z++) {
+            boolean allocated = false;
+            for (int i = zoneOffsets[z]; i < zoneOffsets[z + 1]; i++) {
+                int c = zoneConnections[i];
+                if (flow[c] > EPSILON) {
+                    builder.addConnection(connectionIds[c], flow[c]);
+                    allocated = true;
+                }
+            }
+            if (allocated) {
+                builder.endZone(network.getZoneIds()[z]);
+            }
+        }
+        return builder.build();
+    }
+}
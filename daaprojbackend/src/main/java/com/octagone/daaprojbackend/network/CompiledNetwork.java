@@ -0,0 +1,468 @@
+package com.octagone.daaprojbackend.network;
+
+import com.octagone.daaprojbackend.models.Connection;
+import com.octagone.daaprojbackend.models.Source;
+import com.octagone.daaprojbackend.models.Zone;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable, index-remapped view of a water network.
+ *
+ * Sources, zones and connections are stored in dense primitive arrays ordered
+ * by entity id, so the position of an entity is its index and ids are resolved
+ * with a binary search. Connections are additionally grouped by zone and by
+ * source in CSR (compressed sparse row) form: the connections of zone {@code z}
+ * are {@code zoneConnections[zoneOffsets[z] .. zoneOffsets[z + 1])}.
+ *
+ * The arrays returned by the getters are shared and must not be modified.
+ */
+public final class CompiledNetwork {
+
+    private final long version;
+
+    private final long[] sourceIds;
+    private final double[] capacity;
+
+    private final long[] zoneIds;
+    private final double[] demand;
+    private final int[] priority;
+
+    private final long[] connectionIds;
+    private final int[] connSrc;
+    private final int[] connZone;
+    private final double[] cost;
+    private final double[] weightedCost;
+
+    private final int[] zoneOffsets;
+    private final int[] zoneConnections;
+    private final int[] sourceOffsets;
+    private final int[] sourceConnections;
+
+    // Sorted on first use, or derived from an earlier snapshot
+    private volatile ConnectionOrder connectionOrder;
+
+    // Built on first use by the parallel strategy
+    private volatile NetworkPartition partition;
+
+    private CompiledNetwork(long version, long[] sourceIds, double[] capacity, long[] zoneIds, double[] demand,
+            int[] priority, long[] connectionIds, int[] connSrc, int[] connZone, double[] cost) {
+        this.version = version;
+        this.sourceIds = sourceIds;
+        this.capacity = capacity;
+        this.zoneIds = zoneIds;
+        this.demand = demand;
+        this.priority = priority;
+        this.connectionIds = connectionIds;
+        this.connSrc = connSrc;
+        this.connZone = connZone;
+        this.cost = cost;
+
+        int connectionCount = connectionIds.length;
+        this.weightedCost = new double[connectionCount];
+        for (int c = 0; c < connectionCount; c++) {
+            weightedCost[c] = cost[c] / priority[connZone[c]];
+        }
+
+        this.zoneOffsets = new int[zoneIds.length + 1];
+        this.zoneConnections = new int[connectionCount];
+        groupBy(connZone, zoneOffsets, zoneConnections);
+
+        this.sourceOffsets = new int[sourceIds.length + 1];
+        this.sourceConnections = new int[connectionCount];
+        groupBy(connSrc, sourceOffsets, sourceConnections);
+    }
+
+    /**
+     * Compiles entity lists into a network with version 0.
+     */
+    public static CompiledNetwork of(List<Source> sources, List<Zone> zones, List<Connection> connections) {
+        if (sources == null || zones == null || connections == null) {
+            throw new IllegalArgumentException("Sources, Zones, and Connections cannot be null.");
+        }
+        Builder builder = new Builder(sources.size(), zones.size(), connections.size());
+        for (Source source : sources) {
+            builder.addSource(source.getId(), source.getCapacity());
+        }
+        for (Zone zone : zones) {
+            builder.addZone(zone.getId(), zone.getDemand(), zone.getPriority());
+        }
+        for (Connection conn : connections) {
+            builder.addConnection(conn.getId(), conn.getSource().getId(), conn.getZone().getId(),
+                    conn.getCostPerUnit());
+        }
+        return builder.build(0);
+    }
+
+    /**
+     * Wraps arrays already in compiled form, e.g. read back from an archive,
+     * without copying them: ids ascending and unique, connections referring to
+     * sources and zones by index. Values are checked as in the {@link Builder};
+     * only the CSR groupings are rebuilt.
+     */
+    public static CompiledNetwork fromArrays(long version, long[] sourceIds, double[] capacity, long[] zoneIds,
+            double[] demand, int[] priority, long[] connectionIds, int[] connSrc, int[] connZone, double[] cost) {
+        if (capacity.length != sourceIds.length || demand.length != zoneIds.length || priority.length != zoneIds.length
+                || connSrc.length != connectionIds.length || connZone.length != connectionIds.length
+                || cost.length != connectionIds.length) {
+            throw new IllegalArgumentException("Network arrays have inconsistent lengths");
+        }
+        requireAscending(sourceIds, "Source");
+        requireAscending(zoneIds, "Zone");
+        requireAscending(connectionIds, "Connection");
+        for (int c = 0; c < connectionIds.length; c++) {
+            if (connSrc[c] < 0 || connSrc[c] >= sourceIds.length || connZone[c] < 0 || connZone[c] >= zoneIds.length) {
+                throw new IllegalArgumentException("Connection references unknown index: " + connectionIds[c]);
+            }
+            if (!isValidCost(cost[c])) {
+                throw new IllegalArgumentException("Connection has an invalid cost: " + connectionIds[c]);
+            }
+        }
+        for (int s = 0; s < sourceIds.length; s++) {
+            if (!isValidAmount(capacity[s])) {
+                throw new IllegalArgumentException("Source has an invalid capacity: " + sourceIds[s]);
+            }
+        }
+        for (int z = 0; z < zoneIds.length; z++) {
+            if (!isValidAmount(demand[z]) || priority[z] <= 0) {
+                throw new IllegalArgumentException("Zone has an invalid demand or priority: " + zoneIds[z]);
+            }
+        }
+        return new CompiledNetwork(version, sourceIds, capacity, zoneIds, demand, priority, connectionIds, connSrc,
+                connZone, cost);
+    }
+
+    // Same rules for built and wrapped networks; NaN fails both
+    private static boolean isValidAmount(double amount) {
+        return amount >= 0;
+    }
+
+    private static boolean isValidCost(double cost) {
+        return cost >= 0 && cost != Double.POSITIVE_INFINITY;
+    }
+
+    private static void requireAscending(long[] ids, String kind) {
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] <= ids[i - 1]) {
+                throw new IllegalArgumentException(kind + " ids must be unique and ascending");
+            }
+        }
+    }
+
+    // Counting sort of connection indices by owner, connections keep ascending order within a group
+    private static void groupBy(int[] owner, int[] offsets, int[] grouped) {
+        int groups = offsets.length - 1;
+        for (int c = 0; c < owner.length; c++) {
+            offsets[owner[c] + 1]++;
+        }
+        for (int g = 0; g < groups; g++) {
+            offsets[g + 1] += offsets[g];
+        }
+        int[] fill = Arrays.copyOf(offsets, groups);
+        for (int c = 0; c < owner.length; c++) {
+            grouped[fill[owner[c]]++] = c;
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getSourceCount() {
+        return sourceIds.length;
+    }
+
+    public int getZoneCount() {
+        return zoneIds.length;
+    }
+
+    public int getConnectionCount() {
+        return connectionIds.length;
+    }
+
+    public int sourceIndexOf(long sourceId) {
+        return Arrays.binarySearch(sourceIds, sourceId);
+    }
+
+    public int zoneIndexOf(long zoneId) {
+        return Arrays.binarySearch(zoneIds, zoneId);
+    }
+
+    public int connectionIndexOf(long connectionId) {
+        return Arrays.binarySearch(connectionIds, connectionId);
+    }
+
+    public long[] getSourceIds() {
+        return sourceIds;
+    }
+
+    public double[] getCapacity() {
+        return capacity;
+    }
+
+    public long[] getZoneIds() {
+        return zoneIds;
+    }
+
+    public double[] getDemand() {
+        return demand;
+    }
+
+    public int[] getPriority() {
+        return priority;
+    }
+
+    public long[] getConnectionIds() {
+        return connectionIds;
+    }
+
+    public int[] getConnSrc() {
+        return connSrc;
+    }
+
+    public int[] getConnZone() {
+        return connZone;
+    }
+
+    public double[] getCost() {
+        return cost;
+    }
+
+    public double[] getWeightedCost() {
+        return weightedCost;
+    }
+
+    public ConnectionOrder getConnectionOrder() {
+        ConnectionOrder order = connectionOrder;
+        if (order == null) {
+            order = ConnectionOrder.of(this);
+            connectionOrder = order;
+        }
+        return order;
+    }
+
+    // Connection indices in the order the greedy stage takes them
+    public int[] getGreedyOrder() {
+        return getConnectionOrder().getOrder();
+    }
+
+    /**
+     * Connected components packed into at most {@code maxTasks} tasks. The
+     * partition and the networks of its tasks are kept for later calls with
+     * the same task limit.
+     */
+    public NetworkPartition getPartition(int maxTasks) {
+        NetworkPartition cached = partition;
+        if (cached == null || cached.getMaxTasks() != maxTasks) {
+            cached = NetworkPartition.of(this, maxTasks);
+            partition = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Takes over the connection order of an earlier snapshot of the same
+     * topology, placing only the connections whose cost or zone priority
+     * changed instead of sorting them all again. Does nothing if the topology
+     * differs or the earlier snapshot was never ordered.
+     */
+    public void inheritConnectionOrder(CompiledNetwork previous) {
+        ConnectionOrder previousOrder = previous == null ? null : previous.connectionOrder;
+        if (previousOrder == null || connectionOrder != null || !Arrays.equals(zoneIds, previous.zoneIds)
+                || !Arrays.equals(connectionIds, previous.connectionIds) || !Arrays.equals(connZone, previous.connZone)) {
+            return;
+        }
+        connectionOrder = previousOrder.update(this);
+    }
+
+    public int[] getZoneOffsets() {
+        return zoneOffsets;
+    }
+
+    public int[] getZoneConnections() {
+        return zoneConnections;
+    }
+
+    public int[] getSourceOffsets() {
+        return sourceOffsets;
+    }
+
+    public int[] getSourceConnections() {
+        return sourceConnections;
+    }
+
+    /**
+     * Collects rows in growable primitive arrays and compiles them into a
+     * {@link CompiledNetwork}. Rows may arrive in any order; connections are
+     * resolved against source and zone ids when {@link #build(long)} is called.
+     */
+    public static final class Builder {
+        private long[] sourceIds;
+        private double[] capacity;
+        private int sourceCount;
+
+        private long[] zoneIds;
+        private double[] demand;
+        private int[] priority;
+        private int zoneCount;
+
+        private long[] connectionIds;
+        private long[] connSourceIds;
+        private long[] connZoneIds;
+        private double[] cost;
+        private int connectionCount;
+
+        public Builder() {
+            this(16, 16, 16);
+        }
+
+        public Builder(int expectedSources, int expectedZones, int expectedConnections) {
+            int sources = Math.max(1, expectedSources);
+            int zones = Math.max(1, expectedZones);
+            int connections = Math.max(1, expectedConnections);
+            sourceIds = new long[sources];
+            capacity = new double[sources];
+            zoneIds = new long[zones];
+            demand = new double[zones];
+            priority = new int[zones];
+            connectionIds = new long[connections];
+            connSourceIds = new long[connections];
+            connZoneIds = new long[connections];
+            cost = new double[connections];
+        }
+
+        public Builder addSource(long id, double sourceCapacity) {
+            if (!isValidAmount(sourceCapacity)) {
+                throw new IllegalArgumentException("Invalid input found");
+            }
+            if (sourceCount == sourceIds.length) {
+                int newLength = grow(sourceCount);
+                sourceIds = Arrays.copyOf(sourceIds, newLength);
+                capacity = Arrays.copyOf(capacity, newLength);
+            }
+            sourceIds[sourceCount] = id;
+            capacity[sourceCount] = sourceCapacity;
+            sourceCount++;
+            return this;
+        }
+
+        public Builder addZone(long id, double zoneDemand, int zonePriority) {
+            if (!isValidAmount(zoneDemand) || zonePriority <= 0) {
+                throw new IllegalArgumentException("Invalid input found");
+            }
+            if (zoneCount == zoneIds.length) {
+                int newLength = grow(zoneCount);
+                zoneIds = Arrays.copyOf(zoneIds, newLength);
+                demand = Arrays.copyOf(demand, newLength);
+                priority = Arrays.copyOf(priority, newLength);
+            }
+            zoneIds[zoneCount] = id;
+            demand[zoneCount] = zoneDemand;
+            priority[zoneCount] = zonePriority;
+            zoneCount++;
+            return this;
+        }
+
+        public Builder addConnection(long id, long sourceId, long zoneId, double costPerUnit) {
+            if (!isValidCost(costPerUnit)) {
+                throw new IllegalArgumentException("Invalid input found");
+            }
+            if (connectionCount == connectionIds.length) {
+                int newLength = grow(connectionCount);
+                connectionIds = Arrays.copyOf(connectionIds, newLength);
+                connSourceIds = Arrays.copyOf(connSourceIds, newLength);
+                connZoneIds = Arrays.copyOf(connZoneIds, newLength);
+                cost = Arrays.copyOf(cost, newLength);
+            }
+            connectionIds[connectionCount] = id;
+            connSourceIds[connectionCount] = sourceId;
+            connZoneIds[connectionCount] = zoneId;
+            cost[connectionCount] = costPerUnit;
+            connectionCount++;
+            return this;
+        }
+
+        public CompiledNetwork build(long version) {
+            int[] sourceOrder = sortedOrder(sourceIds, sourceCount);
+            long[] sortedSourceIds = permute(sourceIds, sourceOrder);
+            double[] sortedCapacity = permute(capacity, sourceOrder);
+
+            int[] zoneOrder = sortedOrder(zoneIds, zoneCount);
+            long[] sortedZoneIds = permute(zoneIds, zoneOrder);
+            double[] sortedDemand = permute(demand, zoneOrder);
+            int[] sortedPriority = new int[zoneCount];
+            for (int i = 0; i < zoneCount; i++) {
+                sortedPriority[i] = priority[zoneOrder[i]];
+            }
+
+            int[] connectionOrder = sortedOrder(connectionIds, connectionCount);
+            long[] sortedConnectionIds = permute(connectionIds, connectionOrder);
+            double[] sortedCost = permute(cost, connectionOrder);
+            int[] connSrc = new int[connectionCount];
+            int[] connZone = new int[connectionCount];
+            for (int i = 0; i < connectionCount; i++) {
+                int row = connectionOrder[i];
+                connSrc[i] = resolve(sortedSourceIds, connSourceIds[row]);
+                connZone[i] = resolve(sortedZoneIds, connZoneIds[row]);
+            }
+
+            return new CompiledNetwork(version, sortedSourceIds, sortedCapacity, sortedZoneIds, sortedDemand,
+                    sortedPriority, sortedConnectionIds, connSrc, connZone, sortedCost);
+        }
+
+        private static int grow(int length) {
+            return length + (length >> 1) + 1;
+        }
+
+        private static int resolve(long[] sortedIds, long id) {
+            int index = Arrays.binarySearch(sortedIds, id);
+            if (index < 0) {
+                throw new IllegalArgumentException("Connection references unknown id: " + id);
+            }
+            return index;
+        }
+
+        // Row order that sorts the ids ascending; ids must be unique
+        private static int[] sortedOrder(long[] ids, int count) {
+            int[] order = new int[count];
+            boolean sorted = true;
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+                if (i > 0 && ids[i] <= ids[i - 1]) {
+                    sorted = false;
+                }
+            }
+            if (sorted) {
+                return order;
+            }
+            long[] sortedIds = Arrays.copyOf(ids, count);
+            Arrays.sort(sortedIds);
+            for (int i = 1; i < count; i++) {
+                if (sortedIds[i] == sortedIds[i - 1]) {
+                    throw new IllegalArgumentException("Duplicate id found: " + sortedIds[i]);
+                }
+            }
+            for (int row = 0; row < count; row++) {
+                order[Arrays.binarySearch(sortedIds, ids[row])] = row;
+            }
+            return order;
+        }
+
+        private static long[] permute(long[] values, int[] order) {
+            long[] result = new long[order.length];
+            for (int i = 0; i < order.length; i++) {
+                result[i] = values[order[i]];
+            }
+            return result;
+        }
+
+        private static double[] permute(double[] values, int[] order) {
+            double[] result = new double[order.length];
+            for (int i = 0; i < order.length; i++) {
+                result[i] = values[order[i]];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.octagone.daaprojbackend.network;
+
+import com.octagone.daaprojbackend.util.IndexSort;
+
+/**
+ * Connections of a network in the order the greedy stage takes them:
+ * ascending weighted cost ({@code cost / priority}), equal costs by index.
+ *
+ * When the network is rebuilt after a connection cost or zone priority edit,
+ * the order of the next snapshot is derived from this one with
+ * {@link #update}: the re-priced connections are taken out and merged back in
+ * at their new place, the rest keep their relative order, so no snapshot sorts
+ * all of its connections a second time.
+ *
+ * Instances are immutable and shared between threads; the returned array
+ * must not be modified.
+ */
+public final class ConnectionOrder {
+
+    // Above this share of changed connections a full sort is cheaper than placing them one by one
+    private static final int FULL_SORT_DIVISOR = 8;
+
+    // Weighted costs the order was built for
+    private final double[] weightedCost;
+    private final int[] order;
+
+    private ConnectionOrder(double[] weightedCost, int[] order) {
+        this.weightedCost = weightedCost;
+        this.order = order;
+    }
+
+    /**
+     * Sorts the connections of a network.
+     */
+    public static ConnectionOrder of(CompiledNetwork network) {
+        int[] order = new int[network.getConnectionCount()];
+        for (int c = 0; c < order.length; c++) {
+            order[c] = c;
+        }
+        IndexSort.sortByKey(order, network.getWeightedCost());
+        return new ConnectionOrder(network.getWeightedCost(), order);
+    }
+
+    /**
+     * Derives the order of a network that differs from the one this order was
+     * built for only in connection costs and zone priorities, e.g. the next
+     * snapshot after such an edit. Returns this order if no weighted cost
+     * changed, and a freshly sorted one if the topology differs.
+     */
+    public ConnectionOrder update(CompiledNetwork network) {
+        int connectionCount = network.getConnectionCount();
+        if (connectionCount != weightedCost.length) {
+            return of(network);
+        }
+        double[] newWeightedCost = network.getWeightedCost();
+
+        // A priority change shows up as a weighted cost change of the zone's connections
+        int[] changed = new int[Math.max(1, connectionCount / FULL_SORT_DIVISOR)];
+        int changedCount = 0;
+        boolean[] isChanged = null;
+        for (int c = 0; c < connectionCount; c++) {
+            if (Double.compare(newWeightedCost[c], weightedCost[c]) != 0) {
+                if (changedCount == changed.length) {
+                    return of(network);
+                }
+                if (isChanged == null) {
+                    isChanged = new boolean[connectionCount];
+                }
+                isChanged[c] = true;
+                changed[changedCount++] = c;
+            }
+        }
+        if (changedCount == 0) {
+            return this;
+        }
+
+        // One pass over the old order: unchanged connections are still sorted, the changed ones go in between
+        IndexSort.sortByKey(changed, 0, changedCount, newWeightedCost);
+        int[] newOrder = new int[connectionCount];
+        int size = 0;
+        int next = 0;
+        for (int c : order) {
+            if (isChanged[c]) {
+                continue;
+            }
+            while (next < changedCount && before(changed[next], c, newWeightedCost)) {
+                newOrder[size++] = changed[next++];
+            }
+            newOrder[size++] = c;
+        }
+        while (next < changedCount) {
+            newOrder[size++] = changed[next++];
+        }
+        return new ConnectionOrder(newWeightedCost, newOrder);
+    }
+
+    /**
+     * Connection indices in greedy order.
+     */
+    public int[] getOrder() {
+        return order;
+    }
+
+    // Same order as IndexSort.sortByKey
+    private static boolean before(int a, int b, double[] key) {
+        return key[a] < key[b] || (key[a] == key[b] && a < b);
+    }
+}
@@ -0,0 +1,213 @@
+package com.octagone.daaprojbackend.network;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Connected components of a network, packed into tasks that can be allocated
+ * independently of each other.
+ *
+ * Sources and zones that share no connection cannot influence each other.
+ * Components are found with a union-find over the connection list and packed
+ * into roughly equal sized tasks, so tiny districts do not each pay for a
+ * task. The network of each task is built on first use and kept, together
+ * with its greedy order, for as long as the partition lives; see
+ * {@link CompiledNetwork#getPartition(int)}.
+ */
+public final class NetworkPartition {
+
+    private final CompiledNetwork network;
+    private final int maxTasks;
+    private final int componentCount;
+    private final int taskCount;
+    private final int[] sourceOffsets;
+    private final int[] sources;
+    private final int[] zoneOffsets;
+    private final int[] zones;
+    private final int[] connectionOffsets;
+    private final int[] connections;
+    private final AtomicReferenceArray<CompiledNetwork> subnetworks;
+
+    private NetworkPartition(CompiledNetwork network, int maxTasks, int componentCount, int taskCount,
+            int[] sourceOffsets, int[] sources, int[] zoneOffsets, int[] zones, int[] connectionOffsets,
+            int[] connections) {
+        this.network = network;
+        this.maxTasks = maxTasks;
+        this.componentCount = componentCount;
+        this.taskCount = taskCount;
+        this.sourceOffsets = sourceOffsets;
+        this.sources = sources;
+        this.zoneOffsets = zoneOffsets;
+        this.zones = zones;
+        this.connectionOffsets = connectionOffsets;
+        this.connections = connections;
+        this.subnetworks = new AtomicReferenceArray<>(taskCount);
+    }
+
+    /**
+     * Labels connected components with a union-find over the connections and
+     * packs them into at most {@code maxTasks} tasks of similar connection count.
+     */
+    public static NetworkPartition of(CompiledNetwork network, int maxTasks) {
+        int sourceCount = network.getSourceCount();
+        int zoneCount = network.getZoneCount();
+        int connectionCount = network.getConnectionCount();
+        int[] connSrc = network.getConnSrc();
+        int[] connZone = network.getConnZone();
+
+        // Union-find over sources [0, S) and zones [S, S + Z)
+        int[] parent = new int[sourceCount + zoneCount];
+        int[] size = new int[parent.length];
+        for (int v = 0; v < parent.length; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+        for (int c = 0; c < connectionCount; c++) {
+            int a = find(parent, connSrc[c]);
+            int b = find(parent, sourceCount + connZone[c]);
+            if (a != b) {
+                if (size[a] < size[b]) {
+                    int tmp = a;
+                    a = b;
+                    b = tmp;
+                }
+                parent[b] = a;
+                size[a] += size[b];
+            }
+        }
+
+        // Dense component ids and connection counts per component
+        int[] componentOfRoot = new int[parent.length];
+        Arrays.fill(componentOfRoot, -1);
+        int componentCount = 0;
+        int[] componentConnections = new int[Math.max(1, connectionCount)];
+        int[] connectionComponent = new int[connectionCount];
+        for (int c = 0; c < connectionCount; c++) {
+            int root = find(parent, connSrc[c]);
+            if (componentOfRoot[root] < 0) {
+                componentOfRoot[root] = componentCount++;
+            }
+            connectionComponent[c] = componentOfRoot[root];
+            componentConnections[connectionComponent[c]]++;
+        }
+
+        // Greedy packing in component order: close a task once it reaches its share of connections
+        int target = Math.max(1, (connectionCount + maxTasks - 1) / maxTasks);
+        int[] taskOfComponent = new int[componentCount];
+        int taskCount = 0;
+        int load = 0;
+        for (int k = 0; k < componentCount; k++) {
+            if (load >= target) {
+                taskCount++;
+                load = 0;
+            }
+            taskOfComponent[k] = taskCount;
+            load += componentConnections[k];
+        }
+        if (componentCount > 0) {
+            taskCount++;
+        }
+
+        // Bucket sources, zones and connections by task (CSR), keeping index order within a task
+        int[] sourceTask = new int[sourceCount];
+        int[] zoneTask = new int[zoneCount];
+        for (int s = 0; s < sourceCount; s++) {
+            int component = componentOfRoot[find(parent, s)];
+            sourceTask[s] = component < 0 ? -1 : taskOfComponent[component];
+        }
+        for (int z = 0; z < zoneCount; z++) {
+            int component = componentOfRoot[find(parent, sourceCount + z)];
+            zoneTask[z] = component < 0 ? -1 : taskOfComponent[component];
+        }
+        int[] connectionTask = new int[connectionCount];
+        for (int c = 0; c < connectionCount; c++) {
+            connectionTask[c] = taskOfComponent[connectionComponent[c]];
+        }
+
+        int[] sourceOffsets = new int[taskCount + 1];
+        int[] sources = bucket(sourceTask, taskCount, sourceOffsets);
+        int[] zoneOffsets = new int[taskCount + 1];
+        int[] zones = bucket(zoneTask, taskCount, zoneOffsets);
+        int[] connectionOffsets = new int[taskCount + 1];
+        int[] connections = bucket(connectionTask, taskCount, connectionOffsets);
+        return new NetworkPartition(network, maxTasks, componentCount, taskCount, sourceOffsets, sources, zoneOffsets,
+                zones, connectionOffsets, connections);
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    // Counting sort of indices by task; indices with task -1 are dropped
+    private static int[] bucket(int[] taskOf, int taskCount, int[] offsets) {
+        int kept = 0;
+        for (int task : taskOf) {
+            if (task >= 0) {
+                offsets[task + 1]++;
+                kept++;
+            }
+        }
+        for (int t = 0; t < taskCount; t++) {
+            offsets[t + 1] += offsets[t];
+        }
+        int[] fill = Arrays.copyOf(offsets, taskCount);
+        int[] grouped = new int[kept];
+        for (int i = 0; i < taskOf.length; i++) {
+            if (taskOf[i] >= 0) {
+                grouped[fill[taskOf[i]]++] = i;
+            }
+        }
+        return grouped;
+    }
+
+    public int getMaxTasks() {
+        return maxTasks;
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    /**
+     * The network of one task, built on first use. Concurrent first calls may
+     * each build it, but all of them return the same instance.
+     */
+    public CompiledNetwork getSubnetwork(int task) {
+        CompiledNetwork subnetwork = subnetworks.get(task);
+        if (subnetwork == null) {
+            subnetworks.compareAndSet(task, null, build(task));
+            subnetwork = subnetworks.get(task);
+        }
+        return subnetwork;
+    }
+
+    // Ids stay ascending so the builder needs no sorting
+    private CompiledNetwork build(int task) {
+        CompiledNetwork.Builder builder = new CompiledNetwork.Builder(
+                sourceOffsets[task + 1] - sourceOffsets[task],
+                zoneOffsets[task + 1] - zoneOffsets[task],
+                connectionOffsets[task + 1] - connectionOffsets[task]);
+        for (int i = sourceOffsets[task]; i < sourceOffsets[task + 1]; i++) {
+            int s = sources[i];
+            builder.addSource(network.getSourceIds()[s], network.getCapacity()[s]);
+        }
+        for (int i = zoneOffsets[task]; i < zoneOffsets[task + 1]; i++) {
+            int z = zones[i];
+            builder.addZone(network.getZoneIds()[z], network.getDemand()[z], network.getPriority()[z]);
+        }
+        for (int i = connectionOffsets[task]; i < connectionOffsets[task + 1]; i++) {
+            int c = connections[i];
+            builder.addConnection(network.getConnectionIds()[c], network.getSourceIds()[network.getConnSrc()[c]],
+                    network.getZoneIds()[network.getConnZone()[c]], network.getCost()[c]);
+        }
+        return builder.build(network.getVersion());
+    }
+}
@@ -0,0 +1,121 @@
+package com.octagone.daaprojbackend.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sized platform thread pool for CPU-bound allocation work.
+ *
+ * With {@code spring.threads.virtual.enabled} requests are served on virtual
+ * threads, which are cheap to block on database round trips but should not
+ * run long computations: every request would compete for the carrier threads
+ * at once. Requests therefore load the network on their own thread and hand
+ * the allocation itself to this pool, waiting for it without holding a
+ * platform thread. At most {@code allocation.cpu.threads} allocations run at a
+ * time; the rest wait in the pool's queue.
+ */
+@Component
+public class AllocationExecutor {
+
+    // Marks the pool's own threads
+    private static final ThreadLocal<Boolean> POOL_THREAD = ThreadLocal.withInitial(() -> false);
+
+    // 0 = one per core
+    @Value("${allocation.cpu.threads:0}")
+    private int threads;
+
+    private ExecutorService executor;
+    private int poolSize;
+
+    @PostConstruct
+    void startExecutor() {
+        poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(() -> {
+                POOL_THREAD.set(true);
+                runnable.run();
+            }, "allocation-cpu-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(poolSize, threadFactory);
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    // Tasks that run at once, e.g. to split a batch into one task per thread
+    public int getParallelism() {
+        return poolSize;
+    }
+
+    /**
+     * Runs the tasks on the CPU pool and waits for all of their results, in
+     * task order. The first failure cancels the remaining tasks. Tasks
+     * submitted from a pool thread run inline, one after the other.
+     */
+    public <T> List<T> callAll(List<? extends Supplier<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (POOL_THREAD.get()) {
+            for (Supplier<T> task : tasks) {
+                results.add(task.get());
+            }
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Supplier<T> task : tasks) {
+            futures.add(executor.submit(task::get));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+            return results;
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Runs the task on the CPU pool and waits for its result. Tasks submitted
+     * from a pool thread run inline, so nested calls cannot deadlock the pool.
+     */
+    public <T> T call(Supplier<T> task) {
+        if (POOL_THREAD.get()) {
+            return task.get();
+        }
+        return await(executor.submit(task::get));
+    }
+
+    private static <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Allocation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Allocation failed", e.getCause());
+        }
+    }
+}
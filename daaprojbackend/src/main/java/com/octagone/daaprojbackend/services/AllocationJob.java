@@ -0,0 +1,180 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+/**
+ * An allocation run in the background. The job is the sink of its own
+ * allocation, so zones become visible as partial results as soon as the
+ * engine emits them. Only the array engine emits zones while it allocates;
+ * the other strategies emit all of them at the end, so their progress stays
+ * at 0 until then. Cancelling interrupts the job thread, which every engine
+ * checks in its main loops. Zones are kept in columnar form, and sealed into
+ * a {@link CompactAllocation} once the job finishes.
+ */
+public class AllocationJob implements AllocationSink {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final String strategy;
+    private final Instant submittedAt = Instant.now();
+    // Zones emitted so far, until the job finishes and they become the result
+    private CompactAllocation.Builder allocations = new CompactAllocation.Builder();
+    private CompactAllocation result;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile int zoneCount;
+    private volatile String error;
+    private volatile Future<?> future;
+
+    AllocationJob(String id, String strategy) {
+        this.id = id;
+        this.strategy = strategy;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public int getZoneCount() {
+        return zoneCount;
+    }
+
+    public synchronized int getZonesAllocated() {
+        return result != null ? result.getZoneCount() : allocations.getZoneCount();
+    }
+
+    // Share of the network's zones emitted so far; zones without any allocation are never emitted
+    public double getProgress() {
+        if (status == Status.COMPLETED) {
+            return 1;
+        }
+        int zones = zoneCount;
+        return zones == 0 ? 0 : Math.min(1, (double) getZonesAllocated() / zones);
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Zones allocated so far, in emission order, from {@code offset} on.
+     */
+    public synchronized List<ZoneAllocation> allocations(int offset, int limit) {
+        int zones = getZonesAllocated();
+        int from = Math.min(Math.max(0, offset), zones);
+        int to = (int) Math.min(zones, (long) from + Math.max(0, limit));
+        if (result != null) {
+            // Views over the result's columns
+            return new ArrayList<>(result.toResponse().getAllocations().subList(from, to));
+        }
+        List<ZoneAllocation> page = new ArrayList<>(to - from);
+        for (int z = from; z < to; z++) {
+            page.add(allocations.zone(z));
+        }
+        return page;
+    }
+
+    // Heap held by the zones of a finished job, which stay until the job is evicted
+    synchronized long getResultSize() {
+        return result == null ? 0 : result.sizeInBytes();
+    }
+
+    @Override
+    public void zone(long zoneId, double amount, long[] connectionIds, double[] amounts, int count) {
+        if (status == Status.CANCELLED) {
+            throw new CancellationException("Allocation job " + id + " was cancelled");
+        }
+        synchronized (this) {
+            if (allocations != null) {
+                allocations.addZone(zoneId, amount, connectionIds, amounts, count);
+            }
+        }
+    }
+
+    boolean isFinished() {
+        return status.isFinished();
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    // False if the job was cancelled while it was queued
+    synchronized boolean start(int zoneCount) {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        this.zoneCount = zoneCount;
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+        return true;
+    }
+
+    synchronized void complete() {
+        finish(Status.COMPLETED, null);
+    }
+
+    synchronized void fail(String message) {
+        finish(Status.FAILED, message);
+    }
+
+    synchronized boolean cancel() {
+        if (status.isFinished()) {
+            return false;
+        }
+        finish(Status.CANCELLED, null);
+        Future<?> running = future;
+        if (running != null) {
+            running.cancel(true);
+        }
+        return true;
+    }
+
+    private void finish(Status finalStatus, String message) {
+        if (status.isFinished()) {
+            return;
+        }
+        error = message;
+        finishedAt = Instant.now();
+        status = finalStatus;
+        // Trimmed to size; zones a cancelled engine emits afterwards are dropped
+        result = allocations.build();
+        allocations = null;
+    }
+}
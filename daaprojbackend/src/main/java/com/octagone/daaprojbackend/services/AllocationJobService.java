@@ -0,0 +1,186 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs allocations as background jobs on a bounded executor.
+ *
+ * At most {@code allocation.jobs.concurrency} jobs run at a time and at most
+ * {@code allocation.jobs.queue-capacity} wait; further submissions are
+ * rejected instead of piling up, so heavy requests cannot exhaust the server.
+ * Finished jobs are kept for polling, oldest evicted first, while their
+ * results together take at most {@code allocation.jobs.retained-size} of heap
+ * and there are at most {@code allocation.jobs.retained} of them.
+ */
+@Service
+public class AllocationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AllocationJobService.class);
+
+    @Autowired
+    private WaterAllocationService waterAllocationService;
+
+    @Autowired
+    private NetworkSnapshotService networkSnapshotService;
+
+    @Value("${allocation.jobs.concurrency:2}")
+    private int concurrency;
+
+    @Value("${allocation.jobs.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${allocation.jobs.retained:100}")
+    private int retained;
+
+    @Value("${allocation.jobs.retained-size:256MB}")
+    private DataSize retainedSize;
+
+    // Insertion ordered, so the oldest finished jobs are evicted first
+    private final Map<String, AllocationJob> jobs = new LinkedHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "allocation-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues an allocation with the given strategy, or the default one when blank.
+     *
+     * @throws IllegalArgumentException if the strategy is unknown
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public AllocationJob submit(String strategyName) {
+        AllocationStrategy strategy = waterAllocationService.resolveStrategy(strategyName);
+        AllocationJob job = new AllocationJob(UUID.randomUUID().toString(), strategy.getName());
+        synchronized (jobs) {
+            // Registered before it can start, so even a job that fails at once can be polled
+            jobs.put(job.getId(), job);
+            try {
+                job.setFuture(executor.submit(() -> run(job, strategy)));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.getId());
+                throw e;
+            }
+        }
+        return job;
+    }
+
+    public AllocationJob getJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    public List<AllocationJob> getJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    /**
+     * Cancels a queued or running job. Running engines stop at their next
+     * cancellation check, see {@link AllocationStrategy#checkCancelled}, or at
+     * the next zone they emit.
+     *
+     * @return the job, or null if there is no job with this id
+     */
+    public AllocationJob cancel(String id) {
+        AllocationJob job = getJob(id);
+        if (job != null && job.cancel()) {
+            // Frees the queue slot of a job that never started
+            executor.purge();
+            evictFinishedJobs();
+            logger.info("Cancelled allocation job {}", id);
+        }
+        return job;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getRunningCount() {
+        return executor.getActiveCount();
+    }
+
+    private void run(AllocationJob job, AllocationStrategy strategy) {
+        CompiledNetwork network = networkSnapshotService.getNetwork();
+        if (!job.start(network.getZoneCount())) {
+            return;
+        }
+        try {
+            waterAllocationService.allocateWater(strategy, network, job);
+            job.complete();
+        } catch (CancellationException e) {
+            // Status is already CANCELLED
+        } catch (RuntimeException e) {
+            logger.warn("Allocation job {} failed", job.getId(), e);
+            job.fail(e.getMessage());
+        } catch (Error e) {
+            // Recorded before rethrowing, otherwise the job would stay RUNNING forever
+            logger.error("Allocation job {} failed", job.getId(), e);
+            job.fail(e.toString());
+            throw e;
+        } finally {
+            evictFinishedJobs();
+        }
+    }
+
+    private void evictFinishedJobs() {
+        synchronized (jobs) {
+            int finished = 0;
+            long size = 0;
+            for (AllocationJob job : jobs.values()) {
+                if (job.isFinished()) {
+                    finished++;
+                    size += job.getResultSize();
+                }
+            }
+            Iterator<AllocationJob> iterator = jobs.values().iterator();
+            while ((finished > retained || size > retainedSize.toBytes()) && iterator.hasNext()) {
+                AllocationJob job = iterator.next();
+                if (job.isFinished()) {
+                    iterator.remove();
+                    finished--;
+                    size -= job.getResultSize();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.octagone.daaprojbackend.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Serialized allocation results keyed by network version, strategy and format.
+ *
+ * The network version changes on every edit, so an entry never has to be
+ * invalidated: once the network changes its key is simply not asked for
+ * again and the entry ages out. Entries are evicted least recently used
+ * beyond {@code allocation.cache.max-entries} and after
+ * {@code allocation.cache.ttl-seconds}.
+ */
+@Component
+public class AllocationResultCache {
+
+    @Value("${allocation.cache.max-entries:32}")
+    private int maxEntries;
+
+    @Value("${allocation.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    // Versions restart at 0 with the process, so ETags of an earlier run must not match
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    // Access ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public AllocationResultCache() {
+    }
+
+    // Outside of Spring, e.g. tests
+    AllocationResultCache(int maxEntries, long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * The ETag of a result, known without computing it.
+     */
+    public String eTag(long version, String strategy, String format) {
+        return "\"" + epoch + "-" + version + "-" + strategy + "-" + format + "\"";
+    }
+
+    public synchronized Entry get(long version, String strategy, String format) {
+        String key = key(version, strategy, format);
+        Entry entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    public synchronized Entry put(long version, String strategy, String format, byte[] body) {
+        Entry entry = new Entry(body, eTag(version, strategy, format), System.nanoTime());
+        entries.put(key(version, strategy, format), entry);
+        Iterator<Entry> iterator = entries.values().iterator();
+        int size = entries.size();
+        while (iterator.hasNext()) {
+            Entry oldest = iterator.next();
+            if (size <= maxEntries && !isExpired(oldest)) {
+                break;
+            }
+            iterator.remove();
+            size--;
+        }
+        return entry;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.nanoTime() - entry.createdNanos > ttlSeconds * 1_000_000_000L;
+    }
+
+    static String key(long version, String strategy, String format) {
+        return version + "/" + strategy + "/" + format;
+    }
+
+    public static final class Entry {
+        private final byte[] body;
+        private final String eTag;
+        private final long createdNanos;
+
+        Entry(byte[] body, String eTag, long createdNanos) {
+            this.body = body;
+            this.eTag = eTag;
+            this.createdNanos = createdNanos;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+    }
+}
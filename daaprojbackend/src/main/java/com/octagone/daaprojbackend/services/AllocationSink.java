@@ -0,0 +1,38 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+
+import java.util.Arrays;
+
+/**
+ * Receives an allocation one zone at a time, as soon as the zone is final.
+ *
+ * Zones without any allocated water are skipped, as in {@link AllocationResponse}.
+ * The arrays are scratch buffers owned by the caller: only the first
+ * {@code count} entries are valid, and only for the duration of the call.
+ */
+public interface AllocationSink {
+
+    void zone(long zoneId, double amount, long[] connectionIds, double[] amounts, int count);
+
+    /**
+     * Replays a materialized response into a sink.
+     */
+    static void emit(AllocationResponse response, AllocationSink sink) {
+        long[] connectionIds = new long[16];
+        double[] amounts = new double[16];
+        for (ZoneAllocation allocation : response.getAllocations()) {
+            int count = allocation.connectionCount();
+            if (connectionIds.length < count) {
+                connectionIds = Arrays.copyOf(connectionIds, Math.max(count, connectionIds.length * 2));
+                amounts = Arrays.copyOf(amounts, connectionIds.length);
+            }
+            for (int i = 0; i < count; i++) {
+                connectionIds[i] = allocation.connectionId(i);
+                amounts[i] = allocation.connectionAmount(i);
+            }
+            sink.zone(allocation.getZoneId(), allocation.getAmount(), connectionIds, amounts, count);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * An allocation algorithm that can be selected per request.
+ *
+ * Implementations are registered as Spring beans and looked up by
+ * {@link #getName()} through the {@code strategy} parameter of
+ * {@code /allocate-water}. The network is shared between concurrent requests
+ * and must not be modified.
+ */
+public interface AllocationStrategy {
+
+    String getName();
+
+    AllocationResponse allocate(CompiledNetwork network);
+
+    /**
+     * Streams the allocation zone by zone. Strategies that can finalize zones
+     * before the whole allocation is done override this; the default builds the
+     * full response first.
+     */
+    default void allocate(CompiledNetwork network, AllocationSink sink) {
+        AllocationSink.emit(allocate(network), sink);
+    }
+
+    /**
+     * Stops an engine whose thread was interrupted, e.g. because its job was
+     * cancelled. Meant for the main loops of engines: only every 1024th
+     * iteration, counting from 0, actually looks at the interrupt flag.
+     *
+     * @throws CancellationException if the current thread is interrupted
+     */
+    static void checkCancelled(long iteration) {
+        if ((iteration & 0x3FF) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Allocation interrupted");
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry;
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry.Phase;
+import com.octagone.daaprojbackend.metrics.AllocationTrace;
+import com.octagone.daaprojbackend.metrics.AllocationTracer;
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.models.Connection;
+import com.octagone.daaprojbackend.models.Source;
+import com.octagone.daaprojbackend.models.Zone;
+import com.octagone.daaprojbackend.network.AllocationRepair;
+import com.octagone.daaprojbackend.network.AllocationState;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Array based variant of {@link WaterAllocationServiceImpl}.
+ *
+ * Both the greedy stage and the backtracking stage run over the dense
+ * index-remapped arrays of a {@link CompiledNetwork}. No maps, sets or boxed
+ * keys are created while allocating, and the result is the same
+ * {@link AllocationResponse} the object based engine produces.
+ */
+@Service
+public class ArrayAllocationEngine implements AllocationStrategy {
+
+    private static final double EPSILON = 1e-9;
+    private static final Logger logger = LoggerFactory.getLogger(ArrayAllocationEngine.class);
+
+    @Autowired(required = false)
+    private AllocationTelemetry telemetry = AllocationTelemetry.NOOP;
+
+    @Autowired(required = false)
+    private AllocationTracer tracer = new AllocationTracer(0);
+
+    public AllocationResponse allocateWater(List<Source> sources, List<Zone> zones, List<Connection> connections) {
+        return allocate(CompiledNetwork.of(sources, zones, connections));
+    }
+
+    @Override
+    public String getName() {
+        return "array";
+    }
+
+    /**
+     * Collects the zones straight into a {@link CompactAllocation}; the
+     * response is a view over it.
+     */
+    @Override
+    public AllocationResponse allocate(CompiledNetwork network) {
+        CompactAllocation.Builder builder = new CompactAllocation.Builder(network.getZoneCount(), network.getZoneCount());
+        run(network, builder::addZone);
+        return new AllocationResponse(builder.build());
+    }
+
+    /**
+     * Emits every zone as soon as its backtracking step is done.
+     */
+    @Override
+    public void allocate(CompiledNetwork network, AllocationSink sink) {
+        run(network, sink);
+    }
+
+    /**
+     * Runs the allocation and keeps its residual state, e.g. as the baseline for
+     * incremental repairs.
+     */
+    public AllocationState allocateState(CompiledNetwork network) {
+        Run run = run(network, null);
+        return new AllocationState(network, run.capacity, run.demand, run.flow);
+    }
+
+    // Flows are accumulated per connection, so repeated allocations through a connection are merged
+    private Run run(CompiledNetwork network, AllocationSink sink) {
+        logger.info("Starting array based water allocation process");
+        AllocationTrace trace = tracer.begin(getName());
+        try {
+            // Residual state for this run, the network itself is never modified
+            Run run = new Run(network.getCapacity().clone(), network.getDemand().clone(),
+                    new double[network.getConnectionCount()]);
+            run(network, run, null, sink, trace);
+            logger.info("Array based water allocation process completed");
+            return run;
+        } finally {
+            trace.end();
+        }
+    }
+
+    /**
+     * Allocates consecutive periods of the network, e.g. the hours of a daily
+     * or weekly plan, with the capacities and demands the profile gives for
+     * each period. Every period gets the allocation a single run with its
+     * capacities and demands would produce, see
+     * {@link #allocatePeriods(CompiledNetwork, int, PeriodProfile, boolean, PeriodSink)}.
+     */
+    public List<CompactAllocation> allocatePeriods(CompiledNetwork network, int periods, PeriodProfile profile) {
+        List<CompactAllocation> results = new ArrayList<>(periods);
+        allocatePeriods(network, periods, profile, false, (period, allocation) -> results.add(allocation));
+        return results;
+    }
+
+    /**
+     * Allocates consecutive periods and hands each one to the sink as soon as
+     * it is done, so callers do not have to keep the whole horizon in memory.
+     *
+     * Without warm start every period is a full run: the greedy order of the
+     * connections depends only on cost and priority, so the network's
+     * pre-sorted order is replayed and the residual arrays are refilled
+     * instead of allocated again. With warm start only the first period is a
+     * full run; every later one repairs the residual state of the previous
+     * period through an {@link AllocationRepair}, releasing and refilling only
+     * the connections of the sources and zones whose values changed. The
+     * warm-started allocations are feasible but not necessarily the ones a
+     * single run would produce. Either way a period whose capacities and
+     * demands equal those of the previous one reuses its result.
+     */
+    public void allocatePeriods(CompiledNetwork network, int periods, PeriodProfile profile, boolean warmStart,
+            PeriodSink sink) {
+        logger.info("Starting array based allocation of {} periods, warm start {}", periods, warmStart);
+        int sourceCount = network.getSourceCount();
+        int zoneCount = network.getZoneCount();
+        AllocationTrace trace = tracer.begin(getName());
+        try {
+            trace.phase(Phase.QUEUE_BUILD);
+            long phaseStart = telemetry.start();
+            int[] order = network.getGreedyOrder();
+            telemetry.recordPhase(getName(), Phase.QUEUE_BUILD, phaseStart);
+
+            // Profile values of this and the previous period
+            double[] capacity = network.getCapacity().clone();
+            double[] demand = network.getDemand().clone();
+            double[] previousCapacity = new double[sourceCount];
+            double[] previousDemand = new double[zoneCount];
+            Run run = new Run(new double[sourceCount], new double[zoneCount], new double[network.getConnectionCount()]);
+            AllocationRepair repair = null;
+            CompactAllocation previous = null;
+            for (int period = 0; period < periods; period++) {
+                profile.fill(period, capacity, demand);
+                if (period > 0 && Arrays.equals(capacity, previousCapacity) && Arrays.equals(demand, previousDemand)) {
+                    sink.period(period, previous);
+                    continue;
+                }
+                if (repair != null) {
+                    previous = repairPeriod(repair, capacity, demand);
+                } else {
+                    System.arraycopy(capacity, 0, run.capacity, 0, sourceCount);
+                    System.arraycopy(demand, 0, run.demand, 0, zoneCount);
+                    Arrays.fill(run.flow, 0);
+                    CompactAllocation.Builder builder = new CompactAllocation.Builder(zoneCount, zoneCount);
+                    run(network, run, order, builder::addZone, trace);
+                    previous = builder.build();
+                    if (warmStart) {
+                        // The arrays of the first run become the residual state every later period repairs
+                        repair = new AllocationRepair(new AllocationState(network, run.capacity, run.demand, run.flow),
+                                capacity.clone(), demand.clone());
+                    }
+                }
+                sink.period(period, previous);
+                System.arraycopy(capacity, 0, previousCapacity, 0, sourceCount);
+                System.arraycopy(demand, 0, previousDemand, 0, zoneCount);
+            }
+            logger.info("Array based allocation of {} periods completed", periods);
+        } finally {
+            trace.end();
+        }
+    }
+
+    // Moves the repaired state to the values of the next period, sources first so zones refill from the new capacities
+    private static CompactAllocation repairPeriod(AllocationRepair repair, double[] capacity, double[] demand) {
+        double[] currentCapacity = repair.getCapacity();
+        double[] currentDemand = repair.getDemand();
+        repair.begin();
+        for (int s = 0; s < capacity.length; s++) {
+            if (capacity[s] != currentCapacity[s]) {
+                repair.setSourceCapacity(s, capacity[s]);
+            }
+        }
+        for (int z = 0; z < demand.length; z++) {
+            if (demand[z] != currentDemand[z]) {
+                repair.setZoneDemand(z, demand[z]);
+            }
+        }
+        repair.finish();
+        return repair.getState().toCompact();
+    }
+
+    /**
+     * Allocates in place for callers that only need the residual state, e.g.
+     * batches of scenarios over one network with per-thread scratch arrays.
+     * Capacity and demand are consumed; the allocated amounts are added to
+     * flow, which must be all zeros to hold the flows of this run alone. Runs
+     * are not traced one by one.
+     */
+    void allocateInPlace(CompiledNetwork network, double[] capacity, double[] demand, double[] flow, int[] order) {
+        run(network, new Run(capacity, demand, flow), order, null, AllocationTrace.NONE);
+    }
+
+    // Allocates into the residual state of the run; without a greedy order the network's own is used
+    private void run(CompiledNetwork network, Run run, int[] order, AllocationSink sink, AllocationTrace trace) {
+        int sourceCount = network.getSourceCount();
+        int zoneCount = network.getZoneCount();
+        int[] connSrc = network.getConnSrc();
+        int[] connZone = network.getConnZone();
+        int[] zoneOffsets = network.getZoneOffsets();
+        int[] zoneConnections = network.getZoneConnections();
+
+        double[] capacity = run.capacity;
+        double[] demand = run.demand;
+        double[] flow = run.flow;
+
+        // Stage 1: Weighted Greedy Allocation, a linear scan of the pre-sorted connections
+        if (order == null) {
+            trace.phase(Phase.QUEUE_BUILD);
+            long phaseStart = telemetry.start();
+            order = network.getGreedyOrder();
+            telemetry.recordPhase(getName(), Phase.QUEUE_BUILD, phaseStart);
+        }
+
+        trace.phase(Phase.GREEDY);
+        long phaseStart = telemetry.start();
+        long polled = 0;
+        long used = 0;
+        boolean[] sourceAvailable = new boolean[sourceCount];
+        Arrays.fill(sourceAvailable, true);
+        int availableSources = sourceCount;
+        int unmetDemands = zoneCount;
+
+        for (int next = 0; next < order.length && unmetDemands > 0 && availableSources > 0; next++) {
+            AllocationStrategy.checkCancelled(next);
+            int c = order[next];
+            polled++;
+
+            int s = connSrc[c];
+            int z = connZone[c];
+            if (sourceAvailable[s] && demand[z] > EPSILON) {
+                used++;
+                double allocation = Math.min(demand[z], capacity[s]);
+                if (trace.isActive()) {
+                    trace.decision(Phase.GREEDY, network.getConnectionIds()[c], network.getSourceIds()[s],
+                            network.getZoneIds()[z], allocation);
+                }
+                flow[c] += allocation;
+                capacity[s] -= allocation;
+                demand[z] -= allocation;
+
+                // Remove source if depleted
+                if (capacity[s] <= EPSILON) {
+                    sourceAvailable[s] = false;
+                    availableSources--;
+                }
+
+                // Remove zone if demand is met
+                if (demand[z] <= EPSILON) {
+                    unmetDemands--;
+                }
+            }
+        }
+
+        telemetry.recordPhase(getName(), Phase.GREEDY, phaseStart);
+        telemetry.recordGreedyStage(getName(), polled, used);
+
+        // Stage 2: Backtracking Adjustment, including emission to the sink when streaming
+        trace.phase(Phase.BACKTRACKING);
+        phaseStart = telemetry.start();
+        ZoneEmitter emitter = sink == null ? null : new ZoneEmitter(network, flow, sink);
+        for (int z = 0; z < zoneCount; z++) {
+            AllocationStrategy.checkCancelled(z);
+            double unmetDemand = demand[z];
+            for (int i = zoneOffsets[z]; i < zoneOffsets[z + 1] && unmetDemand > EPSILON; i++) {
+                int c = zoneConnections[i];
+                int s = connSrc[c];
+                double availableCapacity = capacity[s];
+                if (availableCapacity <= EPSILON) {
+                    continue;
+                }
+
+                double additionalAllocation = Math.min(unmetDemand, availableCapacity);
+                if (additionalAllocation > EPSILON) {
+                    if (trace.isActive()) {
+                        trace.decision(Phase.BACKTRACKING, network.getConnectionIds()[c], network.getSourceIds()[s],
+                                network.getZoneIds()[z], additionalAllocation);
+                    }
+                    flow[c] += additionalAllocation;
+                    capacity[s] = availableCapacity - additionalAllocation;
+                    demand[z] -= additionalAllocation;
+                    unmetDemand -= additionalAllocation;
+                }
+            }
+            // Nothing touches zone z after this point
+            if (emitter != null) {
+                emitter.emit(z);
+            }
+        }
+
+        telemetry.recordPhase(getName(), Phase.BACKTRACKING, phaseStart);
+    }
+
+    private record Run(double[] capacity, double[] demand, double[] flow) {
+    }
+
+    /**
+     * Hands the non-zero flows of one zone to a sink through reused buffers.
+     */
+    private static final class ZoneEmitter {
+        private final CompiledNetwork network;
+        private final double[] flow;
+        private final AllocationSink sink;
+        private long[] connectionIds = new long[16];
+        private double[] amounts = new double[16];
+
+        ZoneEmitter(CompiledNetwork network, double[] flow, AllocationSink sink) {
+            this.network = network;
+            this.flow = flow;
+            this.sink = sink;
+        }
+
+        void emit(int z) {
+            int[] zoneOffsets = network.getZoneOffsets();
+            int[] zoneConnections = network.getZoneConnections();
+            int size = zoneOffsets[z + 1] - zoneOffsets[z];
+            if (connectionIds.length < size) {
+                connectionIds = new long[Math.max(size, connectionIds.length * 2)];
+                amounts = new double[connectionIds.length];
+            }
+            int count = 0;
+            double total = 0;
+            for (int i = zoneOffsets[z]; i < zoneOffsets[z + 1]; i++) {
+                int c = zoneConnections[i];
+                if (flow[c] > 0) {
+                    connectionIds[count] = network.getConnectionIds()[c];
+                    amounts[count] = flow[c];
+                    total += flow[c];
+                    count++;
+                }
+            }
+            if (count > 0) {
+                sink.zone(network.getZoneIds()[z], total, connectionIds, amounts, count);
+            }
+        }
+    }
+}
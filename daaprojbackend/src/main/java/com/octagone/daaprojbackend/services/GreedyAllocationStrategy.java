@@ -0,0 +1,64 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.Connection;
+import com.octagone.daaprojbackend.models.Source;
+import com.octagone.daaprojbackend.models.Zone;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the object based greedy + backtracking engine of
+ * {@link WaterAllocationServiceImpl} as an {@link AllocationStrategy}.
+ */
+@Component
+public class GreedyAllocationStrategy implements AllocationStrategy {
+
+    @Autowired
+    private WaterAllocationServiceImpl allocationServiceImpl;
+
+    // Entities of the last network seen; the engine never modifies them, so concurrent requests share them
+    private volatile NetworkEntities cached;
+
+    @Override
+    public String getName() {
+        return "greedy";
+    }
+
+    @Override
+    public AllocationResponse allocate(CompiledNetwork network) {
+        NetworkEntities entities = cached;
+        if (entities == null || entities.network != network) {
+            entities = toEntities(network);
+            cached = entities;
+        }
+        // The entity lists are in the network's index order, so its pre-sorted greedy order applies
+        return allocationServiceImpl.allocateWater(entities.sources, entities.zones, entities.connections,
+                network.getGreedyOrder());
+    }
+
+    private static NetworkEntities toEntities(CompiledNetwork network) {
+        List<Source> sources = new ArrayList<>(network.getSourceCount());
+        List<Zone> zones = new ArrayList<>(network.getZoneCount());
+        List<Connection> connections = new ArrayList<>(network.getConnectionCount());
+        for (int s = 0; s < network.getSourceCount(); s++) {
+            sources.add(new Source(network.getSourceIds()[s], network.getCapacity()[s]));
+        }
+        for (int z = 0; z < network.getZoneCount(); z++) {
+            zones.add(new Zone(network.getZoneIds()[z], network.getDemand()[z], network.getPriority()[z]));
+        }
+        for (int c = 0; c < network.getConnectionCount(); c++) {
+            connections.add(new Connection(network.getConnectionIds()[c], sources.get(network.getConnSrc()[c]),
+                    zones.get(network.getConnZone()[c]), network.getCost()[c]));
+        }
+        return new NetworkEntities(network, sources, zones, connections);
+    }
+
+    private record NetworkEntities(CompiledNetwork network, List<Source> sources, List<Zone> zones,
+            List<Connection> connections) {
+    }
+}
@@ -0,0 +1,175 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.HorizonRequest;
+import com.octagone.daaprojbackend.models.HorizonResponse;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Multi-period allocation plans, e.g. 24 hourly or 168 weekly periods, over
+ * the current network snapshot. All periods are computed in one pass of the
+ * array engine, see {@link ArrayAllocationEngine#allocatePeriods}.
+ *
+ * A year of hourly periods with every zone allocation is too large for one
+ * response, so {@link #allocate(HorizonRequest)} returns per-period totals
+ * unless details are requested, and details are bounded by
+ * {@link #MAX_DETAIL_ZONES}. Larger plans are streamed period by period
+ * through {@link #allocate(Horizon, Consumer)}.
+ */
+@Service
+public class HorizonAllocationService {
+
+    // Zone allocations, summed over all periods, that a single detailed response may hold
+    public static final long MAX_DETAIL_ZONES = 5_000_000;
+
+    @Autowired
+    private NetworkSnapshotService networkSnapshotService;
+
+    @Autowired
+    private ArrayAllocationEngine arrayAllocationEngine;
+
+    @Autowired
+    private AllocationExecutor allocationExecutor;
+
+    public HorizonResponse allocate(HorizonRequest request) {
+        Horizon horizon = prepare(request);
+        boolean details = request.isDetails();
+        if (details && (long) request.getPeriods() * horizon.network.getZoneCount() > MAX_DETAIL_ZONES) {
+            throw new IllegalArgumentException("Too many periods for a detailed response, "
+                    + "use /allocate-water/horizon/stream instead");
+        }
+        List<HorizonResponse.Period> periods = new ArrayList<>(request.getPeriods());
+        allocationExecutor.call(() -> {
+            run(horizon, details, periods::add);
+            return null;
+        });
+        return new HorizonResponse(periods);
+    }
+
+    /**
+     * Validates a request and resolves it against the current snapshot, so
+     * that it can be rejected before a streamed response starts.
+     */
+    public Horizon prepare(HorizonRequest request) {
+        request.validate();
+        CompiledNetwork network = networkSnapshotService.getNetwork();
+        return new Horizon(network, new Profile(network, request), request.getPeriods(), request.isWarmStart());
+    }
+
+    /**
+     * Hands every period, with its zone allocations, to the consumer as soon
+     * as it is computed. Runs on the calling thread, which is expected to be
+     * writing the periods out.
+     */
+    public void allocate(Horizon horizon, Consumer<HorizonResponse.Period> consumer) {
+        run(horizon, true, consumer);
+    }
+
+    private void run(Horizon horizon, boolean details, Consumer<HorizonResponse.Period> consumer) {
+        double[] totalDemand = horizon.profile.totalDemand;
+        arrayAllocationEngine.allocatePeriods(horizon.network, horizon.periods, horizon.profile, horizon.warmStart,
+                (p, result) -> {
+                    double allocated = 0;
+                    for (double amount : result.getAmounts()) {
+                        allocated += amount;
+                    }
+                    consumer.accept(new HorizonResponse.Period(p, totalDemand[p], allocated,
+                            details ? result.toResponse() : null));
+                });
+    }
+
+    /**
+     * A validated request resolved against one network snapshot.
+     */
+    public static final class Horizon {
+        private final CompiledNetwork network;
+        private final Profile profile;
+        private final int periods;
+        private final boolean warmStart;
+
+        private Horizon(CompiledNetwork network, Profile profile, int periods, boolean warmStart) {
+            this.network = network;
+            this.profile = profile;
+            this.periods = periods;
+            this.warmStart = warmStart;
+        }
+    }
+
+    /**
+     * Request profiles resolved to network indices.
+     */
+    private static final class Profile implements PeriodProfile {
+        private final CompiledNetwork network;
+        private final double[] capacityFactors;
+        private final double[] demandFactors;
+        private final int[] profiledSources;
+        private final double[][] sourceCapacity;
+        private final int[] profiledZones;
+        private final double[][] zoneDemand;
+        private final double[] totalDemand;
+
+        Profile(CompiledNetwork network, HorizonRequest request) {
+            this.network = network;
+            this.capacityFactors = request.getCapacityFactors();
+            this.demandFactors = request.getDemandFactors();
+            Map<Long, double[]> sources = request.getSourceCapacity() == null ? Map.of() : request.getSourceCapacity();
+            profiledSources = new int[sources.size()];
+            sourceCapacity = new double[sources.size()][];
+            int i = 0;
+            for (Map.Entry<Long, double[]> entry : sources.entrySet()) {
+                profiledSources[i] = network.sourceIndexOf(entry.getKey());
+                if (profiledSources[i] < 0) {
+                    throw new IllegalArgumentException("Unknown source in capacity profile: " + entry.getKey());
+                }
+                sourceCapacity[i++] = entry.getValue();
+            }
+            Map<Long, double[]> zones = request.getZoneDemand() == null ? Map.of() : request.getZoneDemand();
+            profiledZones = new int[zones.size()];
+            zoneDemand = new double[zones.size()][];
+            i = 0;
+            for (Map.Entry<Long, double[]> entry : zones.entrySet()) {
+                profiledZones[i] = network.zoneIndexOf(entry.getKey());
+                if (profiledZones[i] < 0) {
+                    throw new IllegalArgumentException("Unknown zone in demand profile: " + entry.getKey());
+                }
+                zoneDemand[i++] = entry.getValue();
+            }
+            totalDemand = new double[request.getPeriods()];
+        }
+
+        @Override
+        public void fill(int period, double[] capacity, double[] demand) {
+            // Factors scale the stored values, so without them the arrays are only touched where profiles are
+            if (capacityFactors != null) {
+                double[] stored = network.getCapacity();
+                for (int s = 0; s < capacity.length; s++) {
+                    capacity[s] = stored[s] * capacityFactors[period];
+                }
+            }
+            for (int i = 0; i < profiledSources.length; i++) {
+                capacity[profiledSources[i]] = sourceCapacity[i][period];
+            }
+            if (demandFactors != null) {
+                double[] stored = network.getDemand();
+                for (int z = 0; z < demand.length; z++) {
+                    demand[z] = stored[z] * demandFactors[period];
+                }
+            }
+            for (int i = 0; i < profiledZones.length; i++) {
+                demand[profiledZones[i]] = zoneDemand[i][period];
+            }
+
+            double total = 0;
+            for (double value : demand) {
+                total += value;
+            }
+            totalDemand[period] = total;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.Connection;
+import com.octagone.daaprojbackend.models.Source;
+import com.octagone.daaprojbackend.models.Zone;
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+import com.octagone.daaprojbackend.network.AllocationRepair;
+import com.octagone.daaprojbackend.network.AllocationState;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the last allocation and repairs it when a single source, zone or
+ * connection is edited.
+ *
+ * Edits are applied through an {@link AllocationRepair}, so a single-zone
+ * edit costs time proportional to that zone's connections rather than to the
+ * whole network. Created or deleted entities change the topology and drop the
+ * state; the next request then starts from a full allocation again.
+ */
+@Service
+public class IncrementalAllocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalAllocationService.class);
+
+    @Autowired
+    private ArrayAllocationEngine arrayAllocationEngine;
+
+    @Autowired
+    private NetworkSnapshotService networkSnapshotService;
+
+    private AllocationRepair repair;
+
+    private AllocationResponse lastDelta = new AllocationResponse(new ArrayList<>());
+
+    /**
+     * Full allocation as maintained by the incremental repairs.
+     */
+    public synchronized AllocationResponse current() {
+        ensureState();
+        return repair.getState().toResponse();
+    }
+
+    /**
+     * Zones changed by the most recent repair, including zones whose allocation dropped to zero.
+     */
+    public synchronized AllocationResponse getLastDelta() {
+        return lastDelta;
+    }
+
+    public synchronized void reset() {
+        repair = null;
+    }
+
+    public synchronized AllocationResponse applyZoneChange(Zone zone) {
+        if (repair == null) {
+            return null;
+        }
+        int z = repair.getState().getNetwork().zoneIndexOf(zone.getId());
+        if (z < 0 || zone.getDemand() < 0 || zone.getPriority() <= 0) {
+            return fallBack("zone " + zone.getId());
+        }
+        repair.begin();
+        repair.setZone(z, zone.getDemand(), zone.getPriority());
+        return finishRepair();
+    }
+
+    public synchronized AllocationResponse applySourceChange(Source source) {
+        if (repair == null) {
+            return null;
+        }
+        int s = repair.getState().getNetwork().sourceIndexOf(source.getId());
+        if (s < 0 || source.getCapacity() < 0) {
+            return fallBack("source " + source.getId());
+        }
+        repair.begin();
+        repair.setSourceCapacity(s, source.getCapacity());
+        return finishRepair();
+    }
+
+    public synchronized AllocationResponse applyConnectionChange(Connection connection) {
+        if (repair == null) {
+            return null;
+        }
+        CompiledNetwork network = repair.getState().getNetwork();
+        int c = network.connectionIndexOf(connection.getId());
+        if (c < 0 || connection.getCostPerUnit() < 0
+                || network.getSourceIds()[network.getConnSrc()[c]] != connection.getSource().getId()
+                || network.getZoneIds()[network.getConnZone()[c]] != connection.getZone().getId()) {
+            // Re-linked connections change the topology
+            return fallBack("connection " + connection.getId());
+        }
+        repair.begin();
+        repair.setConnectionCost(c, connection.getCostPerUnit());
+        return finishRepair();
+    }
+
+    private void ensureState() {
+        if (repair == null) {
+            CompiledNetwork network = networkSnapshotService.getNetwork();
+            repair = new AllocationRepair(arrayAllocationEngine.allocateState(network),
+                    network.getCapacity().clone(), network.getDemand().clone());
+            lastDelta = new AllocationResponse(new ArrayList<>());
+        }
+    }
+
+    private AllocationResponse fallBack(String reason) {
+        logger.info("Incremental repair not possible for {}, falling back to a full allocation", reason);
+        repair = null;
+        ensureState();
+        lastDelta = repair.getState().toResponse();
+        return lastDelta;
+    }
+
+    private AllocationResponse finishRepair() {
+        int touchedCount = repair.finish();
+        int[] touchedZones = repair.getTouchedZones();
+        AllocationState state = repair.getState();
+        List<ZoneAllocation> allocations = new ArrayList<>(touchedCount);
+        long[] zoneIds = state.getNetwork().getZoneIds();
+        for (int i = 0; i < touchedCount; i++) {
+            int z = touchedZones[i];
+            ZoneAllocation allocation = state.zoneAllocation(z);
+            allocations.add(allocation != null ? allocation : new ZoneAllocation(zoneIds[z]));
+        }
+        lastDelta = new AllocationResponse(allocations);
+        logger.debug("Incremental repair touched {} zones", touchedCount);
+        return lastDelta;
+    }
+}
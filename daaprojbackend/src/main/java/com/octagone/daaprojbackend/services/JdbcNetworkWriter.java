@@ -0,0 +1,256 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.generator.NetworkSink;
+import com.octagone.daaprojbackend.util.LongIntHashMap;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inserts a network streamed through {@link NetworkSink} with batched JDBC
+ * inserts, bypassing JPA.
+ *
+ * Database ids are taken from the entity sequences in blocks, exactly like
+ * the pooled optimizer of the entities, so imported rows never collide with
+ * rows created through the REST API. The ids in the input are external keys,
+ * only used to resolve the sources and zones of connections; rows must
+ * appear before the connections that refer to them. Buffers are flushed in
+ * foreign key order whenever one of them is full.
+ */
+class JdbcNetworkWriter implements NetworkSink {
+
+    // Source, Zone and Connection use pooled sequences with this allocationSize, so JPA inserts can be
+    // batched and this writer can reserve ids from the same sequences without colliding with them
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    private final IdAllocator sourceIds;
+    private final IdAllocator zoneIds;
+    private final IdAllocator connectionIds;
+
+    // External key to index into the assigned database ids
+    private final LongIntHashMap sourceKeys = new LongIntHashMap();
+    private final LongIntHashMap zoneKeys = new LongIntHashMap();
+    private long[] sourceDbIds = new long[16];
+    private long[] zoneDbIds = new long[16];
+
+    private final long[] pendingSourceIds;
+    private final double[] pendingCapacity;
+    private int pendingSources;
+
+    private final long[] pendingZoneIds;
+    private final double[] pendingDemand;
+    private final int[] pendingPriority;
+    private int pendingZones;
+
+    private final long[] pendingConnectionIds;
+    private final long[] pendingConnSource;
+    private final long[] pendingConnZone;
+    private final double[] pendingCost;
+    private int pendingConnections;
+
+    private long connectionCount;
+
+    JdbcNetworkWriter(JdbcTemplate jdbcTemplate, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        sourceIds = new IdAllocator("sources_seq");
+        zoneIds = new IdAllocator("zones_seq");
+        connectionIds = new IdAllocator("connections_seq");
+        pendingSourceIds = new long[batchSize];
+        pendingCapacity = new double[batchSize];
+        pendingZoneIds = new long[batchSize];
+        pendingDemand = new double[batchSize];
+        pendingPriority = new int[batchSize];
+        pendingConnectionIds = new long[batchSize];
+        pendingConnSource = new long[batchSize];
+        pendingConnZone = new long[batchSize];
+        pendingCost = new double[batchSize];
+    }
+
+    @Override
+    public void source(long id, double capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Source " + id + " has a negative capacity");
+        }
+        int index = sourceKeys.size();
+        if (sourceKeys.put(id, index, -1) >= 0) {
+            throw new IllegalArgumentException("Duplicate source id " + id);
+        }
+        if (index == sourceDbIds.length) {
+            sourceDbIds = Arrays.copyOf(sourceDbIds, index * 2);
+        }
+        long dbId = sourceIds.next();
+        sourceDbIds[index] = dbId;
+
+        if (pendingSources == batchSize) {
+            flush();
+        }
+        pendingSourceIds[pendingSources] = dbId;
+        pendingCapacity[pendingSources] = capacity;
+        pendingSources++;
+    }
+
+    @Override
+    public void zone(long id, double demand, int priority) {
+        if (demand < 0) {
+            throw new IllegalArgumentException("Zone " + id + " has a negative demand");
+        }
+        if (priority <= 0) {
+            throw new IllegalArgumentException("Zone " + id + " must have a positive priority");
+        }
+        int index = zoneKeys.size();
+        if (zoneKeys.put(id, index, -1) >= 0) {
+            throw new IllegalArgumentException("Duplicate zone id " + id);
+        }
+        if (index == zoneDbIds.length) {
+            zoneDbIds = Arrays.copyOf(zoneDbIds, index * 2);
+        }
+        long dbId = zoneIds.next();
+        zoneDbIds[index] = dbId;
+
+        if (pendingZones == batchSize) {
+            flush();
+        }
+        pendingZoneIds[pendingZones] = dbId;
+        pendingDemand[pendingZones] = demand;
+        pendingPriority[pendingZones] = priority;
+        pendingZones++;
+    }
+
+    @Override
+    public void connection(long id, long sourceId, long zoneId, double costPerUnit) {
+        if (!(costPerUnit >= 0) || Double.isInfinite(costPerUnit)) {
+            throw new IllegalArgumentException("Connection " + id + " must have a finite, non-negative cost");
+        }
+        int source = sourceKeys.get(sourceId, -1);
+        int zone = zoneKeys.get(zoneId, -1);
+        if (source < 0 || zone < 0) {
+            throw new IllegalArgumentException("Connection " + id + " refers to unknown "
+                    + (source < 0 ? "source " + sourceId : "zone " + zoneId));
+        }
+        if (pendingConnections == batchSize) {
+            flush();
+        }
+        pendingConnectionIds[pendingConnections] = connectionIds.next();
+        pendingConnSource[pendingConnections] = sourceDbIds[source];
+        pendingConnZone[pendingConnections] = zoneDbIds[zone];
+        pendingCost[pendingConnections] = costPerUnit;
+        pendingConnections++;
+        connectionCount++;
+    }
+
+    /**
+     * Writes all buffered rows, parents first.
+     */
+    void flush() {
+        if (pendingSources > 0) {
+            int count = pendingSources;
+            jdbcTemplate.batchUpdate("INSERT INTO sources (id, capacity) VALUES (?, ?)", new Batch(count) {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, pendingSourceIds[i]);
+                    ps.setDouble(2, pendingCapacity[i]);
+                }
+            });
+            pendingSources = 0;
+        }
+        if (pendingZones > 0) {
+            int count = pendingZones;
+            jdbcTemplate.batchUpdate("INSERT INTO zones (id, demand, priority) VALUES (?, ?, ?)", new Batch(count) {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, pendingZoneIds[i]);
+                    ps.setDouble(2, pendingDemand[i]);
+                    ps.setInt(3, pendingPriority[i]);
+                }
+            });
+            pendingZones = 0;
+        }
+        if (pendingConnections > 0) {
+            int count = pendingConnections;
+            jdbcTemplate.batchUpdate("INSERT INTO connections (id, source_id, zone_id, cost_per_unit) VALUES (?, ?, ?, ?)",
+                    new Batch(count) {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            ps.setLong(1, pendingConnectionIds[i]);
+                            ps.setLong(2, pendingConnSource[i]);
+                            ps.setLong(3, pendingConnZone[i]);
+                            ps.setDouble(4, pendingCost[i]);
+                        }
+                    });
+            pendingConnections = 0;
+        }
+    }
+
+    int getSourceCount() {
+        return sourceKeys.size();
+    }
+
+    int getZoneCount() {
+        return zoneKeys.size();
+    }
+
+    long getConnectionCount() {
+        return connectionCount;
+    }
+
+    private abstract static class Batch implements BatchPreparedStatementSetter {
+        private final int size;
+
+        Batch(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int getBatchSize() {
+            return size;
+        }
+    }
+
+    /**
+     * Hands out ids from blocks of a pooled sequence: a sequence value
+     * {@code hi} reserves {@code (hi - ID_ALLOCATION_SIZE, hi]}. Enough blocks
+     * for a whole batch are fetched in one round trip.
+     */
+    private final class IdAllocator {
+        private final String sequence;
+        private long[] blocks = new long[0];
+        private int nextBlock;
+        private long next = 1;
+        private long last;
+
+        IdAllocator(String sequence) {
+            this.sequence = sequence;
+        }
+
+        long next() {
+            if (next > last) {
+                if (nextBlock == blocks.length) {
+                    fetchBlocks();
+                }
+                last = blocks[nextBlock++];
+                // The very first value of a new sequence only reserves itself, as in Hibernate
+                next = Math.max(1, last - ID_ALLOCATION_SIZE + 1);
+            }
+            return next++;
+        }
+
+        private void fetchBlocks() {
+            int count = (batchSize + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+            List<Long> values = jdbcTemplate.queryForList(
+                    "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)", Long.class, count);
+            blocks = new long[values.size()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = values.get(i);
+            }
+            nextBlock = 0;
+        }
+    }
+}
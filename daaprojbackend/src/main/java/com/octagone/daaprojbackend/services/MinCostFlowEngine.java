@@ -0,0 +1,408 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+
+/**
+ * Optimal allocation as a min-cost max-flow problem.
+ *
+ * The network is modelled as super-source -> source (capacity) -> zone
+ * (weighted connection cost) -> super-sink (demand) and solved with successive
+ * shortest paths. Each phase runs a heap based Dijkstra with node potentials
+ * on the residual graph and then pushes a blocking flow along every shortest
+ * path found, so one Dijkstra serves all augmenting paths of the same cost.
+ * The result delivers as much water as the network can carry, at the lowest
+ * total weighted cost among those maximal allocations.
+ */
+@Service
+public class MinCostFlowEngine implements AllocationStrategy {
+
+    private static final double EPSILON = 1e-9;
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+    private static final Logger logger = LoggerFactory.getLogger(MinCostFlowEngine.class);
+
+    @Override
+    public String getName() {
+        return "flow";
+    }
+
+    @Override
+    public AllocationResponse allocate(CompiledNetwork network) {
+        logger.info("Starting min-cost flow water allocation process");
+        FlowGraph graph = new FlowGraph(network);
+        graph.solve();
+        AllocationResponse response = graph.toResponse(network);
+        logger.info("Min-cost flow water allocation process completed in {} phases", graph.phases);
+        return response;
+    }
+
+    @Override
+    public void allocate(CompiledNetwork network, AllocationSink sink) {
+        logger.info("Starting min-cost flow water allocation process");
+        FlowGraph graph = new FlowGraph(network);
+        graph.solve();
+        graph.emit(network, sink);
+        logger.info("Min-cost flow water allocation process completed in {} phases", graph.phases);
+    }
+
+    /**
+     * Residual graph in CSR form. Edge {@code e} and its reverse edge {@code e ^ 1}
+     * are stored next to each other in the edge arrays.
+     */
+    private static final class FlowGraph {
+        private final int nodeCount;
+        private final int superSource;
+        private final int superSink;
+        private final int connectionEdgeBase;
+
+        private final int[] to;
+        private final double[] residual;
+        private final double[] cost;
+        private final int[] adjOffsets;
+        private final int[] adjEdges;
+
+        private final double[] potential;
+        private final double[] dist;
+        private final boolean[] settled;
+        private final int[] level;
+        private final int[] iter;
+        private final int[] queue;
+        private final int[] pathEdges;
+
+        private final int[] heap;
+        private final int[] heapPos;
+        private int heapSize;
+        private int phases;
+
+        FlowGraph(CompiledNetwork network) {
+            int sourceCount = network.getSourceCount();
+            int zoneCount = network.getZoneCount();
+            int connectionCount = network.getConnectionCount();
+
+            // Node layout: sources, zones, super-source, super-sink
+            nodeCount = sourceCount + zoneCount + 2;
+            superSource = sourceCount + zoneCount;
+            superSink = superSource + 1;
+
+            int edgeCount = 2 * (sourceCount + connectionCount + zoneCount);
+            to = new int[edgeCount];
+            residual = new double[edgeCount];
+            cost = new double[edgeCount];
+            int[] from = new int[edgeCount];
+
+            int e = 0;
+            double[] capacity = network.getCapacity();
+            for (int s = 0; s < sourceCount; s++) {
+                e = addEdge(from, e, superSource, s, capacity[s], 0);
+            }
+            connectionEdgeBase = e;
+            int[] connSrc = network.getConnSrc();
+            int[] connZone = network.getConnZone();
+            double[] weightedCost = network.getWeightedCost();
+            double[] demand = network.getDemand();
+            for (int c = 0; c < connectionCount; c++) {
+                int s = connSrc[c];
+                int z = connZone[c];
+                e = addEdge(from, e, s, sourceCount + z, Math.min(capacity[s], demand[z]), weightedCost[c]);
+            }
+            for (int z = 0; z < zoneCount; z++) {
+                e = addEdge(from, e, sourceCount + z, superSink, demand[z], 0);
+            }
+
+            // Group edges by tail node
+            adjOffsets = new int[nodeCount + 1];
+            adjEdges = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                adjOffsets[from[i] + 1]++;
+            }
+            for (int v = 0; v < nodeCount; v++) {
+                adjOffsets[v + 1] += adjOffsets[v];
+            }
+            int[] fill = Arrays.copyOf(adjOffsets, nodeCount);
+            for (int i = 0; i < edgeCount; i++) {
+                adjEdges[fill[from[i]]++] = i;
+            }
+
+            potential = new double[nodeCount];
+            dist = new double[nodeCount];
+            settled = new boolean[nodeCount];
+            level = new int[nodeCount];
+            iter = new int[nodeCount];
+            queue = new int[nodeCount];
+            pathEdges = new int[nodeCount];
+            heap = new int[nodeCount];
+            heapPos = new int[nodeCount];
+        }
+
+        private int addEdge(int[] from, int e, int u, int v, double capacity, double edgeCost) {
+            from[e] = u;
+            to[e] = v;
+            residual[e] = capacity;
+            cost[e] = edgeCost;
+            from[e + 1] = v;
+            to[e + 1] = u;
+            residual[e + 1] = 0;
+            cost[e + 1] = -edgeCost;
+            return e + 2;
+        }
+
+        private double reducedCost(int u, int e) {
+            return cost[e] + potential[u] - potential[to[e]];
+        }
+
+        void solve() {
+            while (dijkstra()) {
+                phases++;
+                // Every shortest path now has zero reduced cost; saturate them all before the next Dijkstra
+                while (buildLevels()) {
+                    // Each round is a full graph traversal, so every round checks for cancellation
+                    AllocationStrategy.checkCancelled(0);
+                    System.arraycopy(adjOffsets, 0, iter, 0, nodeCount);
+                    pushBlockingFlow();
+                }
+            }
+        }
+
+        /**
+         * Dijkstra on reduced costs, stopping as soon as the super-sink is settled.
+         * Potentials of settled nodes are then shifted so that all shortest paths to
+         * the super-sink consist of zero reduced cost edges.
+         */
+        private boolean dijkstra() {
+            Arrays.fill(dist, INFINITY);
+            Arrays.fill(heapPos, -1);
+            Arrays.fill(settled, false);
+            heapSize = 0;
+            dist[superSource] = 0;
+            heapPush(superSource);
+
+            while (heapSize > 0) {
+                int u = heapPop();
+                settled[u] = true;
+                if (u == superSink) {
+                    break;
+                }
+                for (int i = adjOffsets[u]; i < adjOffsets[u + 1]; i++) {
+                    int e = adjEdges[i];
+                    if (residual[e] <= EPSILON) {
+                        continue;
+                    }
+                    int v = to[e];
+                    if (settled[v]) {
+                        continue;
+                    }
+                    // Clamp tiny negative reduced costs caused by floating point drift
+                    double candidate = dist[u] + Math.max(0, reducedCost(u, e));
+                    if (candidate < dist[v]) {
+                        dist[v] = candidate;
+                        if (heapPos[v] < 0) {
+                            heapPush(v);
+                        } else {
+                            siftUp(heapPos[v]);
+                        }
+                    }
+                }
+            }
+
+            if (!settled[superSink]) {
+                return false;
+            }
+            double sinkDist = dist[superSink];
+            for (int v = 0; v < nodeCount; v++) {
+                if (settled[v]) {
+                    potential[v] -= sinkDist - dist[v];
+                }
+            }
+            return true;
+        }
+
+        // BFS levels over the admissible (residual, zero reduced cost) subgraph
+        private boolean buildLevels() {
+            Arrays.fill(level, -1);
+            int head = 0;
+            int tail = 0;
+            level[superSource] = 0;
+            queue[tail++] = superSource;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int i = adjOffsets[u]; i < adjOffsets[u + 1]; i++) {
+                    int e = adjEdges[i];
+                    int v = to[e];
+                    if (level[v] < 0 && residual[e] > EPSILON && reducedCost(u, e) <= EPSILON) {
+                        level[v] = level[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            return level[superSink] >= 0;
+        }
+
+        // Iterative Dinic style DFS so long residual paths cannot overflow the call stack
+        private void pushBlockingFlow() {
+            int depth = 0;
+            int u = superSource;
+            while (true) {
+                if (u == superSink) {
+                    double bottleneck = INFINITY;
+                    for (int i = 0; i < depth; i++) {
+                        bottleneck = Math.min(bottleneck, residual[pathEdges[i]]);
+                    }
+                    int retreatTo = depth;
+                    for (int i = 0; i < depth; i++) {
+                        int e = pathEdges[i];
+                        residual[e] -= bottleneck;
+                        residual[e ^ 1] += bottleneck;
+                        if (retreatTo == depth && residual[e] <= EPSILON) {
+                            retreatTo = i;
+                        }
+                    }
+                    depth = retreatTo;
+                    u = depth == 0 ? superSource : to[pathEdges[depth - 1]];
+                    continue;
+                }
+
+                boolean advanced = false;
+                for (; iter[u] < adjOffsets[u + 1]; iter[u]++) {
+                    int e = adjEdges[iter[u]];
+                    int v = to[e];
+                    if (level[v] == level[u] + 1 && residual[e] > EPSILON && reducedCost(u, e) <= EPSILON) {
+                        pathEdges[depth++] = e;
+                        u = v;
+                        advanced = true;
+                        break;
+                    }
+                }
+                if (advanced) {
+                    continue;
+                }
+
+                // Dead end: remove the node from the level graph and retreat
+                level[u] = -1;
+                if (depth == 0) {
+                    return;
+                }
+                int e = pathEdges[--depth];
+                u = to[e ^ 1];
+                iter[u]++;
+            }
+        }
+
+        AllocationResponse toResponse(CompiledNetwork network) {
+            long[] zoneIds = network.getZoneIds();
+            long[] connectionIds = network.getConnectionIds();
+            int[] zoneOffsets = network.getZoneOffsets();
+            int[] zoneConnections = network.getZoneConnections();
+
+            CompactAllocation.Builder builder = new CompactAllocation.Builder(zoneIds.length, zoneIds.length);
+            for (int z = 0; z < zoneIds.length; z++) {
+                boolean allocated = false;
+                for (int i = zoneOffsets[z]; i < zoneOffsets[z + 1]; i++) {
+                    int c = zoneConnections[i];
+                    // Flow on a connection is the residual capacity of its reverse edge
+                    double flow = residual[connectionEdgeBase + 2 * c + 1];
+                    if (flow > EPSILON) {
+                        builder.addConnection(connectionIds[c], flow);
+                        allocated = true;
+                    }
+                }
+                if (allocated) {
+                    builder.endZone(zoneIds[z]);
+                }
+            }
+            return new AllocationResponse(builder.build());
+        }
+
+        // Same zones and connections as toResponse, without building the response
+        void emit(CompiledNetwork network, AllocationSink sink) {
+            long[] connectionIds = network.getConnectionIds();
+            int[] zoneOffsets = network.getZoneOffsets();
+            int[] zoneConnections = network.getZoneConnections();
+            long[] ids = new long[16];
+            double[] amounts = new double[16];
+            for (int z = 0; z < network.getZoneCount(); z++) {
+                int size = zoneOffsets[z + 1] - zoneOffsets[z];
+                if (ids.length < size) {
+                    ids = new long[Math.max(size, ids.length * 2)];
+                    amounts = new double[ids.length];
+                }
+                int count = 0;
+                double total = 0;
+                for (int i = zoneOffsets[z]; i < zoneOffsets[z + 1]; i++) {
+                    int c = zoneConnections[i];
+                    double flow = residual[connectionEdgeBase + 2 * c + 1];
+                    if (flow > EPSILON) {
+                        ids[count] = connectionIds[c];
+                        amounts[count] = flow;
+                        total += flow;
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    sink.zone(network.getZoneIds()[z], total, ids, amounts, count);
+                }
+            }
+        }
+
+        private void heapPush(int v) {
+            heap[heapSize] = v;
+            heapPos[v] = heapSize;
+            siftUp(heapSize++);
+        }
+
+        private int heapPop() {
+            int top = heap[0];
+            heapPos[top] = -1;
+            int last = heap[--heapSize];
+            if (heapSize > 0) {
+                heap[0] = last;
+                heapPos[last] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int i) {
+            int v = heap[i];
+            double key = dist[v];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                int p = heap[parent];
+                if (dist[p] <= key) {
+                    break;
+                }
+                heap[i] = p;
+                heapPos[p] = i;
+                i = parent;
+            }
+            heap[i] = v;
+            heapPos[v] = i;
+        }
+
+        private void siftDown(int i) {
+            int v = heap[i];
+            double key = dist[v];
+            int half = heapSize >>> 1;
+            while (i < half) {
+                int child = (i << 1) + 1;
+                int right = child + 1;
+                if (right < heapSize && dist[heap[right]] < dist[heap[child]]) {
+                    child = right;
+                }
+                if (key <= dist[heap[child]]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                heapPos[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = v;
+            heapPos[v] = i;
+        }
+    }
+}
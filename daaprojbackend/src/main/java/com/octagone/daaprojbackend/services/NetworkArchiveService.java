@@ -0,0 +1,115 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.codec.NetworkArchive;
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Exports the network and its allocation to {@link NetworkArchive} files and
+ * loads them back as the served network without touching PostgreSQL.
+ *
+ * Archives live in {@code allocation.archive.dir} and are addressed by name
+ * only. A loaded archive is served until the next change through the REST API
+ * or an import invalidates the snapshot and the network is read from the
+ * database again. {@code allocation.archive.warm-start} names an archive to
+ * load at startup.
+ */
+@Service
+public class NetworkArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetworkArchiveService.class);
+
+    private static final String EXTENSION = ".wnet";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+
+    @Autowired
+    private NetworkSnapshotService networkSnapshotService;
+
+    @Autowired
+    private WaterAllocationService waterAllocationService;
+
+    @Autowired
+    private IncrementalAllocationService incrementalAllocationService;
+
+    @Value("${allocation.archive.dir:archives}")
+    private String directory;
+
+    @Value("${allocation.archive.warm-start:}")
+    private String warmStart;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadWarmStartArchive() throws IOException {
+        if (!warmStart.isBlank()) {
+            load(warmStart);
+        }
+    }
+
+    /**
+     * Writes the current network and its allocation by the given strategy.
+     */
+    public NetworkArchive export(String name, String strategyName) throws IOException {
+        Path file = resolve(name);
+        AllocationStrategy strategy = waterAllocationService.resolveStrategy(strategyName);
+        CompiledNetwork network = networkSnapshotService.getNetwork();
+        CompactAllocation allocation = waterAllocationService.allocateCompact(strategy, network);
+
+        long startTime = System.nanoTime();
+        NetworkArchive archive = new NetworkArchive(network, allocation);
+        archive.write(file);
+        logger.info("Exported network version {} ({} connections) to {} in {} ms", network.getVersion(),
+                network.getConnectionCount(), file, (System.nanoTime() - startTime) / 1_000_000);
+        return archive;
+    }
+
+    /**
+     * Reads an archive and serves its network in place of the database snapshot.
+     */
+    public NetworkArchive load(String name) throws IOException {
+        Path file = resolve(name);
+        long startTime = System.nanoTime();
+        NetworkArchive archive = NetworkArchive.read(file);
+        CompiledNetwork installed = networkSnapshotService.install(archive.getNetwork());
+        incrementalAllocationService.reset();
+        logger.info("Loaded {} ({} connections) in {} ms", file, installed.getConnectionCount(),
+                (System.nanoTime() - startTime) / 1_000_000);
+        return new NetworkArchive(installed, archive.getAllocation());
+    }
+
+    public List<String> list() throws IOException {
+        Path root = Paths.get(directory);
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(root)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(fileName -> fileName.endsWith(EXTENSION))
+                    .map(fileName -> fileName.substring(0, fileName.length() - EXTENSION.length()))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Names are plain file names inside the archive directory, never paths
+    private Path resolve(String name) {
+        String fileName = name.endsWith(EXTENSION) ? name : name + EXTENSION;
+        if (!NAME.matcher(fileName).matches()) {
+            throw new IllegalArgumentException("Invalid archive name: " + name);
+        }
+        return Paths.get(directory).resolve(fileName);
+    }
+}
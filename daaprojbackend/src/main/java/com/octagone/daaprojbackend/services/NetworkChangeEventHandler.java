@@ -0,0 +1,79 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.Connection;
+import com.octagone.daaprojbackend.models.Source;
+import com.octagone.daaprojbackend.models.Zone;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterLinkSave;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reacts to the Spring Data REST endpoints creating, updating or deleting a
+ * source, zone or connection.
+ *
+ * Every change drops the cached network snapshot. Updates of a single entity
+ * are also repaired incrementally in the last allocation, while creates and
+ * deletes change the topology and reset it.
+ */
+@Component
+@RepositoryEventHandler
+public class NetworkChangeEventHandler {
+
+    @Autowired
+    private NetworkSnapshotService networkSnapshotService;
+
+    @Autowired
+    private IncrementalAllocationService incrementalAllocationService;
+
+    @HandleAfterSave
+    public void handleSourceSave(Source source) {
+        networkSnapshotService.invalidate();
+        incrementalAllocationService.applySourceChange(source);
+    }
+
+    @HandleAfterSave
+    public void handleZoneSave(Zone zone) {
+        networkSnapshotService.invalidate();
+        incrementalAllocationService.applyZoneChange(zone);
+    }
+
+    @HandleAfterSave
+    public void handleConnectionSave(Connection connection) {
+        networkSnapshotService.invalidate();
+        incrementalAllocationService.applyConnectionChange(connection);
+    }
+
+    @HandleAfterCreate
+    @HandleAfterDelete
+    public void handleSourceTopologyChange(Source source) {
+        topologyChanged();
+    }
+
+    @HandleAfterCreate
+    @HandleAfterDelete
+    public void handleZoneTopologyChange(Zone zone) {
+        topologyChanged();
+    }
+
+    @HandleAfterCreate
+    @HandleAfterDelete
+    public void handleConnectionTopologyChange(Connection connection) {
+        topologyChanged();
+    }
+
+    @HandleAfterLinkSave
+    @HandleAfterLinkDelete
+    public void handleConnectionLinkChange(Connection connection, Object linked) {
+        topologyChanged();
+    }
+
+    private void topologyChanged() {
+        networkSnapshotService.invalidate();
+        incrementalAllocationService.reset();
+    }
+}
@@ -0,0 +1,175 @@
+package com.octagone.daaprojbackend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.octagone.daaprojbackend.generator.CsvNetworkReader;
+import com.octagone.daaprojbackend.generator.NdjsonNetworkReader;
+import com.octagone.daaprojbackend.generator.NetworkSink;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk import of whole networks from CSV or NDJSON.
+ *
+ * Rows are streamed from the request into {@link JdbcNetworkWriter}, which
+ * inserts them in JDBC batches inside a single transaction; with
+ * {@code reWriteBatchedInserts} the PostgreSQL driver turns each batch into
+ * multi-row inserts. The network snapshot is invalidated only after the
+ * transaction has committed, so no request can cache a half imported network.
+ */
+@Service
+public class NetworkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetworkImportService.class);
+
+    // Sets a sequence to the largest id of its table, only if it is behind it; the next block starts above that id
+    private static final Map<String, String> ALIGN_SEQUENCES = Map.of(
+            "sources_seq", "SELECT setval('sources_seq', MAX(id)) FROM sources"
+                    + " HAVING MAX(id) > (SELECT last_value FROM sources_seq)",
+            "zones_seq", "SELECT setval('zones_seq', MAX(id)) FROM zones"
+                    + " HAVING MAX(id) > (SELECT last_value FROM zones_seq)",
+            "connections_seq", "SELECT setval('connections_seq', MAX(id)) FROM connections"
+                    + " HAVING MAX(id) > (SELECT last_value FROM connections_seq)");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NetworkSnapshotService networkSnapshotService;
+
+    @Autowired
+    private IncrementalAllocationService incrementalAllocationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${allocation.import.batch-size:5000}")
+    private int batchSize;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void createTemplates() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Moves each id sequence past the ids already in its table, if it is
+     * behind them. Rows created while the entities still used identity columns
+     * would otherwise collide with the first ids the sequences hand out. Does
+     * nothing once the sequences are ahead, or if the schema has no sequences.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void alignSequences() {
+        for (Map.Entry<String, String> entry : ALIGN_SEQUENCES.entrySet()) {
+            String sequence = entry.getKey();
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL",
+                    Boolean.class, sequence))) {
+                logger.warn("Sequence {} not found, ids of imported rows may collide", sequence);
+                continue;
+            }
+            List<Long> values = jdbcTemplate.queryForList(entry.getValue(), Long.class);
+            if (!values.isEmpty()) {
+                logger.info("Sequence {} moved to {}", sequence, values.get(0));
+            }
+        }
+    }
+
+    public Result importCsv(Reader reader, boolean replace) throws IOException {
+        return importNetwork(sink -> CsvNetworkReader.read(reader, sink), replace);
+    }
+
+    public Result importNdjson(InputStream in, boolean replace) throws IOException {
+        return importNetwork(sink -> NdjsonNetworkReader.read(objectMapper.getFactory(), in, sink), replace);
+    }
+
+    /**
+     * Imports the rows a reader writes into a sink, replacing the existing
+     * network if {@code replace} is set. Nothing is imported if any row fails.
+     */
+    public Result importNetwork(NetworkReader reader, boolean replace) throws IOException {
+        long startTime = System.nanoTime();
+        Result result;
+        try {
+            result = transactionTemplate.execute(status -> {
+                if (replace) {
+                    jdbcTemplate.execute("TRUNCATE connections, zones, sources");
+                }
+                JdbcNetworkWriter writer = new JdbcNetworkWriter(jdbcTemplate, batchSize);
+                try {
+                    reader.read(writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                writer.flush();
+                return new Result(writer.getSourceCount(), writer.getZoneCount(), writer.getConnectionCount(),
+                        (System.nanoTime() - startTime) / 1_000_000);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // After commit: the next request loads the imported network
+        networkSnapshotService.invalidate();
+        incrementalAllocationService.reset();
+        logger.info("Imported {} sources, {} zones and {} connections in {} ms", result.getSources(),
+                result.getZones(), result.getConnections(), result.getMillis());
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface NetworkReader {
+        void read(NetworkSink sink) throws IOException;
+    }
+
+    public static class Result {
+        private final int sources;
+        private final int zones;
+        private final long connections;
+        private final long millis;
+
+        Result(int sources, int zones, long connections, long millis) {
+            this.sources = sources;
+            this.zones = zones;
+            this.connections = connections;
+            this.millis = millis;
+        }
+
+        public int getSources() {
+            return sources;
+        }
+
+        public int getZones() {
+            return zones;
+        }
+
+        public long getConnections() {
+            return connections;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+}
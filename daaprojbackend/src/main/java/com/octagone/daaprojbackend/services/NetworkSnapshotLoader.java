@@ -0,0 +1,76 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+/**
+ * Reads the whole network with a single JDBC query.
+ *
+ * Only ids, capacity, demand, priority and cost are selected, so no entities
+ * are hydrated and the eager {@code Connection} associations are never
+ * followed. Rows are streamed with a large fetch size straight into a
+ * {@link CompiledNetwork.Builder}; on PostgreSQL the read-only transaction is
+ * what lets the driver use a cursor instead of buffering the whole result.
+ */
+@Service
+public class NetworkSnapshotLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetworkSnapshotLoader.class);
+
+    private static final int SOURCE_ROW = 0;
+    private static final int ZONE_ROW = 1;
+    private static final int CONNECTION_ROW = 2;
+
+    // One result set for all three tables: kind, id, source id, zone id, amount, priority
+    private static final String NETWORK_QUERY = """
+            SELECT 0 AS kind, id, 0 AS source_id, 0 AS zone_id, capacity AS amount, 0 AS priority FROM sources
+            UNION ALL
+            SELECT 1, id, 0, 0, demand, priority FROM zones
+            UNION ALL
+            SELECT 2, id, source_id, zone_id, cost_per_unit, 0 FROM connections
+            """;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${allocation.snapshot.fetch-size:10000}")
+    private int fetchSize;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void createTemplate() {
+        // Own template so the fetch size does not leak into other JDBC users
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    @Transactional(readOnly = true)
+    public CompiledNetwork load(long version) {
+        long startTime = System.nanoTime();
+        CompiledNetwork.Builder builder = new CompiledNetwork.Builder();
+        jdbcTemplate.query(NETWORK_QUERY, rs -> {
+            int kind = rs.getInt(1);
+            long id = rs.getLong(2);
+            switch (kind) {
+                case SOURCE_ROW -> builder.addSource(id, rs.getDouble(5));
+                case ZONE_ROW -> builder.addZone(id, rs.getDouble(5), rs.getInt(6));
+                case CONNECTION_ROW -> builder.addConnection(id, rs.getLong(3), rs.getLong(4), rs.getDouble(5));
+                default -> throw new IllegalStateException("Unexpected row kind: " + kind);
+            }
+        });
+        CompiledNetwork network = builder.build(version);
+        logger.info("Loaded network snapshot version {} ({} connections) in {} ms", version,
+                network.getConnectionCount(), (System.nanoTime() - startTime) / 1_000_000);
+        return network;
+    }
+}
@@ -0,0 +1,103 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry;
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry.Phase;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the compiled network cached between allocation requests.
+ *
+ * The network is read with a single query on first use and dropped by
+ * {@link #invalidate()} whenever a source, zone or connection changes, so
+ * steady-state requests never touch JPA. A reloaded snapshot takes over the
+ * greedy connection order of the previous one, so an edit of a connection
+ * cost or zone priority only re-places the connections it affects.
+ */
+@Service
+public class NetworkSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NetworkSnapshotService.class);
+
+    @Autowired
+    private NetworkSnapshotLoader networkSnapshotLoader;
+
+    @Autowired(required = false)
+    private AllocationTelemetry telemetry = AllocationTelemetry.NOOP;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile CompiledNetwork network;
+    // Last snapshot built, kept after invalidation as the base of the next one's connection order
+    private CompiledNetwork previous;
+
+    public CompiledNetwork getNetwork() {
+        CompiledNetwork current = network;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            current = network;
+            if (current != null) {
+                return current;
+            }
+            long expectedVersion = version.get();
+            CompiledNetwork built = load(expectedVersion);
+            // Only cache the snapshot if no change arrived while it was being loaded
+            if (version.get() == expectedVersion) {
+                network = built;
+            }
+            return built;
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Serves a network that was not read from the database, e.g. one loaded
+     * from an archive, under a new version until the next change invalidates it.
+     */
+    public synchronized CompiledNetwork install(CompiledNetwork source) {
+        CompiledNetwork installed = CompiledNetwork.fromArrays(version.incrementAndGet(), source.getSourceIds(),
+                source.getCapacity(), source.getZoneIds(), source.getDemand(), source.getPriority(),
+                source.getConnectionIds(), source.getConnSrc(), source.getConnZone(), source.getCost());
+        installed.inheritConnectionOrder(previous);
+        previous = installed;
+        network = installed;
+        // A change that arrived meanwhile wins, as in getNetwork()
+        if (version.get() != installed.getVersion()) {
+            network = null;
+        }
+        recordNetwork(installed);
+        logger.info("Installed network snapshot version {} ({} connections)", installed.getVersion(),
+                installed.getConnectionCount());
+        return installed;
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+        network = null;
+        logger.debug("Network snapshot invalidated");
+    }
+
+    private CompiledNetwork load(long networkVersion) {
+        logger.info("Compiling network snapshot version {}", networkVersion);
+        long phaseStart = telemetry.start();
+        CompiledNetwork loaded = networkSnapshotLoader.load(networkVersion);
+        loaded.inheritConnectionOrder(previous);
+        previous = loaded;
+        telemetry.recordPhase("snapshot", Phase.LOAD, phaseStart);
+        recordNetwork(loaded);
+        return loaded;
+    }
+
+    private void recordNetwork(CompiledNetwork current) {
+        telemetry.recordNetwork(current.getSourceCount(), current.getZoneCount(), current.getConnectionCount());
+    }
+}
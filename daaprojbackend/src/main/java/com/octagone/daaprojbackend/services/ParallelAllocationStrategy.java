@@ -0,0 +1,150 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import com.octagone.daaprojbackend.network.NetworkPartition;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the network into connected components and allocates them in parallel.
+ *
+ * Sources and zones that share no connection cannot influence each other, so
+ * the array engine produces exactly the same allocation for every component
+ * whether it runs alone or as part of the whole network. The components are
+ * packed into tasks by {@link NetworkPartition} and run on a dedicated
+ * ForkJoinPool.
+ */
+@Component
+public class ParallelAllocationStrategy implements AllocationStrategy {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelAllocationStrategy.class);
+
+    // Tasks per worker thread, so uneven components still balance across the pool
+    private static final int TASKS_PER_THREAD = 4;
+
+    @Autowired
+    private ArrayAllocationEngine arrayAllocationEngine;
+
+    @Value("${allocation.parallel.threads:0}")
+    private int threads;
+
+    // Networks with fewer connections are allocated on the calling thread
+    @Value("${allocation.parallel.min-connections:10000}")
+    private int minConnections;
+
+    private ForkJoinPool pool;
+
+    public ParallelAllocationStrategy() {
+    }
+
+    // Outside of Spring, e.g. benchmarks; call startPool() before use
+    ParallelAllocationStrategy(ArrayAllocationEngine arrayAllocationEngine, int threads, int minConnections) {
+        this.arrayAllocationEngine = arrayAllocationEngine;
+        this.threads = threads;
+        this.minConnections = minConnections;
+    }
+
+    @PostConstruct
+    void startPool() {
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    void stopPool() {
+        pool.shutdown();
+    }
+
+    @Override
+    public String getName() {
+        return "parallel";
+    }
+
+    @Override
+    public AllocationResponse allocate(CompiledNetwork network) {
+        if (network.getConnectionCount() < minConnections || pool.getParallelism() == 1) {
+            return arrayAllocationEngine.allocate(network);
+        }
+
+        // Partition and task networks are cached on the snapshot, so only the first request pays for them
+        NetworkPartition partition = network.getPartition(pool.getParallelism() * TASKS_PER_THREAD);
+        logger.info("Allocating {} components in {} parallel tasks", partition.getComponentCount(), partition.getTaskCount());
+        if (partition.getTaskCount() <= 1) {
+            return arrayAllocationEngine.allocate(network);
+        }
+
+        List<Callable<AllocationResponse>> tasks = new ArrayList<>(partition.getTaskCount());
+        for (int t = 0; t < partition.getTaskCount(); t++) {
+            int task = t;
+            tasks.add(() -> arrayAllocationEngine.allocate(partition.getSubnetwork(task)));
+        }
+
+        List<CompactAllocation> parts = new ArrayList<>(partition.getTaskCount());
+        try {
+            for (Future<AllocationResponse> result : pool.invokeAll(tasks)) {
+                parts.add(result.get().toCompact());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel allocation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Parallel allocation failed", e.getCause());
+        }
+
+        return new AllocationResponse(merge(network, parts));
+    }
+
+    /**
+     * Interleaves the zones of the task results in network order, which is the
+     * zone order of a single array engine run. Tasks share no zones.
+     */
+    static CompactAllocation merge(CompiledNetwork network, List<CompactAllocation> parts) {
+        int[] partOfZone = new int[network.getZoneCount()];
+        int[] zoneInPart = new int[partOfZone.length];
+        Arrays.fill(partOfZone, -1);
+        int zones = 0;
+        int connections = 0;
+        for (int p = 0; p < parts.size(); p++) {
+            CompactAllocation part = parts.get(p);
+            for (int z = 0; z < part.getZoneCount(); z++) {
+                int zone = network.zoneIndexOf(part.getZoneIds()[z]);
+                partOfZone[zone] = p;
+                zoneInPart[zone] = z;
+            }
+            zones += part.getZoneCount();
+            connections += part.getConnectionCount();
+        }
+
+        CompactAllocation.Builder builder = new CompactAllocation.Builder(zones, connections);
+        for (int zone = 0; zone < partOfZone.length; zone++) {
+            if (partOfZone[zone] < 0) {
+                continue;
+            }
+            CompactAllocation part = parts.get(partOfZone[zone]);
+            int z = zoneInPart[zone];
+            for (int i = part.getZoneOffsets()[z]; i < part.getZoneOffsets()[z + 1]; i++) {
+                builder.addConnection(part.getConnectionIds()[i], part.getAmounts()[i]);
+            }
+            builder.endZone(part.getZoneIds()[z]);
+        }
+        return builder.build();
+    }
+}
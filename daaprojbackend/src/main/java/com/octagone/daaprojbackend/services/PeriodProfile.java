@@ -0,0 +1,16 @@
+package com.octagone.daaprojbackend.services;
+
+/**
+ * Source capacities and zone demands of each period of a multi-period
+ * allocation, keyed by network index.
+ */
+@FunctionalInterface
+public interface PeriodProfile {
+
+    /**
+     * Writes the capacities and demands of a period. The arrays still hold the
+     * values of the previous period, or the network's own values before the
+     * first one, so a profile only needs to write what changes.
+     */
+    void fill(int period, double[] capacity, double[] demand);
+}
@@ -0,0 +1,17 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.CompactAllocation;
+
+/**
+ * Receives the allocation of each period of a multi-period allocation, in
+ * period order, as soon as it is computed.
+ */
+@FunctionalInterface
+public interface PeriodSink {
+
+    /**
+     * Called once per period. A period whose capacities and demands equal
+     * those of the previous one gets the same allocation instance again.
+     */
+    void period(int period, CompactAllocation allocation);
+}
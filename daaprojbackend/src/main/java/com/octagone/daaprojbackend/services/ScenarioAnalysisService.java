@@ -0,0 +1,354 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.ScenarioRequest;
+import com.octagone.daaprojbackend.models.ScenarioResponse;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Monte Carlo what-if analysis: evaluates a batch of perturbed scenarios of
+ * one network in parallel on the CPU pool.
+ *
+ * The network is shared, immutable, by all workers. Scenarios are split into
+ * fixed blocks; each worker takes blocks from a shared counter and runs their
+ * scenarios with the array engine in its own scratch arrays, reusing them from
+ * one scenario to the next. Workers only keep running totals (a histogram of
+ * satisfaction rates and per-zone shortfall counts), so memory does not grow
+ * with the number of scenarios. Block totals are added up in block order, so
+ * a batch gives the same response whatever the number of workers.
+ *
+ * A batch uses at most {@code allocation.scenarios.threads} threads of the
+ * CPU pool, by default half of it, so allocation requests still find free
+ * threads while a batch runs.
+ */
+@Service
+public class ScenarioAnalysisService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScenarioAnalysisService.class);
+
+    // Unmet demand below this is treated as met
+    private static final double SHORTFALL_TOLERANCE = 1e-6;
+    // Satisfaction rates are counted in bins of 0.01 percentage points
+    private static final int RATE_BINS_PER_PERCENT = 100;
+    private static final int[] PERCENTILES = {1, 5, 10, 25, 50, 75, 90, 95, 99};
+    private static final long SCENARIO_STREAM = 0x9E3779B97F4A7C15L;
+    // Scenarios per block; fixed so that the order of the floating point sums does not depend on the workers
+    private static final int BLOCK_SIZE = 64;
+
+    // 0 = half of the CPU pool
+    @Value("${allocation.scenarios.threads:0}")
+    private int threads;
+
+    @Autowired
+    private NetworkSnapshotService networkSnapshotService;
+
+    @Autowired
+    private ArrayAllocationEngine arrayAllocationEngine;
+
+    @Autowired
+    private AllocationExecutor allocationExecutor;
+
+    public ScenarioResponse evaluate(ScenarioRequest request) {
+        request.validate();
+        return evaluate(networkSnapshotService.getNetwork(), request);
+    }
+
+    public ScenarioResponse evaluate(CompiledNetwork network, ScenarioRequest request) {
+        request.validate();
+        int count = request.scenarioCount();
+        Perturbations perturbations = request.hasPerturbations()
+                ? new ExplicitPerturbations(network, request.getPerturbations())
+                : new RandomPerturbations(network, request);
+        int[] order = network.getGreedyOrder();
+
+        long startTime = System.nanoTime();
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        AtomicInteger nextBlock = new AtomicInteger();
+        OrderedTotal total = new OrderedTotal(new Tally(network.getZoneCount()));
+        int workers = Math.min(blocks, workerLimit());
+        List<Supplier<Void>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            tasks.add(() -> {
+                Tally tally = new Tally(network.getZoneCount());
+                double[] capacity = new double[network.getSourceCount()];
+                double[] demand = new double[network.getZoneCount()];
+                double[] flow = new double[network.getConnectionCount()];
+                try {
+                    int block;
+                    while ((block = nextBlock.getAndIncrement()) < blocks) {
+                        tally.clear();
+                        int end = Math.min(count, (block + 1) * BLOCK_SIZE);
+                        for (int scenario = block * BLOCK_SIZE; scenario < end; scenario++) {
+                            perturbations.apply(scenario, capacity, demand);
+                            double totalDemand = 0;
+                            for (double zoneDemand : demand) {
+                                totalDemand += zoneDemand;
+                            }
+                            // The engine leaves the unmet demand of every zone in demand
+                            Arrays.fill(flow, 0);
+                            arrayAllocationEngine.allocateInPlace(network, capacity, demand, flow, order);
+                            tally.add(totalDemand, demand);
+                        }
+                        total.add(block, tally);
+                    }
+                } catch (RuntimeException | Error e) {
+                    // Workers waiting for this one's block would otherwise wait forever
+                    total.abort();
+                    throw e;
+                }
+                return null;
+            });
+        }
+        allocationExecutor.callAll(tasks);
+        logger.info("Evaluated {} scenarios on {} threads in {} ms", count, workers,
+                (System.nanoTime() - startTime) / 1_000_000);
+        return total.tally.toResponse(network, request.getMaxZones());
+    }
+
+    private int workerLimit() {
+        int parallelism = allocationExecutor.getParallelism();
+        return threads > 0 ? Math.min(threads, parallelism) : Math.max(1, parallelism / 2);
+    }
+
+    /**
+     * Adds block totals into the batch total strictly in block order. A worker
+     * that finishes a block early waits for the blocks before it, which only
+     * holds it up for about one block.
+     */
+    private static final class OrderedTotal {
+        private final Tally tally;
+        private int nextBlock;
+        private boolean aborted;
+
+        OrderedTotal(Tally tally) {
+            this.tally = tally;
+        }
+
+        synchronized void add(int block, Tally blockTally) {
+            while (block != nextBlock) {
+                if (aborted) {
+                    throw new IllegalStateException("Scenario batch aborted");
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Scenario batch interrupted", e);
+                }
+            }
+            tally.merge(blockTally);
+            nextBlock++;
+            notifyAll();
+        }
+
+        synchronized void abort() {
+            aborted = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Writes the capacities and demands of one scenario into scratch arrays.
+     */
+    private interface Perturbations {
+        void apply(int scenario, double[] capacity, double[] demand);
+    }
+
+    private static final class RandomPerturbations implements Perturbations {
+        private final CompiledNetwork network;
+        private final long seed;
+        private final double demandSigma;
+        private final double outageProbability;
+
+        RandomPerturbations(CompiledNetwork network, ScenarioRequest request) {
+            this.network = network;
+            this.seed = request.getSeed();
+            this.demandSigma = request.getDemandSigma();
+            this.outageProbability = request.getSourceOutageProbability();
+        }
+
+        // Every scenario has its own random stream, so results do not depend on which worker ran it
+        @Override
+        public void apply(int scenario, double[] capacity, double[] demand) {
+            SplittableRandom random = new SplittableRandom(seed + SCENARIO_STREAM * (scenario + 1L));
+            double[] storedCapacity = network.getCapacity();
+            for (int s = 0; s < capacity.length; s++) {
+                capacity[s] = random.nextDouble() < outageProbability ? 0 : storedCapacity[s];
+            }
+            double[] storedDemand = network.getDemand();
+            for (int z = 0; z < demand.length; z++) {
+                demand[z] = storedDemand[z] * (1 + demandSigma * (2 * random.nextDouble() - 1));
+            }
+        }
+    }
+
+    private static final class ExplicitPerturbations implements Perturbations {
+        private final CompiledNetwork network;
+        private final double[] demandFactors;
+        private final int[][] zones;
+        private final double[][] zoneFactors;
+        private final int[][] offlineSources;
+
+        // Ids are resolved to network indices up front, so unknown ones fail before any scenario runs
+        ExplicitPerturbations(CompiledNetwork network, List<ScenarioRequest.Perturbation> perturbations) {
+            this.network = network;
+            int count = perturbations.size();
+            demandFactors = new double[count];
+            zones = new int[count][];
+            zoneFactors = new double[count][];
+            offlineSources = new int[count][];
+            for (int i = 0; i < count; i++) {
+                ScenarioRequest.Perturbation perturbation = perturbations.get(i);
+                demandFactors[i] = perturbation.getDemandFactor();
+                Map<Long, Double> factors = perturbation.getZoneDemandFactors() == null
+                        ? Map.of() : perturbation.getZoneDemandFactors();
+                zones[i] = new int[factors.size()];
+                zoneFactors[i] = new double[factors.size()];
+                int k = 0;
+                for (Map.Entry<Long, Double> entry : factors.entrySet()) {
+                    zones[i][k] = entry.getKey() == null ? -1 : network.zoneIndexOf(entry.getKey());
+                    if (zones[i][k] < 0) {
+                        throw new IllegalArgumentException("Unknown zone in scenario " + i + ": " + entry.getKey());
+                    }
+                    zoneFactors[i][k++] = entry.getValue();
+                }
+                List<Long> offline = perturbation.getOfflineSources() == null
+                        ? List.of() : perturbation.getOfflineSources();
+                offlineSources[i] = new int[offline.size()];
+                for (k = 0; k < offline.size(); k++) {
+                    offlineSources[i][k] = offline.get(k) == null ? -1 : network.sourceIndexOf(offline.get(k));
+                    if (offlineSources[i][k] < 0) {
+                        throw new IllegalArgumentException("Unknown source in scenario " + i + ": " + offline.get(k));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void apply(int scenario, double[] capacity, double[] demand) {
+            System.arraycopy(network.getCapacity(), 0, capacity, 0, capacity.length);
+            for (int s : offlineSources[scenario]) {
+                capacity[s] = 0;
+            }
+            double[] storedDemand = network.getDemand();
+            double factor = demandFactors[scenario];
+            for (int z = 0; z < demand.length; z++) {
+                demand[z] = storedDemand[z] * factor;
+            }
+            int[] scenarioZones = zones[scenario];
+            for (int k = 0; k < scenarioZones.length; k++) {
+                demand[scenarioZones[k]] = storedDemand[scenarioZones[k]] * zoneFactors[scenario][k];
+            }
+        }
+    }
+
+    /**
+     * Running totals of one worker.
+     */
+    private static final class Tally {
+        private final long[] rateHistogram = new long[100 * RATE_BINS_PER_PERCENT + 1];
+        private final int[] shortfallCount;
+        private final double[] shortfallSum;
+        private int scenarios;
+        private double rateSum;
+        private double minRate = Double.POSITIVE_INFINITY;
+        private double maxRate = Double.NEGATIVE_INFINITY;
+
+        Tally(int zoneCount) {
+            shortfallCount = new int[zoneCount];
+            shortfallSum = new double[zoneCount];
+        }
+
+        void clear() {
+            Arrays.fill(rateHistogram, 0);
+            Arrays.fill(shortfallCount, 0);
+            Arrays.fill(shortfallSum, 0);
+            scenarios = 0;
+            rateSum = 0;
+            minRate = Double.POSITIVE_INFINITY;
+            maxRate = Double.NEGATIVE_INFINITY;
+        }
+
+        void add(double totalDemand, double[] unmetDemand) {
+            double unmet = 0;
+            for (int z = 0; z < unmetDemand.length; z++) {
+                if (unmetDemand[z] > SHORTFALL_TOLERANCE) {
+                    shortfallCount[z]++;
+                    shortfallSum[z] += unmetDemand[z];
+                    unmet += unmetDemand[z];
+                }
+            }
+            // Same definition as AllocationMetrics
+            double rate = totalDemand > 0 ? Math.max(0, Math.min((totalDemand - unmet) / totalDemand * 100, 100)) : 0;
+            rateHistogram[(int) Math.round(rate * RATE_BINS_PER_PERCENT)]++;
+            rateSum += rate;
+            minRate = Math.min(minRate, rate);
+            maxRate = Math.max(maxRate, rate);
+            scenarios++;
+        }
+
+        void merge(Tally other) {
+            for (int i = 0; i < rateHistogram.length; i++) {
+                rateHistogram[i] += other.rateHistogram[i];
+            }
+            for (int z = 0; z < shortfallCount.length; z++) {
+                shortfallCount[z] += other.shortfallCount[z];
+                shortfallSum[z] += other.shortfallSum[z];
+            }
+            scenarios += other.scenarios;
+            rateSum += other.rateSum;
+            minRate = Math.min(minRate, other.minRate);
+            maxRate = Math.max(maxRate, other.maxRate);
+        }
+
+        ScenarioResponse toResponse(CompiledNetwork network, int maxZones) {
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            for (int percentile : PERCENTILES) {
+                percentiles.put("p" + percentile, percentile(percentile));
+            }
+
+            List<Integer> shortZones = new ArrayList<>();
+            for (int z = 0; z < shortfallCount.length; z++) {
+                if (shortfallCount[z] > 0) {
+                    shortZones.add(z);
+                }
+            }
+            shortZones.sort(Comparator.<Integer>comparingInt(z -> shortfallCount[z]).reversed()
+                    .thenComparing(Comparator.<Integer>comparingDouble(z -> shortfallSum[z]).reversed()));
+            List<ScenarioResponse.ZoneShortfall> zones = new ArrayList<>(Math.min(maxZones, shortZones.size()));
+            for (int z : shortZones.subList(0, Math.min(maxZones, shortZones.size()))) {
+                zones.add(new ScenarioResponse.ZoneShortfall(network.getZoneIds()[z],
+                        (double) shortfallCount[z] / scenarios, shortfallSum[z] / scenarios));
+            }
+            return new ScenarioResponse(scenarios, network.getVersion(), rateSum / scenarios, minRate, maxRate,
+                    percentiles, shortZones.size(), zones);
+        }
+
+        // Nearest rank percentile of the histogram
+        private double percentile(int percentile) {
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * scenarios));
+            long seen = 0;
+            for (int bin = 0; bin < rateHistogram.length; bin++) {
+                seen += rateHistogram[bin];
+                if (seen >= rank) {
+                    return (double) bin / RATE_BINS_PER_PERCENT;
+                }
+            }
+            return maxRate;
+        }
+    }
+}
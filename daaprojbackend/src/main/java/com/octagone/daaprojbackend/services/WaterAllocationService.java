@@ -1,39 +1,243 @@
 package com.octagone.daaprojbackend.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.octagone.daaprojbackend.codec.AllocationBinaryWriter;
+import com.octagone.daaprojbackend.metrics.AllocationMetrics;
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry;
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry.Phase;
+import com.octagone.daaprojbackend.metrics.StrategyLatencyStats;
 import com.octagone.daaprojbackend.models.AllocationResponse;
-import com.octagone.daaprojbackend.models.Connection;
-import com.octagone.daaprojbackend.models.Source;
-import com.octagone.daaprojbackend.models.Zone;
-import com.octagone.daaprojbackend.repositories.ConnectionRepository;
-import com.octagone.daaprojbackend.repositories.SourceRepository;
-import com.octagone.daaprojbackend.repositories.ZoneRepository;
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class WaterAllocationService {
 
+    // Serialized result formats held in the result cache
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_BINARY = "binary";
+    public static final String FORMAT_BINARY_RAW = "binary-raw";
+
+    @Autowired
+    private List<AllocationStrategy> strategies;
+
     @Autowired
-    private WaterAllocationServiceImpl allocationServiceImpl;
+    private NetworkSnapshotService networkSnapshotService;
 
     @Autowired
-    private SourceRepository sourceRepository;
+    private AllocationExecutor allocationExecutor;
 
     @Autowired
-    private ZoneRepository zoneRepository;
+    private AllocationResultCache resultCache;
 
     @Autowired
-    private ConnectionRepository connectionRepository;
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private AllocationTelemetry telemetry = AllocationTelemetry.NOOP;
+
+    // Default strategy when a request does not name one
+    @Value("${allocation.engine:greedy}")
+    private String engine;
+
+    private final Map<String, AllocationStrategy> strategiesByName = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final StrategyLatencyStats latencyStats = new StrategyLatencyStats();
+    private final Map<String, AllocationMetrics> lastMetrics = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<AllocationResultCache.Entry>> inFlightResults = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerStrategies() {
+        for (AllocationStrategy strategy : strategies) {
+            if (strategiesByName.put(strategy.getName(), strategy) != null) {
+                throw new IllegalStateException("Duplicate allocation strategy: " + strategy.getName());
+            }
+        }
+    }
 
     public AllocationResponse allocateWater() {
-        // Retrieve data from repositories
-        List<Source> sources = sourceRepository.findAll();
-        List<Zone> zones = zoneRepository.findAll();
-        List<Connection> connections = connectionRepository.findAll();
+        return allocateWater(null);
+    }
+
+    public AllocationResponse allocateWater(String strategyName) {
+        AllocationStrategy strategy = resolveStrategy(strategyName);
+
+        // Use the cached network snapshot instead of reloading the repositories
+        return allocate(strategy, networkSnapshotService.getNetwork());
+    }
+
+    /**
+     * The serialized result of a strategy for the current network, in one of
+     * the {@code FORMAT_} formats. Repeated calls for an unchanged network are
+     * served from the result cache without allocating, and concurrent calls
+     * for the same result share a single allocation.
+     */
+    public AllocationResultCache.Entry allocateSerialized(String strategyName, String format) {
+        AllocationStrategy strategy = resolveStrategy(strategyName);
+        CompiledNetwork network = networkSnapshotService.getNetwork();
+        // Keyed by the version the snapshot was built from, which may be older than the current one
+        long version = network.getVersion();
+        AllocationResultCache.Entry cached = resultCache.get(version, strategy.getName(), format);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Single flight: concurrent misses for the same result wait for the first one instead of allocating again
+        String key = AllocationResultCache.key(version, strategy.getName(), format);
+        CompletableFuture<AllocationResultCache.Entry> computation = new CompletableFuture<>();
+        CompletableFuture<AllocationResultCache.Entry> inFlight = inFlightResults.putIfAbsent(key, computation);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            // The previous computation may have finished between the cache miss and claiming the key
+            AllocationResultCache.Entry entry = resultCache.get(version, strategy.getName(), format);
+            if (entry == null) {
+                byte[] body = allocationExecutor.call(() -> serialize(strategy, network, format));
+                entry = resultCache.put(version, strategy.getName(), format, body);
+            }
+            computation.complete(entry);
+            return entry;
+        } catch (Throwable e) {
+            // Errors too, e.g. running out of memory while encoding, or the waiters would block forever
+            computation.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightResults.remove(key, computation);
+        }
+    }
+
+    private static AllocationResultCache.Entry await(CompletableFuture<AllocationResultCache.Entry> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            // Waiters see the same exception as the request that computed the result
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Allocation failed", e.getCause());
+        }
+    }
+
+    /**
+     * The ETag {@link #allocateSerialized} would return for the current network,
+     * so unchanged results can be confirmed without allocating.
+     */
+    public String resultETag(String strategyName, String format) {
+        return resultCache.eTag(networkSnapshotService.getVersion(), resolveStrategy(strategyName).getName(), format);
+    }
+
+    private byte[] serialize(AllocationStrategy strategy, CompiledNetwork network, String format) {
+        // Only the encoding is timed as serialization, the allocation records its own phases
+        Object result = switch (format) {
+            case FORMAT_JSON -> allocate(strategy, network);
+            case FORMAT_BINARY, FORMAT_BINARY_RAW -> allocateCompact(strategy, network);
+            default -> throw new IllegalArgumentException("Unknown allocation format: " + format);
+        };
+        long phaseStart = telemetry.start();
+        byte[] body = result instanceof AllocationResponse response
+                ? toJson(response)
+                : AllocationBinaryWriter.encode((CompactAllocation) result, format.equals(FORMAT_BINARY));
+        telemetry.recordPhase(strategy.getName(), Phase.SERIALIZATION, phaseStart);
+        return body;
+    }
+
+    private byte[] toJson(AllocationResponse response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize allocation", e);
+        }
+    }
+
+    private AllocationResponse allocate(AllocationStrategy strategy, CompiledNetwork network) {
+        // Call the allocation algorithm on the CPU pool, the request thread only waits
+        long startTime = System.nanoTime();
+        AllocationResponse response = allocationExecutor.call(() -> strategy.allocate(network));
+        long executionTime = System.nanoTime() - startTime;
+        latencyStats.record(strategy.getName(), network.getConnectionCount(), executionTime);
+
+        // Single pass over the response, cheap enough for every call
+        AllocationMetrics metrics = new AllocationMetrics(strategy.getName());
+        metrics.calculateMetrics(network, response, executionTime);
+        lastMetrics.put(strategy.getName(), metrics);
+        telemetry.recordOutcome(strategy.getName(), metrics.getTotalDemand() - metrics.getTotalAllocated(),
+                metrics.getSatisfactionRate());
+        return response;
+    }
+
+    /**
+     * Streams the allocation of the given strategy into a sink. Latency is
+     * recorded as for {@link #allocateWater(String)}, including the time the
+     * sink spends writing. Runs on the calling thread, since the sink usually
+     * blocks on I/O.
+     */
+    public void allocateWater(AllocationStrategy strategy, AllocationSink sink) {
+        allocateWater(strategy, networkSnapshotService.getNetwork(), sink);
+    }
+
+    // For callers that need the network themselves, e.g. to report progress against its zone count
+    public void allocateWater(AllocationStrategy strategy, CompiledNetwork network, AllocationSink sink) {
+        long startTime = System.nanoTime();
+        strategy.allocate(network, sink);
+        latencyStats.record(strategy.getName(), network.getConnectionCount(), System.nanoTime() - startTime);
+    }
+
+    /**
+     * Allocates into primitive columns without creating per-zone objects, for
+     * the binary representation of {@code /allocate-water}.
+     */
+    public CompactAllocation allocateCompact(String strategyName) {
+        return allocateCompact(resolveStrategy(strategyName), networkSnapshotService.getNetwork());
+    }
+
+    public CompactAllocation allocateCompact(AllocationStrategy strategy, CompiledNetwork network) {
+        return allocationExecutor.call(() -> {
+            CompactAllocation.Builder builder = new CompactAllocation.Builder();
+            allocateWater(strategy, network, builder::addZone);
+            return builder.build();
+        });
+    }
+
+    public List<String> getStrategyNames() {
+        return List.copyOf(strategiesByName.keySet());
+    }
+
+    public List<StrategyLatencyStats.Entry> getLatencyStats() {
+        return latencyStats.snapshot();
+    }
+
+    /**
+     * Metrics of the most recent allocation of each strategy.
+     */
+    public Map<String, AllocationMetrics> getLastMetrics() {
+        return new TreeMap<>(lastMetrics);
+    }
 
-        // Call the allocation algorithm
-        return allocationServiceImpl.allocateWater(sources, zones, connections);
+    /**
+     * Looks up a strategy by name, or the configured default when the name is blank.
+     */
+    public AllocationStrategy resolveStrategy(String strategyName) {
+        String selected = strategyName == null || strategyName.isBlank() ? engine : strategyName;
+        AllocationStrategy strategy = strategiesByName.get(selected);
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown allocation strategy: " + selected
+                    + ". Available strategies: " + strategiesByName.keySet());
+        }
+        return strategy;
     }
 }
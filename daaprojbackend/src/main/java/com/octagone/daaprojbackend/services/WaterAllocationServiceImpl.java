@@ -1,10 +1,16 @@
 package com.octagone.daaprojbackend.services;
 
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry;
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry.Phase;
+import com.octagone.daaprojbackend.metrics.AllocationTrace;
+import com.octagone.daaprojbackend.metrics.AllocationTracer;
 import com.octagone.daaprojbackend.models.Connection;
 import com.octagone.daaprojbackend.models.Source;
 import com.octagone.daaprojbackend.models.Zone;
 import com.octagone.daaprojbackend.models.ZoneAllocation;
 import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.util.IndexSort;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,67 +23,140 @@ public class WaterAllocationServiceImpl {
 
     private static final double EPSILON = 1e-9;
     private static final Logger logger = LoggerFactory.getLogger(WaterAllocationServiceImpl.class);
+    // Engine tag of the recorded phases, the name of the strategy that delegates here
+    private static final String ENGINE = "greedy";
+
+    @Autowired(required = false)
+    private AllocationTelemetry telemetry = AllocationTelemetry.NOOP;
+
+    @Autowired(required = false)
+    private AllocationTracer tracer = new AllocationTracer(0);
 
     public AllocationResponse allocateWater(List<Source> sources, List<Zone> zones, List<Connection> connections) {
+        return allocateWater(sources, zones, connections, null);
+    }
+
+    /**
+     * Allocates with a greedy order computed beforehand: the positions of the
+     * connections in the list, by ascending weighted cost. Lists built in the
+     * index order of a compiled network can use its
+     * {@link com.octagone.daaprojbackend.network.CompiledNetwork#getGreedyOrder()}.
+     * Without an order the connections are sorted first.
+     */
+    public AllocationResponse allocateWater(List<Source> sources, List<Zone> zones, List<Connection> connections,
+            int[] order) {
+        AllocationTrace trace = tracer.begin(ENGINE);
+        try {
+            return allocateWater(sources, zones, connections, order, trace);
+        } finally {
+            trace.end();
+        }
+    }
+
+    private AllocationResponse allocateWater(List<Source> sources, List<Zone> zones, List<Connection> connections,
+            int[] order, AllocationTrace trace) {
         logger.info("Starting water allocation process");
         // Null check for inputs
         if (sources == null || zones == null || connections == null) {
             throw new IllegalArgumentException("Sources, Zones, and Connections cannot be null.");
         }
 
+        trace.phase(Phase.VALIDATION);
+        long phaseStart = telemetry.start();
         validateInputs(sources, zones, connections);
+        if (order != null && order.length != connections.size()) {
+            throw new IllegalArgumentException("Greedy order does not match the connections");
+        }
+        telemetry.recordPhase(ENGINE, Phase.VALIDATION, phaseStart);
 
-        // Create maps for faster access
-        Map<Long, Source> sourceMap = sources.stream().collect(Collectors.toMap(Source::getId, s -> s));
-        Map<Long, Zone> zoneMap = zones.stream().collect(Collectors.toMap(Zone::getId, z -> z));
+        // Create index maps for faster access; the entities themselves are never modified
+        Map<Long, Integer> sourceIndex = new HashMap<>();
+        for (int i = 0; i < sources.size(); i++) {
+            sourceIndex.put(sources.get(i).getId(), i);
+        }
+        Map<Long, Integer> zoneIndex = new HashMap<>();
+        for (int i = 0; i < zones.size(); i++) {
+            zoneIndex.put(zones.get(i).getId(), i);
+        }
         Map<Long, List<Connection>> connectionsByZone = connections.stream()
                 .collect(Collectors.groupingBy(c -> c.getZone().getId()));
 
-        // Stage 1: Weighted Greedy Allocation
-        PriorityQueue<Connection> connectionQueue = new PriorityQueue<>(
-                Comparator.comparingDouble(Connection::getWeightedCost));
-        connections.forEach(conn -> {
-            conn.setWeightedCost(conn.getCostPerUnit() / conn.getZone().getPriority());
-            connectionQueue.offer(conn);
-        });
+        // Residual state of this run, keyed by position in the input lists
+        ResidualState state = new ResidualState(sources, zones);
+
+        // Stage 1: Weighted Greedy Allocation, a linear scan of the connections sorted by weighted cost
+        if (order == null) {
+            trace.phase(Phase.QUEUE_BUILD);
+            phaseStart = telemetry.start();
+            order = greedyOrder(connections);
+            telemetry.recordPhase(ENGINE, Phase.QUEUE_BUILD, phaseStart);
+        }
 
         Map<Long, ZoneAllocation> allocationMap = new HashMap<>();
-        Set<Long> availableSources = new HashSet<>(sourceMap.keySet());
-        Set<Long> unmetDemands = new HashSet<>(zoneMap.keySet());
-
-        while (!connectionQueue.isEmpty() && !unmetDemands.isEmpty() && !availableSources.isEmpty()) {
-            Connection conn = connectionQueue.poll();
-            Source source = sourceMap.get(conn.getSource().getId());
-            Zone zone = zoneMap.get(conn.getZone().getId());
-
-            if (availableSources.contains(source.getId()) && zone.getDemand() > EPSILON) {
-                double allocation = Math.min(zone.getDemand(), source.getCapacity());
-                updateAllocation(allocationMap, zone.getId(), allocation, conn.getId());
-                source.setCapacity(source.getCapacity() - allocation);
-                zone.setDemand(zone.getDemand() - allocation);
-                zone.addFilledCapacity(allocation);
-                logger.debug("Allocated {} units from source {} to zone {} through connection {}",
-                        allocation, source.getId(), zone.getId(), conn.getId());
+        Set<Long> availableSources = new HashSet<>(sourceIndex.keySet());
+        Set<Long> unmetDemands = new HashSet<>(zoneIndex.keySet());
+
+        trace.phase(Phase.GREEDY);
+        phaseStart = telemetry.start();
+        long polled = 0;
+        long used = 0;
+
+        for (int next = 0; next < order.length && !unmetDemands.isEmpty() && !availableSources.isEmpty(); next++) {
+            AllocationStrategy.checkCancelled(next);
+            Connection conn = connections.get(order[next]);
+            polled++;
+            Long sourceId = conn.getSource().getId();
+            Long zoneId = conn.getZone().getId();
+            int s = sourceIndex.get(sourceId);
+            int z = zoneIndex.get(zoneId);
+
+            if (availableSources.contains(sourceId) && state.remainingDemand[z] > EPSILON) {
+                used++;
+                double allocation = Math.min(state.remainingDemand[z], state.residualCapacity[s]);
+                updateAllocation(allocationMap, zoneId, allocation, conn.getId());
+                state.allocate(s, z, allocation);
+                if (trace.isActive()) {
+                    trace.decision(Phase.GREEDY, conn.getId(), sourceId, zoneId, allocation);
+                }
 
                 // Remove source if depleted
-                if (source.getCapacity() <= EPSILON) {
-                    availableSources.remove(source.getId());
+                if (state.residualCapacity[s] <= EPSILON) {
+                    availableSources.remove(sourceId);
                 }
 
                 // Remove zone if demand is met
-                if (zone.getDemand() <= EPSILON) {
-                    unmetDemands.remove(zone.getId());
+                if (state.remainingDemand[z] <= EPSILON) {
+                    unmetDemands.remove(zoneId);
                 }
             }
         }
 
+        telemetry.recordPhase(ENGINE, Phase.GREEDY, phaseStart);
+        telemetry.recordGreedyStage(ENGINE, polled, used);
+
         // Stage 2: Backtracking Adjustment
-        adjustAllocationsForUnmetDemand(allocationMap, zones, connectionsByZone, sourceMap);
+        trace.phase(Phase.BACKTRACKING);
+        phaseStart = telemetry.start();
+        adjustAllocationsForUnmetDemand(allocationMap, zones, connectionsByZone, sourceIndex, state, trace);
+        telemetry.recordPhase(ENGINE, Phase.BACKTRACKING, phaseStart);
 
         logger.info("Water allocation process completed");
         return new AllocationResponse(new ArrayList<>(allocationMap.values()));
     }
 
+    // Positions of the connections by ascending weighted cost, equal costs by position
+    private static int[] greedyOrder(List<Connection> connections) {
+        double[] weightedCost = new double[connections.size()];
+        int[] order = new int[connections.size()];
+        for (int i = 0; i < connections.size(); i++) {
+            Connection conn = connections.get(i);
+            weightedCost[i] = conn.getCostPerUnit() / conn.getZone().getPriority();
+            order[i] = i;
+        }
+        IndexSort.sortByKey(order, weightedCost);
+        return order;
+    }
+
     private void validateInputs(List<Source> sources, List<Zone> zones, List<Connection> connections) {
         boolean invalidSource = sources.parallelStream().anyMatch(s -> s.getCapacity() < 0);
         boolean invalidZone = zones.parallelStream().anyMatch(z -> z.getDemand() < 0 || z.getPriority() <= 0);
@@ -89,14 +168,17 @@ public class WaterAllocationServiceImpl {
     }
 
     private void adjustAllocationsForUnmetDemand(Map<Long, ZoneAllocation> allocationMap, List<Zone> zones,
-            Map<Long, List<Connection>> connectionsByZone, Map<Long, Source> sourceMap) {
-        for (Zone zone : zones) {
-            double unmetDemand = zone.getDemand();
+            Map<Long, List<Connection>> connectionsByZone, Map<Long, Integer> sourceIndex, ResidualState state,
+            AllocationTrace trace) {
+        for (int z = 0; z < zones.size(); z++) {
+            AllocationStrategy.checkCancelled(z);
+            Zone zone = zones.get(z);
+            double unmetDemand = state.remainingDemand[z];
             if (unmetDemand > EPSILON) {
-                List<Connection> zoneConnections = connectionsByZone.get(zone.getId());
+                List<Connection> zoneConnections = connectionsByZone.getOrDefault(zone.getId(), List.of());
                 for (Connection conn : zoneConnections) {
-                    Source source = sourceMap.get(conn.getSource().getId());
-                    double availableCapacity = source.getCapacity();
+                    int s = sourceIndex.get(conn.getSource().getId());
+                    double availableCapacity = state.residualCapacity[s];
 
                     // If the source has no available capacity, skip to the next connection
                     if (availableCapacity <= EPSILON) {
@@ -110,13 +192,14 @@ public class WaterAllocationServiceImpl {
                     if (additionalAllocation > EPSILON) {
                         updateAllocation(allocationMap, zone.getId(), additionalAllocation, conn.getId());
 
-                        // Update the source capacity and zone demand
-                        source.setCapacity(availableCapacity - additionalAllocation);
-                        zone.addFilledCapacity(additionalAllocation);
+                        // Update the residual source capacity and zone demand
+                        state.allocate(s, z, additionalAllocation);
                         unmetDemand -= additionalAllocation;
 
-                        logger.debug("Adjusted allocation: {} units from source {} to zone {} through connection {}",
-                                additionalAllocation, source.getId(), zone.getId(), conn.getId());
+                        if (trace.isActive()) {
+                            trace.decision(Phase.BACKTRACKING, conn.getId(), conn.getSource().getId(), zone.getId(),
+                                    additionalAllocation);
+                        }
 
                         // Early exit if the demand is met
                         if (unmetDemand <= EPSILON) {
@@ -133,4 +216,30 @@ public class WaterAllocationServiceImpl {
         ZoneAllocation allocation = allocationMap.computeIfAbsent(zoneId, ZoneAllocation::new);
         allocation.addConnectionAllocation(connectionId, amount);
     }
+
+    /**
+     * Remaining source capacity and zone demand of one run, keyed by position in
+     * the input lists. Keeping this apart from the entities lets concurrent runs
+     * share the same Source and Zone instances.
+     */
+    private static final class ResidualState {
+        private final double[] residualCapacity;
+        private final double[] remainingDemand;
+
+        ResidualState(List<Source> sources, List<Zone> zones) {
+            residualCapacity = new double[sources.size()];
+            for (int i = 0; i < residualCapacity.length; i++) {
+                residualCapacity[i] = sources.get(i).getCapacity();
+            }
+            remainingDemand = new double[zones.size()];
+            for (int i = 0; i < remainingDemand.length; i++) {
+                remainingDemand[i] = zones.get(i).getDemand();
+            }
+        }
+
+        void allocate(int source, int zone, double amount) {
+            residualCapacity[source] -= amount;
+            remainingDemand[zone] -= amount;
+        }
+    }
 }
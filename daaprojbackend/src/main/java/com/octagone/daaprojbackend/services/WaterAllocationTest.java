@@ -5,9 +5,12 @@ import com.octagone.daaprojbackend.models.Source;
 import com.octagone.daaprojbackend.models.Zone;
 import com.octagone.daaprojbackend.models.ZoneAllocation;
 import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.ConnectionAllocation;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class WaterAllocationTest {
 
@@ -46,15 +49,31 @@ public class WaterAllocationTest {
             System.out.println("Zone ID: " + allocation.getZoneId() + ", Allocated Amount: " + allocation.getAmount());
         }
 
+        // The allocation leaves the entities untouched, so derive the remaining amounts from the response
+        Map<Long, Double> usedBySource = new HashMap<>();
+        Map<Long, Double> allocatedByZone = new HashMap<>();
+        for (ZoneAllocation allocation : response.getAllocations()) {
+            allocatedByZone.merge(allocation.getZoneId(), allocation.getAmount(), Double::sum);
+            for (ConnectionAllocation connAlloc : allocation.getConnectionAllocations()) {
+                Connection conn = connections.stream()
+                        .filter(c -> c.getId().equals(connAlloc.getConnectionId()))
+                        .findFirst()
+                        .orElseThrow();
+                usedBySource.merge(conn.getSource().getId(), connAlloc.getAmount(), Double::sum);
+            }
+        }
+
         // Print remaining capacities and demands
         System.out.println("\nRemaining Source Capacities:");
         for (Source source : sources) {
-            System.out.println("Source ID: " + source.getId() + ", Remaining Capacity: " + source.getCapacity());
+            System.out.println("Source ID: " + source.getId() + ", Remaining Capacity: "
+                    + (source.getCapacity() - usedBySource.getOrDefault(source.getId(), 0.0)));
         }
 
         System.out.println("\nRemaining Zone Demands:");
         for (Zone zone : zones) {
-            System.out.println("Zone ID: " + zone.getId() + ", Remaining Demand: " + zone.getDemand());
+            System.out.println("Zone ID: " + zone.getId() + ", Remaining Demand: "
+                    + (zone.getDemand() - allocatedByZone.getOrDefault(zone.getId(), 0.0)));
         }
     }
 }
@@ -0,0 +1,81 @@
+package com.octagone.daaprojbackend.util;
+
+/**
+ * Sorts arrays of indices by a primitive key without boxing.
+ */
+public final class IndexSort {
+
+    private static final int INSERTION_SORT_THRESHOLD = 24;
+
+    private IndexSort() {
+    }
+
+    /**
+     * Sorts {@code indices[from .. to)} so that {@code key[indices[i]]} is ascending.
+     * Equal keys are ordered by index so the result does not depend on the input order.
+     */
+    public static void sortByKey(int[] indices, int from, int to, double[] key) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int pivotSlot = medianOfThree(indices, from, from + ((to - from) >>> 1), to - 1, key);
+            int pivot = indices[pivotSlot];
+            // Hoare style partition around the pivot
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (less(indices[i], pivot, key)) {
+                    i++;
+                }
+                while (less(pivot, indices[j], key)) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = indices[i];
+                    indices[i] = indices[j];
+                    indices[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse into the smaller half to bound the stack depth
+            if (j - from < to - i) {
+                sortByKey(indices, from, j + 1, key);
+                from = i;
+            } else {
+                sortByKey(indices, i, to, key);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            int item = indices[i];
+            int j = i - 1;
+            while (j >= from && less(item, indices[j], key)) {
+                indices[j + 1] = indices[j];
+                j--;
+            }
+            indices[j + 1] = item;
+        }
+    }
+
+    public static void sortByKey(int[] indices, double[] key) {
+        sortByKey(indices, 0, indices.length, key);
+    }
+
+    private static boolean less(int a, int b, double[] key) {
+        double ka = key[a];
+        double kb = key[b];
+        return ka < kb || (ka == kb && a < b);
+    }
+
+    private static int medianOfThree(int[] indices, int a, int b, int c, double[] key) {
+        if (less(indices[a], indices[b], key)) {
+            if (less(indices[b], indices[c], key)) {
+                return b;
+            }
+            return less(indices[a], indices[c], key) ? c : a;
+        }
+        if (less(indices[a], indices[c], key)) {
+            return a;
+        }
+        return less(indices[b], indices[c], key) ? c : b;
+    }
+}
@@ -0,0 +1,58 @@
+package com.octagone.daaprojbackend.codec;
+
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+import com.octagone.daaprojbackend.services.MinCostFlowEngine;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class AllocationBinaryCodecTest {
+
+    private CompactAllocation allocation() {
+        NetworkGeneratorConfig config = new NetworkGeneratorConfig()
+                .setSeed(11)
+                .setSources(20)
+                .setZones(300)
+                .setClusters(3)
+                .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED);
+        CompactAllocation.Builder builder = new CompactAllocation.Builder();
+        new MinCostFlowEngine().allocate(new NetworkGenerator(config).generateNetwork(), builder::addZone);
+        return builder.build();
+    }
+
+    @Test
+    void testRoundTrip() {
+        CompactAllocation original = allocation();
+        for (boolean deltaIds : new boolean[]{true, false}) {
+            CompactAllocation decoded = AllocationBinaryReader.read(AllocationBinaryWriter.encode(original, deltaIds));
+
+            assertArrayEquals(original.getZoneIds(), decoded.getZoneIds());
+            assertArrayEquals(original.getZoneOffsets(), decoded.getZoneOffsets());
+            assertArrayEquals(original.getConnectionIds(), decoded.getConnectionIds());
+            assertArrayEquals(original.getAmounts(), decoded.getAmounts());
+        }
+    }
+
+    @Test
+    void testDecodedResponseMatches() {
+        CompactAllocation original = allocation();
+        List<ZoneAllocation> expected = original.toResponse().getAllocations();
+        AllocationResponse decoded = AllocationBinaryReader.read(AllocationBinaryWriter.encode(original, true)).toResponse();
+
+        assertEquals(expected.size(), decoded.getAllocations().size());
+        for (int z = 0; z < expected.size(); z++) {
+            assertEquals(expected.get(z).getZoneId(), decoded.getAllocations().get(z).getZoneId());
+            assertEquals(expected.get(z).getAmount(), decoded.getAllocations().get(z).getAmount(), 1e-9);
+        }
+    }
+
+    @Test
+    void testRejectsForeignPayload() {
+        assertThrows(IllegalArgumentException.class, () -> AllocationBinaryReader.read("{\"allocations\":[]}".getBytes()));
+    }
+}
@@ -0,0 +1,100 @@
+package com.octagone.daaprojbackend.codec;
+
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
+import com.octagone.daaprojbackend.models.CompactAllocation;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import com.octagone.daaprojbackend.services.ArrayAllocationEngine;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class NetworkArchiveTest {
+
+    @Test
+    void testRoundTrip() throws Exception {
+        CompiledNetwork network = new NetworkGenerator(new NetworkGeneratorConfig()
+                .setSeed(13)
+                .setSources(40)
+                .setZones(1000)
+                .setClusters(4))
+                .generateNetwork();
+        CompactAllocation.Builder builder = new CompactAllocation.Builder();
+        new ArrayAllocationEngine().allocate(network, builder::addZone);
+        CompactAllocation allocation = builder.build();
+
+        Path file = Files.createTempDirectory("archive").resolve("network.wnet");
+        new NetworkArchive(network, allocation).write(file);
+        NetworkArchive read = NetworkArchive.read(file);
+
+        assertArrayEquals(network.getSourceIds(), read.getNetwork().getSourceIds());
+        assertArrayEquals(network.getCapacity(), read.getNetwork().getCapacity());
+        assertArrayEquals(network.getDemand(), read.getNetwork().getDemand());
+        assertArrayEquals(network.getPriority(), read.getNetwork().getPriority());
+        assertArrayEquals(network.getConnSrc(), read.getNetwork().getConnSrc());
+        assertArrayEquals(network.getConnZone(), read.getNetwork().getConnZone());
+        assertArrayEquals(network.getCost(), read.getNetwork().getCost());
+        assertArrayEquals(allocation.getZoneOffsets(), read.getAllocation().getZoneOffsets());
+        assertArrayEquals(allocation.getConnectionIds(), read.getAllocation().getConnectionIds());
+        assertArrayEquals(allocation.getAmounts(), read.getAllocation().getAmounts());
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws Exception {
+        Path file = Files.createTempFile("archive", ".wnet");
+        Files.write(file, new byte[128]);
+        assertThrows(IllegalArgumentException.class, () -> NetworkArchive.read(file));
+    }
+
+    @Test
+    void testRejectsInvalidValues() throws Exception {
+        CompiledNetwork network = new CompiledNetwork.Builder()
+                .addSource(1, 100)
+                .addSource(2, 50)
+                .addZone(1, 30, 1)
+                .addZone(2, 40, 2)
+                .addConnection(1, 1, 1, 1.5)
+                .addConnection(2, 1, 2, 2.0)
+                .addConnection(3, 2, 2, 1.0)
+                .build(1);
+        CompactAllocation allocation = new CompactAllocation.Builder()
+                .addConnection(1, 30).endZone(1)
+                .addConnection(2, 15).addConnection(3, 25).endZone(2)
+                .build();
+        Path file = Files.createTempDirectory("archive").resolve("network.wnet");
+        new NetworkArchive(network, allocation).write(file);
+        byte[] valid = Files.readAllBytes(file);
+        assertDoesNotThrow(() -> NetworkArchive.read(file));
+
+        // Offsets of the patched values in a 2-source, 2-zone, 3-connection archive
+        assertThrows(IllegalArgumentException.class, () -> readPatched(file, valid, 88, -1.0));
+        assertThrows(IllegalArgumentException.class, () -> readPatched(file, valid, 128, 0));
+        assertThrows(IllegalArgumentException.class, () -> readPatched(file, valid, 192, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> readPatched(file, valid, 192, Double.POSITIVE_INFINITY));
+        // Allocation offsets of the second zone past the end of its connections
+        assertThrows(IllegalArgumentException.class, () -> readPatched(file, valid, 232 + 4, 4));
+    }
+
+    private static void readPatched(Path file, byte[] valid, long position, double value) throws Exception {
+        patch(file, valid, position, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(0, value));
+        NetworkArchive.read(file);
+    }
+
+    private static void readPatched(Path file, byte[] valid, long position, int value) throws Exception {
+        patch(file, valid, position, ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, value));
+        NetworkArchive.read(file);
+    }
+
+    private static void patch(Path file, byte[] valid, long position, ByteBuffer bytes) throws Exception {
+        Files.write(file, valid);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+}
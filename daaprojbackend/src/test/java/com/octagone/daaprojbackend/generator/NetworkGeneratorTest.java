@@ -0,0 +1,91 @@
+package com.octagone.daaprojbackend.generator;
+
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import com.octagone.daaprojbackend.services.MinCostFlowEngine;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class NetworkGeneratorTest {
+
+    private NetworkGeneratorConfig config() {
+        return new NetworkGeneratorConfig()
+                .setSeed(7)
+                .setSources(50)
+                .setZones(500)
+                .setConnectionsPerZone(3)
+                .setClusters(4);
+    }
+
+    @Test
+    void testSameSeedSameNetwork() {
+        CompiledNetwork first = new NetworkGenerator(config()).generateNetwork();
+        CompiledNetwork second = new NetworkGenerator(config()).generateNetwork();
+
+        assertEquals(1500, first.getConnectionCount());
+        assertArrayEquals(first.getCapacity(), second.getCapacity());
+        assertArrayEquals(first.getDemand(), second.getDemand());
+        assertArrayEquals(first.getCost(), second.getCost());
+        assertArrayEquals(first.getConnSrc(), second.getConnSrc());
+    }
+
+    @Test
+    void testFeasibleNetworkCanMeetAllDemand() {
+        CompiledNetwork network = new NetworkGenerator(config()).generateNetwork();
+
+        double totalDemand = Arrays.stream(network.getDemand()).sum();
+        double allocated = new MinCostFlowEngine().allocate(network).getAllocations().stream()
+                .mapToDouble(ZoneAllocation::getAmount)
+                .sum();
+        assertEquals(totalDemand, allocated, 1e-6);
+    }
+
+    @Test
+    void testOversubscribedNetwork() {
+        CompiledNetwork network = new NetworkGenerator(config()
+                .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED)
+                .setOversubscription(2.0))
+                .generateNetwork();
+
+        double totalDemand = Arrays.stream(network.getDemand()).sum();
+        double totalCapacity = Arrays.stream(network.getCapacity()).sum();
+        assertEquals(2.0, totalDemand / totalCapacity, 1e-9);
+    }
+
+    @Test
+    void testCsvWriter() throws Exception {
+        StringWriter out = new StringWriter();
+        try (CsvNetworkWriter writer = new CsvNetworkWriter(out)) {
+            new NetworkGenerator(config().setSources(2).setZones(3).setConnectionsPerZone(2)).generate(writer);
+        }
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2 + 3 + 6, lines.length);
+        assertTrue(lines[0].startsWith("S,1,"));
+        assertTrue(lines[2].startsWith("Z,1,"));
+        assertTrue(lines[3].startsWith("C,1,"));
+    }
+
+    @Test
+    void testCsvReaderRoundTrip() throws Exception {
+        StringWriter out = new StringWriter();
+        try (CsvNetworkWriter writer = new CsvNetworkWriter(out)) {
+            new NetworkGenerator(config()).generate(writer);
+        }
+        CompiledNetworkSink sink = new CompiledNetworkSink(new CompiledNetwork.Builder());
+        CsvNetworkReader.read(new StringReader(out.toString()), sink);
+        CompiledNetwork read = sink.build(0);
+        CompiledNetwork generated = new NetworkGenerator(config()).generateNetwork();
+
+        assertArrayEquals(generated.getCapacity(), read.getCapacity());
+        assertArrayEquals(generated.getDemand(), read.getDemand());
+        assertArrayEquals(generated.getCost(), read.getCost());
+        assertArrayEquals(generated.getConnSrc(), read.getConnSrc());
+        assertThrows(IllegalArgumentException.class,
+                () -> CsvNetworkReader.read(new StringReader("S,1,10\nC,1,1\n"), sink));
+    }
+}
@@ -0,0 +1,53 @@
+package com.octagone.daaprojbackend.metrics;
+
+import com.octagone.daaprojbackend.metrics.AllocationTelemetry.Phase;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllocationTracerTest {
+
+    @Test
+    void testRingKeepsTheLastDecisionsOfTheLastRun() {
+        AllocationTracer tracer = new AllocationTracer(3);
+        AllocationTrace trace = tracer.begin("array");
+        assertTrue(trace.isActive());
+        for (int c = 1; c <= 5; c++) {
+            trace.decision(c <= 4 ? Phase.GREEDY : Phase.BACKTRACKING, c, 1, 1, c * 10.0);
+        }
+        trace.end();
+
+        AllocationTracer.Snapshot snapshot = tracer.snapshot(10);
+        assertEquals("array", snapshot.getEngine());
+        assertEquals(5, snapshot.getTotalDecisions());
+        List<AllocationTracer.Decision> decisions = snapshot.getDecisions();
+        assertEquals(3, decisions.size());
+        assertEquals(3, decisions.get(0).getConnectionId());
+        assertEquals(5, decisions.get(2).getConnectionId());
+        assertEquals(50.0, decisions.get(2).getAmount());
+        assertEquals("backtracking", decisions.get(2).getStage());
+        assertEquals(1, tracer.snapshot(1).getDecisions().size());
+    }
+
+    @Test
+    void testRunInProgressIsNotVisible() {
+        AllocationTracer tracer = new AllocationTracer(4);
+        AllocationTrace first = tracer.begin("array");
+        first.decision(Phase.GREEDY, 1, 1, 1, 1.0);
+        first.end();
+
+        AllocationTrace second = tracer.begin("greedy");
+        second.decision(Phase.GREEDY, 2, 1, 1, 2.0);
+        assertEquals("array", tracer.snapshot(10).getEngine());
+        second.end();
+        assertEquals("greedy", tracer.snapshot(10).getEngine());
+    }
+
+    @Test
+    void testDisabledBufferIsReported() {
+        AllocationTracer tracer = new AllocationTracer(0);
+        assertThrows(IllegalStateException.class, () -> tracer.snapshot(10));
+    }
+}
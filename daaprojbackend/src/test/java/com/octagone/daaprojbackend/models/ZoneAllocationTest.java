@@ -0,0 +1,51 @@
+package com.octagone.daaprojbackend.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZoneAllocationTest {
+
+    @Test
+    void testRepeatedConnectionsAreMerged() {
+        ZoneAllocation allocation = new ZoneAllocation(1L);
+        for (int i = 0; i < 30; i++) {
+            allocation.addConnectionAllocation((long) (i % 10), 1.0);
+        }
+
+        assertEquals(10, allocation.connectionCount());
+        assertEquals(10, allocation.getConnectionAllocations().size());
+        assertEquals(3.0, allocation.getConnectionAllocations().get(0).getAmount(), 1e-9);
+        assertEquals(30.0, allocation.getAmount(), 1e-9);
+    }
+
+    @Test
+    void testResponseZonesAreViewsOverTheCompactAllocation() {
+        CompactAllocation compact = new CompactAllocation.Builder()
+                .addConnection(10, 2.0).addConnection(11, 3.0).endZone(1)
+                .addConnection(12, 4.0).endZone(2)
+                .build();
+        AllocationResponse response = compact.toResponse();
+
+        assertSame(compact, response.toCompact());
+        assertEquals(2, response.getAllocations().size());
+        ZoneAllocation first = response.getAllocations().get(0);
+        assertEquals(1L, first.getZoneId());
+        assertEquals(5.0, first.getAmount(), 1e-9);
+        assertEquals(11L, first.getConnectionAllocations().get(1).getConnectionId());
+
+        // Modifying a view copies its entries instead of writing to the shared columns
+        first.addConnectionAllocation(10L, 1.0);
+        assertEquals(3.0, first.connectionAmount(0), 1e-9);
+        assertEquals(2.0, compact.getAmounts()[0], 1e-9);
+
+        // The response keeps the modified zone and rebuilds its columns from it
+        assertSame(first, response.getAllocations().get(0));
+        assertEquals(6.0, response.getAllocations().get(0).getAmount(), 1e-9);
+        CompactAllocation modified = response.toCompact();
+        assertNotSame(compact, modified);
+        assertEquals(3.0, modified.getAmounts()[0], 1e-9);
+        assertEquals(6.0, modified.zoneAmount(0), 1e-9);
+        assertEquals(4.0, modified.zoneAmount(1), 1e-9);
+    }
+}
@@ -0,0 +1,70 @@
+package com.octagone.daaprojbackend.network;
+
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
+import com.octagone.daaprojbackend.util.IndexSort;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionOrderTest {
+
+    @Test
+    void testOrderIsSortedByWeightedCost() {
+        CompiledNetwork network = network();
+
+        assertArrayEquals(sorted(network), network.getGreedyOrder());
+    }
+
+    @Test
+    void testUpdateMatchesFullSort() {
+        CompiledNetwork network = network();
+        network.getGreedyOrder();
+        Random random = new Random(7);
+        for (int edit = 0; edit < 20; edit++) {
+            int[] priority = network.getPriority().clone();
+            double[] cost = network.getCost().clone();
+            cost[random.nextInt(cost.length)] = random.nextDouble() * 100;
+            priority[random.nextInt(priority.length)] = priority[random.nextInt(priority.length)];
+
+            CompiledNetwork edited = CompiledNetwork.fromArrays(network.getVersion() + 1, network.getSourceIds(),
+                    network.getCapacity(), network.getZoneIds(), network.getDemand(), priority,
+                    network.getConnectionIds(), network.getConnSrc(), network.getConnZone(), cost);
+            edited.inheritConnectionOrder(network);
+
+            assertArrayEquals(sorted(edited), edited.getGreedyOrder());
+            network = edited;
+        }
+    }
+
+    @Test
+    void testUnchangedNetworkSharesTheOrder() {
+        CompiledNetwork network = network();
+        ConnectionOrder order = network.getConnectionOrder();
+        CompiledNetwork reloaded = CompiledNetwork.fromArrays(network.getVersion() + 1, network.getSourceIds(),
+                network.getCapacity(), network.getZoneIds(), network.getDemand(), network.getPriority(),
+                network.getConnectionIds(), network.getConnSrc(), network.getConnZone(), network.getCost());
+        reloaded.inheritConnectionOrder(network);
+
+        assertSame(order, reloaded.getConnectionOrder());
+    }
+
+    private static CompiledNetwork network() {
+        return new NetworkGenerator(new NetworkGeneratorConfig()
+                .setSources(20)
+                .setZones(500)
+                .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED))
+                .generateNetwork();
+    }
+
+    private static int[] sorted(CompiledNetwork network) {
+        int[] order = new int[network.getConnectionCount()];
+        for (int c = 0; c < order.length; c++) {
+            order[c] = c;
+        }
+        IndexSort.sortByKey(order, network.getWeightedCost());
+        return order;
+    }
+}
@@ -0,0 +1,163 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+public class AllocationJobTest {
+
+    private CompiledNetwork network() {
+        return new CompiledNetwork.Builder()
+                .addSource(1, 100)
+                .addZone(1, 30, 3)
+                .addZone(2, 30, 2)
+                .addZone(3, 30, 1)
+                .addConnection(1, 1, 1, 1)
+                .addConnection(2, 1, 2, 1)
+                .addConnection(3, 1, 3, 1)
+                .build(0);
+    }
+
+    @Test
+    void testPartialResultsAndProgress() {
+        CompiledNetwork network = network();
+        AllocationJob job = new AllocationJob("job", "array");
+        assertTrue(job.start(network.getZoneCount()));
+        assertEquals(AllocationJob.Status.RUNNING, job.getStatus());
+
+        new ArrayAllocationEngine().allocate(network, job);
+        assertEquals(3, job.getZonesAllocated());
+        assertEquals(1.0, job.getProgress(), 1e-9);
+        assertEquals(2, job.allocations(1, 10).size());
+        assertTrue(job.allocations(5, 10).isEmpty());
+
+        List<ZoneAllocation> running = job.allocations(0, 10);
+        job.complete();
+        assertEquals(AllocationJob.Status.COMPLETED, job.getStatus());
+        assertFalse(job.cancel());
+        // The finished result is the same zones in columnar form
+        List<ZoneAllocation> finished = job.allocations(0, 10);
+        assertEquals(running.size(), finished.size());
+        for (int i = 0; i < running.size(); i++) {
+            assertEquals(running.get(i).getZoneId(), finished.get(i).getZoneId());
+            assertEquals(running.get(i).getAmount(), finished.get(i).getAmount(), 1e-9);
+        }
+        assertTrue(job.getResultSize() > 0);
+    }
+
+    @Test
+    void testCancelledJobStopsAndNeverStarts() {
+        AllocationJob queued = new AllocationJob("queued", "array");
+        assertTrue(queued.cancel());
+        assertFalse(queued.start(3));
+        assertEquals(AllocationJob.Status.CANCELLED, queued.getStatus());
+
+        AllocationJob running = new AllocationJob("running", "array");
+        running.start(3);
+        running.cancel();
+        assertThrows(CancellationException.class, () -> new ArrayAllocationEngine().allocate(network(), running));
+        assertEquals(0, running.getZonesAllocated());
+    }
+
+    @Test
+    void testEnginesStopWhenInterrupted() {
+        GreedyAllocationStrategy greedy = new GreedyAllocationStrategy();
+        ReflectionTestUtils.setField(greedy, "allocationServiceImpl", new WaterAllocationServiceImpl());
+        List<AllocationStrategy> strategies = List.of(new ArrayAllocationEngine(), greedy, new MinCostFlowEngine());
+        for (AllocationStrategy strategy : strategies) {
+            Thread.currentThread().interrupt();
+            try {
+                assertThrows(CancellationException.class, () -> strategy.allocate(network()), strategy.getName());
+            } finally {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    @Test
+    void testJobFailsWhenAnErrorEscapes() throws InterruptedException {
+        AllocationStrategy failing = new AllocationStrategy() {
+            @Override
+            public String getName() {
+                return "failing";
+            }
+
+            @Override
+            public AllocationResponse allocate(CompiledNetwork network) {
+                throw new StackOverflowError();
+            }
+        };
+        WaterAllocationService waterAllocationService = new WaterAllocationService();
+        ReflectionTestUtils.setField(waterAllocationService, "strategies", List.of(failing));
+        waterAllocationService.registerStrategies();
+        NetworkSnapshotService snapshotService = new NetworkSnapshotService();
+        snapshotService.install(network());
+        AllocationJobService service = new AllocationJobService();
+        ReflectionTestUtils.setField(service, "waterAllocationService", waterAllocationService);
+        ReflectionTestUtils.setField(service, "networkSnapshotService", snapshotService);
+        ReflectionTestUtils.setField(service, "concurrency", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "retained", 10);
+        ReflectionTestUtils.setField(service, "retainedSize", DataSize.ofMegabytes(1));
+        service.startExecutor();
+        try {
+            AllocationJob job = service.submit("failing");
+            for (int i = 0; i < 500 && !job.isFinished(); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(AllocationJob.Status.FAILED, job.getStatus());
+            assertTrue(job.getError().contains("StackOverflowError"));
+        } finally {
+            service.stopExecutor();
+        }
+    }
+
+    @Test
+    void testRetainedResultsAreBoundedBySize() throws InterruptedException {
+        WaterAllocationService waterAllocationService = new WaterAllocationService();
+        ReflectionTestUtils.setField(waterAllocationService, "strategies", List.of(new ArrayAllocationEngine()));
+        waterAllocationService.registerStrategies();
+        NetworkSnapshotService snapshotService = new NetworkSnapshotService();
+        snapshotService.install(network());
+        AllocationJobService service = new AllocationJobService();
+        ReflectionTestUtils.setField(service, "waterAllocationService", waterAllocationService);
+        ReflectionTestUtils.setField(service, "networkSnapshotService", snapshotService);
+        ReflectionTestUtils.setField(service, "concurrency", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "retained", 10);
+        ReflectionTestUtils.setField(service, "retainedSize", DataSize.ofMegabytes(1));
+        service.startExecutor();
+        try {
+            AllocationJob first = awaitJob(service, "array");
+            // Room for two results of this network, far fewer than the retained job count
+            ReflectionTestUtils.setField(service, "retainedSize", DataSize.ofBytes(2 * first.getResultSize()));
+            AllocationJob second = awaitJob(service, "array");
+            AllocationJob third = awaitJob(service, "array");
+
+            assertNull(service.getJob(first.getId()));
+            assertSame(second, service.getJob(second.getId()));
+            assertSame(third, service.getJob(third.getId()));
+            assertEquals(3, third.allocations(0, 10).size());
+        } finally {
+            service.stopExecutor();
+        }
+    }
+
+    private static AllocationJob awaitJob(AllocationJobService service, String strategy) throws InterruptedException {
+        AllocationJob job = service.submit(strategy);
+        for (int i = 0; i < 500 && !job.isFinished(); i++) {
+            Thread.sleep(10);
+        }
+        // Eviction runs right after the job finishes
+        Thread.sleep(20);
+        assertEquals(AllocationJob.Status.COMPLETED, job.getStatus());
+        return job;
+    }
+}
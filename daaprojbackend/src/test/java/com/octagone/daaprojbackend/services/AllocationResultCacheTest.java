@@ -0,0 +1,41 @@
+package com.octagone.daaprojbackend.services;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllocationResultCacheTest {
+
+    @Test
+    void testEntriesAreKeyedByVersionStrategyAndFormat() {
+        AllocationResultCache cache = new AllocationResultCache(8, 600);
+        AllocationResultCache.Entry entry = cache.put(3, "array", "json", new byte[]{1, 2});
+
+        assertSame(entry, cache.get(3, "array", "json"));
+        assertEquals(cache.eTag(3, "array", "json"), entry.getETag());
+        assertNull(cache.get(4, "array", "json"));
+        assertNull(cache.get(3, "flow", "json"));
+        assertNull(cache.get(3, "array", "binary"));
+        assertNotEquals(cache.eTag(3, "array", "json"), cache.eTag(4, "array", "json"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        AllocationResultCache cache = new AllocationResultCache(2, 600);
+        cache.put(1, "array", "json", new byte[0]);
+        cache.put(2, "array", "json", new byte[0]);
+        cache.get(1, "array", "json");
+        cache.put(3, "array", "json", new byte[0]);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1, "array", "json"));
+        assertNull(cache.get(2, "array", "json"));
+    }
+
+    @Test
+    void testExpiredEntriesAreNotReturned() {
+        AllocationResultCache cache = new AllocationResultCache(8, 0);
+        cache.put(1, "array", "json", new byte[0]);
+
+        assertNull(cache.get(1, "array", "json"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
+import com.octagone.daaprojbackend.models.*;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@SpringBootTest
+public class ArrayAllocationEngineTest {
+
+    @Autowired
+    private WaterAllocationServiceImpl waterAllocationService;
+
+    @Autowired
+    private ArrayAllocationEngine arrayAllocationEngine;
+
+    @Test
+    void testMatchesObjectBasedEngine() {
+        Random random = new Random(42);
+        for (int run = 0; run < 20; run++) {
+            long seed = random.nextLong();
+            // Both engines get their own copy of the same network
+            Network first = network(seed);
+            Network second = network(seed);
+            AllocationResponse expected = waterAllocationService.allocateWater(
+                    first.sources, first.zones, first.connections);
+            AllocationResponse actual = arrayAllocationEngine.allocateWater(
+                    second.sources, second.zones, second.connections);
+
+            assertEquals(expected.getAllocations().size(), actual.getAllocations().size());
+            for (ZoneAllocation allocation : expected.getAllocations()) {
+                ZoneAllocation other = actual.getAllocations().stream()
+                        .filter(a -> a.getZoneId().equals(allocation.getZoneId()))
+                        .findFirst()
+                        .orElse(null);
+                assertNotNull(other, "Zone " + allocation.getZoneId() + " should be allocated");
+                assertEquals(allocation.getAmount(), other.getAmount(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void testStreamingMatchesResponse() {
+        CompiledNetwork network = new NetworkGenerator(new NetworkGeneratorConfig()
+                .setSources(20)
+                .setZones(300)
+                .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED))
+                .generateNetwork();
+        List<ZoneAllocation> expected = arrayAllocationEngine.allocate(network).getAllocations();
+
+        List<Long> zoneIds = new ArrayList<>();
+        List<Double> amounts = new ArrayList<>();
+        arrayAllocationEngine.allocate(network, (zoneId, amount, connectionIds, connectionAmounts, count) -> {
+            zoneIds.add(zoneId);
+            amounts.add(amount);
+        });
+
+        assertEquals(expected.size(), zoneIds.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getZoneId(), zoneIds.get(i));
+            assertEquals(expected.get(i).getAmount(), amounts.get(i), 1e-9);
+        }
+    }
+
+    @Test
+    void testPeriodsMatchSingleRuns() {
+        CompiledNetwork network = new NetworkGenerator(new NetworkGeneratorConfig()
+                .setSources(20)
+                .setZones(300)
+                .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED))
+                .generateNetwork();
+        double[] factors = {0.5, 1.0, 1.0, 1.5};
+        PeriodProfile profile = (period, capacity, demand) -> {
+            for (int z = 0; z < demand.length; z++) {
+                demand[z] = network.getDemand()[z] * factors[period];
+            }
+        };
+
+        List<CompactAllocation> periods = arrayAllocationEngine.allocatePeriods(network, factors.length, profile);
+
+        assertEquals(factors.length, periods.size());
+        // Unchanged periods share their result
+        assertSame(periods.get(1), periods.get(2));
+        for (int p = 0; p < factors.length; p++) {
+            double[] demand = network.getDemand().clone();
+            profile.fill(p, network.getCapacity().clone(), demand);
+            CompiledNetwork single = CompiledNetwork.fromArrays(network.getVersion(), network.getSourceIds(),
+                    network.getCapacity(), network.getZoneIds(), demand, network.getPriority(),
+                    network.getConnectionIds(), network.getConnSrc(), network.getConnZone(), network.getCost());
+            CompactAllocation expected = arrayAllocationEngine.allocate(single).toCompact();
+            assertArrayEquals(expected.getZoneIds(), periods.get(p).getZoneIds());
+            assertArrayEquals(expected.getConnectionIds(), periods.get(p).getConnectionIds());
+            assertArrayEquals(expected.getAmounts(), periods.get(p).getAmounts(), 1e-9);
+        }
+    }
+
+    @Test
+    void testInvalidInput() {
+        List<Source> sources = List.of(new Source(1L, -5.0));
+        List<Zone> zones = List.of(new Zone(1L, 10.0, 1));
+        List<Connection> connections = List.of(new Connection(1L, sources.get(0), zones.get(0), 1.0));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> arrayAllocationEngine.allocateWater(sources, zones, connections));
+    }
+
+    private Network network(long seed) {
+        Random random = new Random(seed);
+        Network network = new Network();
+        int numSources = 2 + random.nextInt(6);
+        int numZones = 3 + random.nextInt(15);
+        for (int i = 1; i <= numSources; i++) {
+            network.sources.add(new Source((long) i, 50.0 + random.nextDouble() * 100.0));
+        }
+        for (int i = 1; i <= numZones; i++) {
+            network.zones.add(new Zone((long) i, 20.0 + random.nextDouble() * 40.0, 1 + random.nextInt(3)));
+        }
+        long connectionId = 1;
+        for (Zone zone : network.zones) {
+            Source source = network.sources.get(random.nextInt(numSources));
+            network.connections.add(new Connection(connectionId++, source, zone, 1.0 + random.nextDouble()));
+        }
+        // Additional longer-distance connections exercise the backtracking stage
+        int extra = random.nextInt(numZones);
+        for (int i = 0; i < extra; i++) {
+            Source source = network.sources.get(random.nextInt(numSources));
+            Zone zone = network.zones.get(random.nextInt(numZones));
+            network.connections.add(new Connection(connectionId++, source, zone, 2.0 + random.nextDouble() * 2.0));
+        }
+        return network;
+    }
+
+    private static class Network {
+        private final List<Source> sources = new ArrayList<>();
+        private final List<Zone> zones = new ArrayList<>();
+        private final List<Connection> connections = new ArrayList<>();
+    }
+}
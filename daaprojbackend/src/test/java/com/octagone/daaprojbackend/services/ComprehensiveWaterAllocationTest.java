@@ -2,6 +2,9 @@ package com.octagone.daaprojbackend.services;
 
 import com.octagone.daaprojbackend.models.*;
 import com.octagone.daaprojbackend.metrics.AllocationMetrics;
+import com.octagone.daaprojbackend.generator.EntityNetworkSink;
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -21,7 +24,7 @@ public class ComprehensiveWaterAllocationTest {
     private WaterAllocationServiceImpl waterAllocationService;
 
     private static final String RESULTS_DIR = "test-results/";
-    private final Random random = new Random(42); // Fixed seed for reproducibility
+    private static final long SEED = 42; // Fixed seed for reproducibility
 
     @Test
     void runComprehensiveTests() {
@@ -39,11 +42,19 @@ public class ComprehensiveWaterAllocationTest {
             writeCSVHeader(csvWriter);
 
             // Run realistic test scenarios
-            runScenario("Small Town Network", 2, 4, 5, detailedWriter, csvWriter);
-            runScenario("Suburban District", 4, 8, 12, detailedWriter, csvWriter);
-            runScenario("City Network", 6, 15, 25, detailedWriter, csvWriter);
-            runScenario("Metropolitan Area", 8, 20, 35, detailedWriter, csvWriter);
-            runScenario("Regional Network", 10, 30, 50, detailedWriter, csvWriter);
+            runScenario("Small Town Network", new NetworkGeneratorConfig()
+                    .setSources(2).setZones(4).setConnectionsPerZone(1), detailedWriter, csvWriter);
+            runScenario("Suburban District", new NetworkGeneratorConfig()
+                    .setSources(4).setZones(8).setConnectionsPerZone(2), detailedWriter, csvWriter);
+            runScenario("City Network", new NetworkGeneratorConfig()
+                    .setSources(6).setZones(15).setConnectionsPerZone(2).setClusters(2), detailedWriter, csvWriter);
+            runScenario("Metropolitan Area", new NetworkGeneratorConfig()
+                    .setSources(8).setZones(20).setConnectionsPerZone(2).setClusters(3), detailedWriter, csvWriter);
+            runScenario("Regional Network", new NetworkGeneratorConfig()
+                    .setSources(10).setZones(30).setConnectionsPerZone(2).setClusters(4), detailedWriter, csvWriter);
+            runScenario("Drought Region", new NetworkGeneratorConfig()
+                    .setSources(40).setZones(400).setConnectionsPerZone(3).setClusters(8)
+                    .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED), detailedWriter, csvWriter);
 
             System.out.println("Test results written to:");
             System.out.println("Detailed report: " + detailedReport);
@@ -53,18 +64,20 @@ public class ComprehensiveWaterAllocationTest {
         }
     }
 
-    private void runScenario(String scenarioName, int numSources, int numZones,
-            int numConnections, PrintWriter detailedWriter, PrintWriter csvWriter) {
+    private void runScenario(String scenarioName, NetworkGeneratorConfig config,
+            PrintWriter detailedWriter, PrintWriter csvWriter) {
+
+        // Generate test data
+        EntityNetworkSink network = new EntityNetworkSink();
+        new NetworkGenerator(config.setSeed(SEED)).generate(network);
+        List<Source> sources = network.getSources();
+        List<Zone> zones = network.getZones();
+        List<Connection> connections = network.getConnections();
 
         detailedWriter.println("\n=== " + scenarioName + " ===");
         detailedWriter.println("Configuration:");
-        detailedWriter.printf("- Sources: %d\n- Zones: %d\n- Connections: %d\n\n",
-                numSources, numZones, numConnections);
-
-        // Generate test data
-        List<Source> sources = generateSources(numSources);
-        List<Zone> zones = generateZones(numZones);
-        List<Connection> connections = generateConnections(sources, zones, numConnections);
+        detailedWriter.printf("- Sources: %d\n- Zones: %d\n- Connections: %d\n- Mode: %s\n\n",
+                sources.size(), zones.size(), connections.size(), config.getMode());
 
         // Store original capacities before allocation
         double totalOriginalCapacity = sources.stream()
@@ -86,86 +99,6 @@ public class ComprehensiveWaterAllocationTest {
         writeCSVMetrics(csvWriter, metrics);
     }
 
-    private List<Source> generateSources(int count) {
-        List<Source> sources = new ArrayList<>();
-
-        // Base capacity per source (ensure enough total capacity)
-        double baseCapacity = switch (count) {
-            case 2 -> 50.0; // Small town: ~100 MLD total
-            case 4 -> 60.0; // Suburban: ~240 MLD total
-            case 6 -> 70.0; // City: ~420 MLD total
-            case 8 -> 100.0; // Metro: ~800 MLD total
-            default -> 120.0; // Regional: ~1200 MLD total
-        };
-
-        for (int i = 1; i <= count; i++) {
-            // Add 10% variation to capacity
-            double capacity = baseCapacity + (random.nextDouble() * baseCapacity * 0.1);
-            sources.add(new Source((long) i, capacity));
-            logger.debug("Generated Source {}: Capacity={}", i, capacity);
-        }
-        return sources;
-    }
-
-    private List<Zone> generateZones(int count) {
-        List<Zone> zones = new ArrayList<>();
-
-        // Set minimum demands based on network size
-        double minDemand = switch (count) {
-            case 4 -> 20.0; // Small town: 20-30 MLD
-            case 8 -> 25.0; // Suburban: 25-35 MLD
-            case 15 -> 30.0; // City: 30-40 MLD
-            case 20 -> 35.0; // Metro: 35-45 MLD
-            default -> 40.0; // Regional: 40-50 MLD
-        };
-
-        for (int i = 1; i <= count; i++) {
-            // Generate demand with 20% variation but never below minDemand
-            double demand = minDemand + (random.nextDouble() * minDemand * 0.2);
-
-            // Assign priorities with realistic distribution
-            int priority;
-            if (i <= count * 0.6) { // 60% residential
-                priority = 1;
-                demand *= 1.0; // Base demand
-            } else if (i <= count * 0.85) { // 25% commercial
-                priority = 2;
-                demand *= 1.2; // 20% higher than residential
-            } else { // 15% industrial
-                priority = 3;
-                demand *= 1.5; // 50% higher than residential
-            }
-
-            zones.add(new Zone((long) i, demand, priority));
-            logger.debug("Generated Zone {}: Demand={}, Priority={}", i, demand, priority);
-        }
-        return zones;
-    }
-
-    private List<Connection> generateConnections(List<Source> sources, List<Zone> zones, int count) {
-        List<Connection> connections = new ArrayList<>();
-        long connectionId = 1;
-
-        // Ensure each zone has at least one connection to nearest source
-        for (Zone zone : zones) {
-            Source nearestSource = sources.get(random.nextInt(sources.size()));
-            // Base cost on distance (simulated by random but controlled variation)
-            double baseCost = 1.0 + random.nextDouble(); // Base cost between 1-2
-            connections.add(new Connection(connectionId++, nearestSource, zone, baseCost));
-        }
-
-        // Add additional connections with higher costs (representing longer distances)
-        while (connections.size() < count) {
-            Source source = sources.get(random.nextInt(sources.size()));
-            Zone zone = zones.get(random.nextInt(zones.size()));
-            // Additional connections have higher costs
-            double cost = 2.0 + random.nextDouble() * 2.0; // Cost between 2-4
-            connections.add(new Connection(connectionId++, source, zone, cost));
-        }
-
-        return connections;
-    }
-
     private void writeDetailedResults(PrintWriter writer, AllocationMetrics metrics,
             AllocationResponse response, List<Source> sources, List<Zone> zones, List<Connection> connections) {
 
@@ -0,0 +1,143 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
+import com.octagone.daaprojbackend.models.HorizonRequest;
+import com.octagone.daaprojbackend.models.HorizonResponse;
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HorizonAllocationServiceTest {
+
+    private static final double TOLERANCE = 1e-6;
+
+    private CompiledNetwork network;
+    private HorizonAllocationService service;
+
+    @BeforeEach
+    void setUp() {
+        NetworkSnapshotService snapshotService = new NetworkSnapshotService();
+        network = snapshotService.install(new NetworkGenerator(new NetworkGeneratorConfig()
+                .setSources(20)
+                .setZones(300)
+                .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED))
+                .generateNetwork());
+        AllocationExecutor executor = new AllocationExecutor();
+        ReflectionTestUtils.setField(executor, "threads", 2);
+        executor.startExecutor();
+        service = new HorizonAllocationService();
+        ReflectionTestUtils.setField(service, "networkSnapshotService", snapshotService);
+        ReflectionTestUtils.setField(service, "arrayAllocationEngine", new ArrayAllocationEngine());
+        ReflectionTestUtils.setField(service, "allocationExecutor", executor);
+    }
+
+    @Test
+    void testWarmStartedPeriodsAreFeasible() {
+        HorizonRequest request = request(48).setDetails(true);
+
+        HorizonResponse warm = service.allocate(request);
+        HorizonResponse exact = service.allocate(request(48).setDetails(true).setWarmStart(false));
+
+        assertEquals(48, warm.getPeriods().size());
+        for (int p = 0; p < 48; p++) {
+            double[] capacity = network.getCapacity().clone();
+            double[] demand = network.getDemand().clone();
+            profile(request, p, capacity, demand);
+            assertFeasible(warm.getPeriods().get(p), capacity, demand);
+            assertFeasible(exact.getPeriods().get(p), capacity, demand);
+            assertEquals(exact.getPeriods().get(p).getTotalDemand(), warm.getPeriods().get(p).getTotalDemand(), 1e-9);
+        }
+        // The first period is a full run either way
+        assertEquals(exact.getPeriods().get(0).getTotalAllocated(), warm.getPeriods().get(0).getTotalAllocated(), 1e-9);
+    }
+
+    @Test
+    void testTotalsOnlyByDefault() {
+        HorizonResponse totals = service.allocate(request(24));
+        HorizonResponse detailed = service.allocate(request(24).setDetails(true));
+
+        for (int p = 0; p < 24; p++) {
+            assertNull(totals.getPeriods().get(p).getAllocations());
+            assertEquals(detailed.getPeriods().get(p).getTotalAllocated(),
+                    totals.getPeriods().get(p).getTotalAllocated(), 1e-9);
+        }
+    }
+
+    @Test
+    void testStreamedPeriodsMatchTheResponse() {
+        HorizonResponse detailed = service.allocate(request(24).setDetails(true));
+        List<HorizonResponse.Period> streamed = new ArrayList<>();
+
+        service.allocate(service.prepare(request(24)), streamed::add);
+
+        assertEquals(24, streamed.size());
+        for (int p = 0; p < 24; p++) {
+            HorizonResponse.Period expected = detailed.getPeriods().get(p);
+            assertEquals(p, streamed.get(p).getPeriod());
+            assertEquals(expected.getTotalAllocated(), streamed.get(p).getTotalAllocated(), 1e-9);
+            assertEquals(expected.getAllocations().size(), streamed.get(p).getAllocations().size());
+        }
+    }
+
+    @Test
+    void testInvalidRequestsAreRejected() {
+        long periods = HorizonAllocationService.MAX_DETAIL_ZONES / network.getZoneCount() + 1;
+        assertThrows(IllegalArgumentException.class,
+                () -> service.allocate(new HorizonRequest().setPeriods((int) periods).setDetails(true)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.prepare(new HorizonRequest().setZoneDemand(Map.of(-1L, new double[24]))));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.prepare(new HorizonRequest().setDemandFactors(new double[3])));
+    }
+
+    // Daily demand curve, plus one source that goes offline now and then
+    private HorizonRequest request(int periods) {
+        Random random = new Random(periods);
+        double[] demandFactors = new double[periods];
+        double[] offline = new double[periods];
+        for (int p = 0; p < periods; p++) {
+            demandFactors[p] = 0.6 + 0.5 * Math.sin(p * Math.PI / 12) * Math.sin(p * Math.PI / 12);
+            offline[p] = random.nextInt(4) == 0 ? 0 : network.getCapacity()[0];
+        }
+        return new HorizonRequest().setPeriods(periods).setDemandFactors(demandFactors)
+                .setSourceCapacity(Map.of(network.getSourceIds()[0], offline));
+    }
+
+    private void profile(HorizonRequest request, int period, double[] capacity, double[] demand) {
+        for (int z = 0; z < demand.length; z++) {
+            demand[z] = network.getDemand()[z] * request.getDemandFactors()[period];
+        }
+        capacity[0] = request.getSourceCapacity().get(network.getSourceIds()[0])[period];
+    }
+
+    private void assertFeasible(HorizonResponse.Period period, double[] capacity, double[] demand) {
+        double[] used = new double[capacity.length];
+        double total = 0;
+        for (ZoneAllocation allocation : period.getAllocations()) {
+            int z = network.zoneIndexOf(allocation.getZoneId());
+            double allocated = 0;
+            for (int i = 0; i < allocation.connectionCount(); i++) {
+                int c = network.connectionIndexOf(allocation.connectionId(i));
+                assertEquals(z, network.getConnZone()[c]);
+                used[network.getConnSrc()[c]] += allocation.connectionAmount(i);
+                allocated += allocation.connectionAmount(i);
+            }
+            assertTrue(allocated <= demand[z] + TOLERANCE, "Zone " + z + " over its demand");
+            total += allocated;
+        }
+        for (int s = 0; s < capacity.length; s++) {
+            assertTrue(used[s] <= capacity[s] + TOLERANCE, "Source " + s + " over its capacity");
+        }
+        assertEquals(total, period.getTotalAllocated(), TOLERANCE);
+    }
+}
@@ -0,0 +1,182 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.models.Connection;
+import com.octagone.daaprojbackend.models.Source;
+import com.octagone.daaprojbackend.models.Zone;
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+import com.octagone.daaprojbackend.network.AllocationRepair;
+import com.octagone.daaprojbackend.network.AllocationState;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalAllocationServiceTest {
+
+    private static final double TOLERANCE = 1e-6;
+
+    private CompiledNetwork network;
+    private IncrementalAllocationService service;
+
+    @BeforeEach
+    void setUp() {
+        network = new NetworkGenerator(new NetworkGeneratorConfig()
+                .setSources(20)
+                .setZones(300)
+                .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED))
+                .generateNetwork();
+        NetworkSnapshotService snapshotService = new NetworkSnapshotService();
+        network = snapshotService.install(network);
+        service = new IncrementalAllocationService();
+        ReflectionTestUtils.setField(service, "arrayAllocationEngine", new ArrayAllocationEngine());
+        ReflectionTestUtils.setField(service, "networkSnapshotService", snapshotService);
+        service.current();
+        assertInvariants();
+    }
+
+    @Test
+    void testZoneEdits() {
+        Random random = new Random(1);
+        for (int edit = 0; edit < 100; edit++) {
+            int z = random.nextInt(network.getZoneCount());
+            double demand = demand()[z] * (0.2 + 1.6 * random.nextDouble());
+            int priority = random.nextBoolean() ? priority()[z] : 1 + random.nextInt(5);
+            double[] before = state().getFlow().clone();
+
+            service.applyZoneChange(new Zone(network.getZoneIds()[z], demand, priority));
+
+            assertInvariants();
+            assertDeltaMatches(before, z);
+        }
+    }
+
+    @Test
+    void testSourceEdits() {
+        Random random = new Random(2);
+        for (int edit = 0; edit < 100; edit++) {
+            int s = random.nextInt(network.getSourceCount());
+            double capacity = capacity()[s] * (0.2 + 1.6 * random.nextDouble());
+            double[] before = state().getFlow().clone();
+
+            service.applySourceChange(new Source(network.getSourceIds()[s], capacity));
+
+            assertInvariants();
+            assertDeltaMatches(before, -1);
+        }
+    }
+
+    @Test
+    void testConnectionCostEdits() {
+        Random random = new Random(3);
+        for (int edit = 0; edit < 100; edit++) {
+            int c = random.nextInt(network.getConnectionCount());
+            int s = network.getConnSrc()[c];
+            int z = network.getConnZone()[c];
+            Connection connection = new Connection(network.getConnectionIds()[c],
+                    new Source(network.getSourceIds()[s], capacity()[s]),
+                    new Zone(network.getZoneIds()[z], demand()[z], priority()[z]), random.nextDouble() * 20);
+            double[] before = state().getFlow().clone();
+
+            service.applyConnectionChange(connection);
+
+            assertInvariants();
+            assertDeltaMatches(before, z);
+        }
+    }
+
+    @Test
+    void testUnknownZoneFallsBackToFullAllocation() {
+        AllocationResponse delta = service.applyZoneChange(new Zone(-1L, 10, 1));
+
+        assertSame(delta, service.getLastDelta());
+        assertEquals(new ArrayAllocationEngine().allocate(network).getAllocations().size(),
+                delta.getAllocations().size());
+        assertInvariants();
+    }
+
+    private void assertInvariants() {
+        AllocationState state = state();
+        double[] flow = state.getFlow();
+        for (int s = 0; s < network.getSourceCount(); s++) {
+            double used = 0;
+            for (int i = network.getSourceOffsets()[s]; i < network.getSourceOffsets()[s + 1]; i++) {
+                used += flow[network.getSourceConnections()[i]];
+            }
+            assertTrue(state.getResidualCapacity()[s] > -TOLERANCE, "Negative residual capacity of source " + s);
+            assertEquals(capacity()[s] - used, state.getResidualCapacity()[s], TOLERANCE);
+        }
+        for (int z = 0; z < network.getZoneCount(); z++) {
+            double allocated = 0;
+            for (int i = network.getZoneOffsets()[z]; i < network.getZoneOffsets()[z + 1]; i++) {
+                allocated += flow[network.getZoneConnections()[i]];
+            }
+            assertTrue(state.getRemainingDemand()[z] > -TOLERANCE, "Negative remaining demand of zone " + z);
+            assertEquals(demand()[z] - state.getRemainingDemand()[z], allocated, TOLERANCE);
+        }
+        assertRowsSorted((int[]) ReflectionTestUtils.getField(repair(), "zoneRows"), network.getZoneOffsets());
+        assertRowsSorted((int[]) ReflectionTestUtils.getField(repair(), "sourceRows"), network.getSourceOffsets());
+    }
+
+    private void assertRowsSorted(int[] rows, int[] offsets) {
+        double[] weightedCost = (double[]) ReflectionTestUtils.getField(repair(), "weightedCost");
+        for (int g = 0; g + 1 < offsets.length; g++) {
+            for (int i = offsets[g] + 1; i < offsets[g + 1]; i++) {
+                assertTrue(weightedCost[rows[i - 1]] <= weightedCost[rows[i]], "Row " + g + " out of order");
+            }
+        }
+    }
+
+    // The delta lists every zone whose flows changed, plus at most the edited zone, with its current allocation
+    private void assertDeltaMatches(double[] before, int editedZone) {
+        AllocationState state = state();
+        Set<Long> listed = new HashSet<>();
+        for (ZoneAllocation allocation : service.getLastDelta().getAllocations()) {
+            assertTrue(listed.add(allocation.getZoneId()), "Zone listed twice: " + allocation.getZoneId());
+            int z = network.zoneIndexOf(allocation.getZoneId());
+            ZoneAllocation current = state.zoneAllocation(z);
+            assertEquals(current == null ? 0 : current.getAmount(), allocation.getAmount(), TOLERANCE);
+        }
+        for (int z = 0; z < network.getZoneCount(); z++) {
+            boolean changed = false;
+            for (int i = network.getZoneOffsets()[z]; i < network.getZoneOffsets()[z + 1]; i++) {
+                int c = network.getZoneConnections()[i];
+                changed |= Math.abs(before[c] - state.getFlow()[c]) > 1e-9;
+            }
+            long zoneId = network.getZoneIds()[z];
+            if (changed) {
+                assertTrue(listed.contains(zoneId), "Changed zone missing from the delta: " + zoneId);
+            } else if (z != editedZone) {
+                assertFalse(listed.contains(zoneId), "Unchanged zone in the delta: " + zoneId);
+            }
+        }
+    }
+
+    private AllocationRepair repair() {
+        return (AllocationRepair) ReflectionTestUtils.getField(service, "repair");
+    }
+
+    private AllocationState state() {
+        return repair().getState();
+    }
+
+    private double[] capacity() {
+        return repair().getCapacity();
+    }
+
+    private double[] demand() {
+        return repair().getDemand();
+    }
+
+    private int[] priority() {
+        return repair().getPriority();
+    }
+}
@@ -0,0 +1,179 @@
+package com.octagone.daaprojbackend.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.octagone.daaprojbackend.generator.NdjsonNetworkReader;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcNetworkWriterTest {
+
+    @Test
+    void testIdsComeFromReservedSequenceBlocks() {
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        // A fresh sequence hands out 1, 51, 101, ...; the zone sequence was already used elsewhere
+        jdbc.sequences.put("zones_seq", 501L);
+        JdbcNetworkWriter writer = new JdbcNetworkWriter(jdbc, 60);
+
+        for (long id = 1; id <= 130; id++) {
+            writer.source(1000 + id, 10);
+            writer.zone(2000 + id, 5, 1);
+        }
+        writer.flush();
+
+        List<Long> sourceIds = jdbc.insertedIds("sources");
+        List<Long> zoneIds = jdbc.insertedIds("zones");
+        assertEquals(130, sourceIds.size());
+        assertEquals(130, zoneIds.size());
+        for (int i = 0; i < 130; i++) {
+            // The first value of a fresh sequence only reserves itself
+            assertEquals(i + 1L, sourceIds.get(i).longValue());
+            // Value 551 reserves 502..551, value 601 reserves 552..601, and so on
+            assertEquals(502L + i, zoneIds.get(i).longValue());
+        }
+        // Two blocks per round trip cover a batch of 60
+        assertEquals(2, jdbc.nextvalCalls.get("sources_seq"));
+        assertEquals(2, jdbc.nextvalCalls.get("zones_seq"));
+    }
+
+    @Test
+    void testParentsAreFlushedBeforeConnections() {
+        RecordingJdbcTemplate jdbc = new RecordingJdbcTemplate();
+        JdbcNetworkWriter writer = new JdbcNetworkWriter(jdbc, 4);
+
+        long connectionId = 1;
+        for (long id = 1; id <= 10; id++) {
+            writer.source(id, 100);
+            writer.zone(id, 10, 2);
+            for (long source = 1; source <= id; source++) {
+                writer.connection(connectionId++, source, id, 1.5);
+            }
+        }
+        writer.flush();
+
+        Set<Long> sources = new HashSet<>();
+        Set<Long> zones = new HashSet<>();
+        int connections = 0;
+        for (Row row : jdbc.rows) {
+            switch (row.table) {
+                case "sources" -> sources.add(row.values.get(0).longValue());
+                case "zones" -> zones.add(row.values.get(0).longValue());
+                default -> {
+                    assertTrue(sources.contains(row.values.get(1).longValue()), "Connection inserted before its source");
+                    assertTrue(zones.contains(row.values.get(2).longValue()), "Connection inserted before its zone");
+                    connections++;
+                }
+            }
+        }
+        assertEquals(10, sources.size());
+        assertEquals(10, zones.size());
+        assertEquals(55, connections);
+        assertEquals(55, writer.getConnectionCount());
+    }
+
+    @Test
+    void testInvalidRowsAreRejected() {
+        JdbcNetworkWriter writer = new JdbcNetworkWriter(new RecordingJdbcTemplate(), 10);
+        writer.source(1, 100);
+        writer.zone(1, 10, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> writer.source(2, -1));
+        assertThrows(IllegalArgumentException.class, () -> writer.source(1, 5));
+        assertThrows(IllegalArgumentException.class, () -> writer.zone(2, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> writer.zone(3, 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> writer.connection(1, 1, 1, -0.5));
+        assertThrows(IllegalArgumentException.class, () -> writer.connection(2, 1, 1, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> writer.connection(3, 1, 1, Double.POSITIVE_INFINITY));
+        assertThrows(IllegalArgumentException.class, () -> writer.connection(4, 1, 99, 1));
+    }
+
+    @Test
+    void testNdjsonZonesNeedAPriority() {
+        String valid = "{\"type\":\"zone\",\"id\":1,\"demand\":4.0,\"priority\":2}\n";
+        String missing = "{\"type\":\"zone\",\"id\":2,\"demand\":4.0}\n";
+        JdbcNetworkWriter writer = new JdbcNetworkWriter(new RecordingJdbcTemplate(), 10);
+
+        assertDoesNotThrow(() -> NdjsonNetworkReader.read(new JsonFactory(),
+                new ByteArrayInputStream(valid.getBytes(StandardCharsets.UTF_8)), writer));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> NdjsonNetworkReader.read(new JsonFactory(),
+                        new ByteArrayInputStream(missing.getBytes(StandardCharsets.UTF_8)), writer));
+        assertTrue(e.getMessage().contains("priority"));
+        assertEquals(1, writer.getZoneCount());
+    }
+
+    private record Row(String table, List<Number> values) {
+    }
+
+    /**
+     * Serves pooled sequence values and records inserted rows, in statement order.
+     */
+    private static final class RecordingJdbcTemplate extends JdbcTemplate {
+        private static final int INCREMENT = JdbcNetworkWriter.ID_ALLOCATION_SIZE;
+
+        private final Map<String, Long> sequences = new HashMap<>();
+        private final Map<String, Integer> nextvalCalls = new HashMap<>();
+        private final List<Row> rows = new ArrayList<>();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            String sequence = sql.substring(sql.indexOf("nextval('") + 9, sql.indexOf("')"));
+            nextvalCalls.merge(sequence, 1, Integer::sum);
+            List<T> values = new ArrayList<>();
+            for (int i = 0; i < (Integer) args[0]; i++) {
+                long value = sequences.getOrDefault(sequence, 1L - INCREMENT) + INCREMENT;
+                sequences.put(sequence, value);
+                values.add((T) Long.valueOf(value));
+            }
+            return values;
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, BatchPreparedStatementSetter setter) {
+            String table = sql.substring("INSERT INTO ".length(), sql.indexOf(' ', "INSERT INTO ".length()));
+            List<Number> values = new ArrayList<>();
+            PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, methodArgs) -> {
+                        if (method.getName().startsWith("set")) {
+                            values.add((Number) methodArgs[1]);
+                        }
+                        return null;
+                    });
+            try {
+                for (int i = 0; i < setter.getBatchSize(); i++) {
+                    values.clear();
+                    setter.setValues(statement, i);
+                    rows.add(new Row(table, new ArrayList<>(values)));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return new int[setter.getBatchSize()];
+        }
+
+        List<Long> insertedIds(String table) {
+            List<Long> ids = new ArrayList<>();
+            for (Row row : rows) {
+                if (row.table.equals(table)) {
+                    ids.add(row.values.get(0).longValue());
+                }
+            }
+            return ids;
+        }
+    }
+}
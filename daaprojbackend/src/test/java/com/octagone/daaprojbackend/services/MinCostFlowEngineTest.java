@@ -0,0 +1,63 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.*;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+@SpringBootTest
+public class MinCostFlowEngineTest {
+
+    @Autowired
+    private MinCostFlowEngine minCostFlowEngine;
+
+    @Autowired
+    private ArrayAllocationEngine arrayAllocationEngine;
+
+    // Zone 1 prefers source 1, but zone 2 can only be served by source 1
+    private CompiledNetwork contendedNetwork() {
+        return new CompiledNetwork.Builder()
+                .addSource(1L, 10.0)
+                .addSource(2L, 10.0)
+                .addZone(1L, 10.0, 1)
+                .addZone(2L, 10.0, 1)
+                .addConnection(1L, 1L, 1L, 0.5)
+                .addConnection(2L, 2L, 1L, 2.0)
+                .addConnection(3L, 1L, 2L, 1.0)
+                .build(0);
+    }
+
+    @Test
+    void testMeetsDemandGreedyLeavesUnmet() {
+        CompiledNetwork network = contendedNetwork();
+
+        double greedyTotal = total(arrayAllocationEngine.allocate(network));
+        double flowTotal = total(minCostFlowEngine.allocate(network));
+
+        assertEquals(10.0, greedyTotal, 1e-9);
+        assertEquals(20.0, flowTotal, 1e-9);
+    }
+
+    @Test
+    void testRoutesAroundContention() {
+        AllocationResponse response = minCostFlowEngine.allocate(contendedNetwork());
+
+        ZoneAllocation zone2 = response.getAllocations().stream()
+                .filter(a -> a.getZoneId().equals(2L))
+                .findFirst()
+                .orElse(null);
+        assertNotNull(zone2);
+        List<ConnectionAllocation> connections = zone2.getConnectionAllocations();
+        assertEquals(1, connections.size());
+        assertEquals(3L, connections.get(0).getConnectionId());
+        assertEquals(10.0, connections.get(0).getAmount(), 1e-9);
+    }
+
+    private double total(AllocationResponse response) {
+        return response.getAllocations().stream().mapToDouble(ZoneAllocation::getAmount).sum();
+    }
+}
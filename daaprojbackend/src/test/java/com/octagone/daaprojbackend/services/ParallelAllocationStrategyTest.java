@@ -0,0 +1,87 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.models.*;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import com.octagone.daaprojbackend.network.NetworkPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+@SpringBootTest(properties = "allocation.parallel.min-connections=0")
+public class ParallelAllocationStrategyTest {
+
+    @Autowired
+    private ParallelAllocationStrategy parallelAllocationStrategy;
+
+    @Autowired
+    private ArrayAllocationEngine arrayAllocationEngine;
+
+    // Independent districts of a few sources and zones, with no connections between districts
+    private CompiledNetwork districtNetwork(long seed, int districts) {
+        Random random = new Random(seed);
+        CompiledNetwork.Builder builder = new CompiledNetwork.Builder();
+        long sourceId = 1;
+        long zoneId = 1;
+        long connectionId = 1;
+        for (int d = 0; d < districts; d++) {
+            int sourceCount = 1 + random.nextInt(4);
+            int zoneCount = 1 + random.nextInt(20);
+            long firstSource = sourceId;
+            long firstZone = zoneId;
+            for (int i = 0; i < sourceCount; i++) {
+                builder.addSource(sourceId++, random.nextDouble() * 300);
+            }
+            for (int i = 0; i < zoneCount; i++) {
+                builder.addZone(zoneId++, random.nextDouble() * 60, 1 + random.nextInt(3));
+            }
+            for (int i = 0; i < zoneCount * 2; i++) {
+                builder.addConnection(connectionId++, firstSource + random.nextInt(sourceCount),
+                        firstZone + random.nextInt(zoneCount), random.nextDouble() * 3);
+            }
+        }
+        return builder.build(0);
+    }
+
+    @Test
+    void testMatchesArrayEngine() {
+        for (long seed = 0; seed < 20; seed++) {
+            CompiledNetwork network = districtNetwork(seed, 50);
+
+            List<ZoneAllocation> expected = arrayAllocationEngine.allocate(network).getAllocations();
+            List<ZoneAllocation> actual = parallelAllocationStrategy.allocate(network).getAllocations();
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getZoneId(), actual.get(i).getZoneId());
+                assertEquals(expected.get(i).getAmount(), actual.get(i).getAmount(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void testPartitionsIndependentDistricts() {
+        CompiledNetwork network = new CompiledNetwork.Builder()
+                .addSource(1L, 10.0)
+                .addSource(2L, 10.0)
+                .addSource(3L, 10.0)
+                .addZone(1L, 5.0, 1)
+                .addZone(2L, 5.0, 1)
+                .addZone(3L, 5.0, 1)
+                .addConnection(1L, 1L, 1L, 1.0)
+                .addConnection(2L, 2L, 2L, 1.0)
+                .addConnection(3L, 2L, 3L, 1.0)
+                .build(0);
+        NetworkPartition partition = network.getPartition(8);
+
+        assertEquals(2, partition.getComponentCount());
+        assertEquals(2, partition.getTaskCount());
+        // Cached on the network, including the networks of the tasks
+        assertSame(partition, network.getPartition(8));
+        assertSame(partition.getSubnetwork(1), partition.getSubnetwork(1));
+        assertEquals(2, partition.getSubnetwork(1).getZoneCount());
+    }
+}
@@ -0,0 +1,157 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
+import com.octagone.daaprojbackend.models.ScenarioRequest;
+import com.octagone.daaprojbackend.models.ScenarioResponse;
+import com.octagone.daaprojbackend.models.ZoneAllocation;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScenarioAnalysisServiceTest {
+
+    private final CompiledNetwork network = new NetworkGenerator(new NetworkGeneratorConfig()
+            .setSources(20)
+            .setZones(400)
+            .setMode(NetworkGeneratorConfig.Mode.OVERSUBSCRIBED))
+            .generateNetwork();
+
+    @Test
+    void testExplicitPerturbationsMatchSingleRuns() {
+        long zoneId = network.getZoneIds()[3];
+        long sourceId = network.getSourceIds()[0];
+        List<ScenarioRequest.Perturbation> perturbations = List.of(
+                new ScenarioRequest.Perturbation(),
+                new ScenarioRequest.Perturbation().setDemandFactor(1.3).setZoneDemandFactors(Map.of(zoneId, 0.0)),
+                new ScenarioRequest.Perturbation().setOfflineSources(List.of(sourceId)));
+        ScenarioRequest request = new ScenarioRequest().setPerturbations(perturbations).setMaxZones(10_000);
+
+        ScenarioResponse response = service(2).evaluate(network, request);
+
+        // Expected figures from one full allocation of each perturbed network
+        int zoneCount = network.getZoneCount();
+        int[] shortCount = new int[zoneCount];
+        double[] shortSum = new double[zoneCount];
+        double minRate = Double.POSITIVE_INFINITY;
+        double maxRate = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < perturbations.size(); i++) {
+            double[] capacity = network.getCapacity().clone();
+            double[] demand = network.getDemand().clone();
+            for (int z = 0; z < zoneCount; z++) {
+                demand[z] *= perturbations.get(i).getDemandFactor();
+            }
+            if (i == 1) {
+                demand[network.zoneIndexOf(zoneId)] = 0;
+            }
+            if (i == 2) {
+                capacity[network.sourceIndexOf(sourceId)] = 0;
+            }
+            CompiledNetwork perturbed = CompiledNetwork.fromArrays(0, network.getSourceIds(), capacity,
+                    network.getZoneIds(), demand, network.getPriority(), network.getConnectionIds(),
+                    network.getConnSrc(), network.getConnZone(), network.getCost());
+            double[] unmet = demand.clone();
+            for (ZoneAllocation allocation : new ArrayAllocationEngine().allocate(perturbed).getAllocations()) {
+                unmet[network.zoneIndexOf(allocation.getZoneId())] -= allocation.getAmount();
+            }
+            double totalDemand = 0;
+            double totalUnmet = 0;
+            for (int z = 0; z < zoneCount; z++) {
+                totalDemand += demand[z];
+                if (unmet[z] > 1e-6) {
+                    shortCount[z]++;
+                    shortSum[z] += unmet[z];
+                    totalUnmet += unmet[z];
+                }
+            }
+            double rate = (totalDemand - totalUnmet) / totalDemand * 100;
+            minRate = Math.min(minRate, rate);
+            maxRate = Math.max(maxRate, rate);
+        }
+
+        assertEquals(3, response.getScenarios());
+        assertEquals(minRate, response.getMinSatisfactionRate(), 1e-9);
+        assertEquals(maxRate, response.getMaxSatisfactionRate(), 1e-9);
+        int shortZones = 0;
+        for (int z = 0; z < zoneCount; z++) {
+            shortZones += shortCount[z] > 0 ? 1 : 0;
+        }
+        assertEquals(shortZones, response.getZonesWithShortfall());
+        assertEquals(shortZones, response.getZones().size());
+        for (ScenarioResponse.ZoneShortfall zone : response.getZones()) {
+            int z = network.zoneIndexOf(zone.getZoneId());
+            assertEquals(shortCount[z] / 3.0, zone.getShortfallProbability(), 1e-12);
+            assertEquals(shortSum[z] / 3, zone.getMeanShortfall(), 1e-9);
+        }
+        // Zones are listed most likely to fall short first
+        for (int i = 1; i < response.getZones().size(); i++) {
+            assertTrue(response.getZones().get(i - 1).getShortfallProbability()
+                    >= response.getZones().get(i).getShortfallProbability());
+        }
+    }
+
+    @Test
+    void testRandomBatchDoesNotDependOnThreads() {
+        ScenarioRequest request = new ScenarioRequest().setScenarios(500).setSeed(7).setDemandSigma(0.3)
+                .setSourceOutageProbability(0.05).setMaxZones(20);
+
+        ScenarioResponse single = service(1).evaluate(network, request);
+        ScenarioResponse parallel = service(8).evaluate(network, request);
+
+        assertEquals(500, single.getScenarios());
+        assertEquals(single.getMeanSatisfactionRate(), parallel.getMeanSatisfactionRate());
+        assertEquals(single.getMinSatisfactionRate(), parallel.getMinSatisfactionRate());
+        assertEquals(single.getMaxSatisfactionRate(), parallel.getMaxSatisfactionRate());
+        assertEquals(single.getSatisfactionPercentiles(), parallel.getSatisfactionPercentiles());
+        assertEquals(single.getZonesWithShortfall(), parallel.getZonesWithShortfall());
+        assertEquals(single.getZones().size(), parallel.getZones().size());
+        for (int i = 0; i < single.getZones().size(); i++) {
+            assertEquals(single.getZones().get(i).getZoneId(), parallel.getZones().get(i).getZoneId());
+            assertEquals(single.getZones().get(i).getShortfallProbability(),
+                    parallel.getZones().get(i).getShortfallProbability());
+            assertEquals(single.getZones().get(i).getMeanShortfall(), parallel.getZones().get(i).getMeanShortfall());
+        }
+        // Percentiles are ascending and within the observed range
+        double previous = single.getMinSatisfactionRate() - 0.01;
+        for (double percentile : single.getSatisfactionPercentiles().values()) {
+            assertTrue(percentile >= previous && percentile <= single.getMaxSatisfactionRate() + 0.01);
+            previous = percentile;
+        }
+    }
+
+    @Test
+    void testInvalidRequestsAreRejected() {
+        ScenarioAnalysisService service = service(1);
+
+        assertThrows(IllegalArgumentException.class, () -> service.evaluate(network, new ScenarioRequest()
+                .setPerturbations(List.of(new ScenarioRequest.Perturbation().setZoneDemandFactors(Map.of(-5L, 1.0))))));
+        assertThrows(IllegalArgumentException.class, () -> service.evaluate(network, new ScenarioRequest()
+                .setPerturbations(List.of(new ScenarioRequest.Perturbation().setOfflineSources(List.of(-5L))))));
+        assertThrows(IllegalArgumentException.class, () -> service.evaluate(network, new ScenarioRequest()
+                .setPerturbations(List.of(new ScenarioRequest.Perturbation().setDemandFactor(-1)))));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.evaluate(network, new ScenarioRequest().setScenarios(0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.evaluate(network, new ScenarioRequest().setScenarios(ScenarioRequest.MAX_SCENARIOS + 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.evaluate(network, new ScenarioRequest().setDemandSigma(1.5)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.evaluate(network, new ScenarioRequest().setSourceOutageProbability(-0.1)));
+    }
+
+    private static ScenarioAnalysisService service(int threads) {
+        AllocationExecutor executor = new AllocationExecutor();
+        ReflectionTestUtils.setField(executor, "threads", threads);
+        executor.startExecutor();
+        ScenarioAnalysisService service = new ScenarioAnalysisService();
+        ReflectionTestUtils.setField(service, "arrayAllocationEngine", new ArrayAllocationEngine());
+        ReflectionTestUtils.setField(service, "allocationExecutor", executor);
+        ReflectionTestUtils.setField(service, "threads", threads);
+        return service;
+    }
+}
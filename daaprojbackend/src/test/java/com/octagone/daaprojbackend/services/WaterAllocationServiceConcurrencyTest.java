@@ -0,0 +1,120 @@
+package com.octagone.daaprojbackend.services;
+
+import com.octagone.daaprojbackend.generator.NetworkGenerator;
+import com.octagone.daaprojbackend.generator.NetworkGeneratorConfig;
+import com.octagone.daaprojbackend.models.AllocationResponse;
+import com.octagone.daaprojbackend.network.CompiledNetwork;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaterAllocationServiceConcurrencyTest {
+
+    private static final int CALLERS = 8;
+
+    @Test
+    void testWaitersSeeAnErrorOfTheSharedComputation() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger allocations = new AtomicInteger();
+        AllocationStrategy strategy = new AllocationStrategy() {
+            @Override
+            public String getName() {
+                return "blocking";
+            }
+
+            @Override
+            public AllocationResponse allocate(CompiledNetwork network) {
+                allocations.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new ArrayAllocationEngine().allocate(network);
+            }
+        };
+        // Storing the encoded result fails with an Error, not a RuntimeException
+        AllocationResultCache cache = new AllocationResultCache() {
+            @Override
+            public synchronized Entry put(long version, String strategy, String format, byte[] body) {
+                throw new OutOfMemoryError("Result too large");
+            }
+        };
+        WaterAllocationService service = service(strategy, cache);
+
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            Thread caller = new Thread(() -> {
+                try {
+                    service.allocateSerialized("blocking", WaterAllocationService.FORMAT_BINARY);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            callers.add(caller);
+            caller.start();
+        }
+        // Only let the allocation finish once every other caller waits for it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (waiting(callers) < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(CALLERS - 1, waiting(callers));
+        release.countDown();
+        for (Thread caller : callers) {
+            caller.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(caller.isAlive(), "Caller still blocked on the failed computation");
+        }
+
+        assertEquals(1, allocations.get());
+        assertEquals(CALLERS, failures.size());
+        for (Throwable failure : failures) {
+            assertInstanceOf(OutOfMemoryError.class, failure);
+        }
+    }
+
+    private static WaterAllocationService service(AllocationStrategy strategy, AllocationResultCache cache) {
+        CompiledNetwork network = new NetworkGenerator(new NetworkGeneratorConfig()
+                .setSources(5)
+                .setZones(50))
+                .generateNetwork();
+        NetworkSnapshotService snapshotService = new NetworkSnapshotService();
+        snapshotService.install(network);
+        AllocationExecutor executor = new AllocationExecutor();
+        ReflectionTestUtils.setField(executor, "threads", 2);
+        executor.startExecutor();
+
+        WaterAllocationService service = new WaterAllocationService();
+        ReflectionTestUtils.setField(service, "strategies", List.of(strategy));
+        ReflectionTestUtils.setField(service, "networkSnapshotService", snapshotService);
+        ReflectionTestUtils.setField(service, "allocationExecutor", executor);
+        ReflectionTestUtils.setField(service, "resultCache", cache);
+        service.registerStrategies();
+        return service;
+    }
+
+    // Callers parked on the in-flight result of another caller
+    private static int waiting(List<Thread> callers) {
+        int count = 0;
+        for (Thread caller : callers) {
+            for (StackTraceElement frame : caller.getStackTrace()) {
+                if (frame.getClassName().equals("java.util.concurrent.CompletableFuture")
+                        && frame.getMethodName().equals("join")) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+}
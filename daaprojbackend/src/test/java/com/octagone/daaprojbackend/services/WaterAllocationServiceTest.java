@@ -82,6 +82,21 @@ public class WaterAllocationServiceTest {
                 "High priority zone should have better or equal demand fulfillment");
     }
 
+    @Test
+    void testInputsAreNotModified() {
+        waterAllocationService.allocateWater(sources, zones, connections);
+        AllocationResponse second = waterAllocationService.allocateWater(sources, zones, connections);
+
+        assertEquals(200.0, sources.get(0).getCapacity());
+        assertEquals(300.0, sources.get(1).getCapacity());
+        assertEquals(80.0, zones.get(0).getDemand());
+        assertEquals(0.0, zones.get(0).getFilledCapacity());
+
+        // A second run over the same entities sees the full network again
+        double total = second.getAllocations().stream().mapToDouble(ZoneAllocation::getAmount).sum();
+        assertEquals(300.0, total, 1e-9);
+    }
+
     private ZoneAllocation findAllocationForZone(List<ZoneAllocation> allocations, Long zoneId) {
         return allocations.stream()
                 .filter(a -> a.getZoneId().equals(zoneId))